@@ -32,6 +32,11 @@ extern "C" {
 #include <lz4.h>
 #include <unistd.h>
 #include <pthread.h>
+#include <sys/mman.h>
+#include <sys/stat.h>
+#include <cstdio>
+#include <cstring>
+#include <vector>
 
 #include "bridge.h"
 
@@ -63,6 +68,11 @@ struct LottieInfo {
   uint32_t nextFrameNo = 0;
   size_t headerSize = 0;
 
+  // Read-only mapping of the validated cache file, frameOffsets point to each frame's size prefix
+  uint8_t *mappedData = nullptr;
+  size_t mappedSize = 0;
+  std::vector<size_t> frameOffsets;
+
   LottieInfo (std::string path) : path(std::move(path)) {
 
   }
@@ -77,6 +87,9 @@ struct LottieInfo {
   }
 
   ~LottieInfo () {
+    if (mappedData != nullptr) {
+      munmap(mappedData, mappedSize);
+    }
     if (cacheFile != nullptr) {
       fclose(cacheFile);
     }
@@ -672,6 +685,41 @@ JNI_FUNC(void, getLottieSize, jlong ptr, jintArray data) {
 
 #define MAX_COMPRESSED_BUFFER_SIZE (1024 * 1024 * 15 /*15 MiB*/)
 
+// Maps already validated cache file, so frames are decompressed straight from the page cache.
+// Cache files are never modified in place, so the mapping stays valid even if the file gets evicted.
+// When mapping fails, frames are still read through info->cacheFile.
+static void mapLottieCache (LottieInfo *info, uint32_t frameCount) {
+  int fd = fileno(info->cacheFile);
+  struct stat st;
+  if (fd == -1 || fstat(fd, &st) != 0 || st.st_size <= (off_t) info->headerSize) {
+    return;
+  }
+  size_t size = (size_t) st.st_size;
+  void *data = mmap(nullptr, size, PROT_READ, MAP_SHARED, fd, 0);
+  if (data == MAP_FAILED) {
+    return;
+  }
+  std::vector<size_t> offsets;
+  offsets.reserve(frameCount);
+  size_t offset = info->headerSize;
+  while (offsets.size() < frameCount && offset + sizeof(uint32_t) <= size) {
+    uint32_t compressedSize;
+    memcpy(&compressedSize, (uint8_t *) data + offset, sizeof(compressedSize));
+    if (compressedSize > info->maxCompressedFrameSize || offset + sizeof(uint32_t) + compressedSize > size)
+      break;
+    offsets.push_back(offset);
+    offset += sizeof(uint32_t) + compressedSize;
+  }
+  if (offsets.size() != frameCount) {
+    munmap(data, size);
+    return;
+  }
+  madvise(data, size, MADV_SEQUENTIAL);
+  info->mappedData = (uint8_t *) data;
+  info->mappedSize = size;
+  info->frameOffsets = std::move(offsets);
+}
+
 JNI_FUNC(jint, createLottieCache, jlong ptr, jstring jCachePath, jobject firstFrame, jobject bitmap, jboolean allowCreate, jboolean limitFps) {
   if (jCachePath == nullptr) {
     return 2;
@@ -701,7 +749,7 @@ JNI_FUNC(jint, createLottieCache, jlong ptr, jstring jCachePath, jobject firstFr
   // logi(TAG_GIF_LOADER, "checking lottie cache: %s", cachePath.c_str());
 
   bool cacheExists = false;
-  FILE *cacheFile = fopen(cachePath.c_str(), "r+");
+  FILE *cacheFile = fopen(cachePath.c_str(), "r");
   if (cacheFile != nullptr) {
     // logi(TAG_GIF_LOADER, "lottie cache found");
     uint32_t magicCheck = 0;
@@ -753,8 +801,11 @@ JNI_FUNC(jint, createLottieCache, jlong ptr, jstring jCachePath, jobject firstFr
     if (cacheFile != nullptr) {
       fclose(cacheFile);
     }
-    cacheFile = fopen(cachePath.c_str(), "w+");
+    // Cache file may be shared with other decoders, so it is written aside and then atomically renamed
+    const std::string tempPath = cachePath + "." + std::to_string((uintptr_t) info) + ".tmp";
+    cacheFile = fopen(tempPath.c_str(), "w+");
     if (cacheFile == nullptr) {
+      AndroidBitmap_unlockPixels(env, bitmap);
       return 2;
     }
 
@@ -805,7 +856,8 @@ JNI_FUNC(jint, createLottieCache, jlong ptr, jstring jCachePath, jobject firstFr
 
     if (aborted || info->canceled) {
       fclose(cacheFile);
-      unlink(cachePath.c_str());
+      unlink(tempPath.c_str());
+      free(compressBuffer);
       AndroidBitmap_unlockPixels(env, bitmap);
       return 3;
     }
@@ -819,8 +871,17 @@ JNI_FUNC(jint, createLottieCache, jlong ptr, jstring jCachePath, jobject firstFr
     fflush(cacheFile);
     fclose(cacheFile);
 
-    info->cacheFile = fopen(cachePath.c_str(), "r+");
+    if (rename(tempPath.c_str(), cachePath.c_str()) != 0) {
+      unlink(tempPath.c_str());
+      free(compressBuffer);
+      AndroidBitmap_unlockPixels(env, bitmap);
+      return 2;
+    }
+
+    info->cacheFile = fopen(cachePath.c_str(), "r");
     if (info->cacheFile == nullptr) {
+      free(compressBuffer);
+      AndroidBitmap_unlockPixels(env, bitmap);
       return 2;
     }
 
@@ -829,6 +890,7 @@ JNI_FUNC(jint, createLottieCache, jlong ptr, jstring jCachePath, jobject firstFr
 
     fseek(info->cacheFile, info->headerSize + sizeof(uint32_t) + firstFrameSize, SEEK_SET);
     info->nextFrameNo = 1;
+    mapLottieCache(info, frameCount);
 
     AndroidBitmap_unlockPixels(env, bitmap);
   } else if (cacheExists) {
@@ -838,6 +900,7 @@ JNI_FUNC(jint, createLottieCache, jlong ptr, jstring jCachePath, jobject firstFr
 
     fseek(info->cacheFile, info->headerSize + sizeof(uint32_t) + firstFrameSize, SEEK_SET);
     info->nextFrameNo = 1;
+    mapLottieCache(info, frameCount);
   } else {
     return 1;
   }
@@ -863,7 +926,20 @@ JNI_FUNC(jboolean, getLottieFrame, jlong ptr, jobject bitmap, jlong jFrameNo) {
 
   bool success = false;
 
-  if (info->cacheFile != nullptr) {
+  if (info->mappedData != nullptr && frameNo < info->frameOffsets.size()) {
+    const uint8_t *frame = info->mappedData + info->frameOffsets[frameNo];
+    uint32_t compressedSize;
+    memcpy(&compressedSize, frame, sizeof(compressedSize));
+    if (compressedSize > 0) {
+      success = LZ4_decompress_safe((const char *) (frame + sizeof(compressedSize)), (char *) pixels,
+                                    (int) compressedSize,
+                                    (int) (bitmapInfo.height * bitmapInfo.stride)) > 0;
+      if (!success) {
+        loge(TAG_GIF_LOADER, "sticker cache frame corrupted: %d", frameNo);
+        info->hadCacheFileErrors = true;
+      }
+    }
+  } else if (info->cacheFile != nullptr) {
     if (info->nextFrameNo >= info->animation->totalFrame() || frameNo < info->nextFrameNo) {
       fseek(info->cacheFile, info->headerSize, SEEK_SET);
       info->nextFrameNo = 0;
@@ -32,6 +32,7 @@ import androidx.annotation.Nullable;
 import androidx.collection.SparseArrayCompat;
 
 import org.drinkless.tdlib.TdApi;
+import org.thunderdog.challegram.component.chat.MessagesRecycledViewPool;
 import org.thunderdog.challegram.config.Config;
 import org.thunderdog.challegram.core.Lang;
 import org.thunderdog.challegram.data.TD;
@@ -133,6 +134,7 @@ public class MainActivity extends BaseActivity implements GlobalAccountListener,
     reloadTdlib();
 
     createMessagesController(tdlib).getValue();
+    MessagesRecycledViewPool.instance(this).prewarmWhenIdle();
 
     tempSavedInstanceState = savedInstanceState;
 
@@ -1480,6 +1482,7 @@ public class MainActivity extends BaseActivity implements GlobalAccountListener,
     TdlibManager.instance().global().removeCountersListener(this);
     TdlibManager.instance().global().removeResolvableProblemAvailabilityListener(this);
     destroyMessageControllers();
+    MessagesRecycledViewPool.release(this);
 
     Log.i("MainActivity.onDestroy");
     Log.close();
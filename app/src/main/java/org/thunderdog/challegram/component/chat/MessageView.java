@@ -339,6 +339,35 @@ public class MessageView extends SparseDrawableView implements Destroyable, Draw
     }
   }
 
+  public void clearMessage () {
+    if (msg != null) {
+      msg.onDetachedFromView(this);
+      msg = null;
+    }
+    avatarReceiver.clear();
+    avatarsReceiver.clear();
+    giveawayAvatarsReceiver.clear();
+    reactionAvatarsReceiver.clear();
+    replyReceiver.clear();
+    replyTextMediaReceiver.clear();
+    gifReceiver.clear();
+    reactionsComplexReceiver.clear();
+    textMediaReceiver.clear();
+    emojiStatusReceiver.clear();
+    if (footerTextMediaReceiver != null) {
+      footerTextMediaReceiver.clear();
+    }
+    if (contentReceiver != null) {
+      contentReceiver.clear();
+    }
+    if (previewReceiver != null) {
+      previewReceiver.clear();
+    }
+    if (complexReceiver != null) {
+      complexReceiver.clear();
+    }
+  }
+
   public void invalidatePreviewReceiver (long chatId, long messageId) {
     if (msg != null && chatId == msg.getChatId() && messageId == msg.getId() && previewReceiver != null) {
       msg.requestPreview(previewReceiver);
@@ -425,6 +454,9 @@ public class MessageView extends SparseDrawableView implements Destroyable, Draw
 
   @Override
   public void onDraw (Canvas c) {
+    if (msg == null) {
+      return;
+    }
     msg.draw(this, c, avatarReceiver, replyReceiver, replyTextMediaReceiver, previewReceiver, contentReceiver, gifReceiver, complexReceiver);
   }
 
@@ -90,6 +90,10 @@ public class MessageViewGroup extends ViewGroup implements Destroyable, AttachDe
     return overlayView;
   }
 
+  public void setManager (MessagesManager manager) {
+    this.manager = manager;
+  }
+
   public void initWithView (MessageView messageView, MessagesManager manager, @Nullable ViewController<?> themeProvider) {
     this.messageView = messageView;
     messageView.setCustomMeasureDisabled(true);
@@ -280,6 +284,12 @@ public class MessageViewGroup extends ViewGroup implements Destroyable, AttachDe
     }
   }
 
+  public void clearMessage () {
+    messageView.clearMessage();
+    overlayView.setMessage(null);
+    videoPlayerView.requestFiles(null);
+  }
+
   private void requestVideo (TGMessage message) {
     videoPlayerView.requestFiles(message);
   }
@@ -87,6 +87,7 @@ public class MessagesAdapter extends RecyclerView.Adapter<MessagesHolder> {
 
   @Override
   public void onBindViewHolder (MessagesHolder holder, int position) {
+    holder.bindManager(manager, themeProvider);
     switch (holder.getItemViewType()) {
       case MessagesHolder.TYPE_EMPTY: {
         manager.setEmptyText((TextView) holder.itemView, items != null);
@@ -61,10 +61,70 @@ public class MessagesHolder extends RecyclerView.ViewHolder {
   public static final int TYPE_SECRET_CHAT_INFO = 100;
   public static final int TYPE_SECRET_CHAT_INFO_BUBBLE = 101;
 
+  private @Nullable MessagesManager boundManager;
+  private @Nullable ViewController<?> boundThemeProvider;
+
   public MessagesHolder (View view) {
     super(view);
   }
 
+  /**
+   * Moves message view to another list, when it was taken from {@link MessagesRecycledViewPool}.
+   */
+  public void bindManager (MessagesManager manager, @Nullable ViewController<?> themeProvider) {
+    if (!isMessageType(getItemViewType())) {
+      return;
+    }
+    if (boundManager != manager) {
+      boundManager = manager;
+      setViewManager(manager);
+    }
+    if (boundThemeProvider != themeProvider) {
+      setThemeProvider(themeProvider);
+    }
+  }
+
+  /**
+   * Releases references to the list that is being destroyed, while view stays in {@link MessagesRecycledViewPool}.
+   */
+  public void unbindManager (MessagesManager manager) {
+    if (boundManager != manager || !isMessageType(getItemViewType())) {
+      return;
+    }
+    boundManager = null;
+    setViewManager(null);
+    setThemeProvider(null);
+  }
+
+  private void setViewManager (@Nullable MessagesManager manager) {
+    if (itemView instanceof MessageViewGroup) {
+      ((MessageViewGroup) itemView).setManager(manager);
+      ((MessageViewGroup) itemView).getMessageView().setManager(manager);
+    } else {
+      ((MessageView) itemView).setManager(manager);
+    }
+  }
+
+  private void setThemeProvider (@Nullable ViewController<?> themeProvider) {
+    final View[] views;
+    if (itemView instanceof MessageViewGroup) {
+      views = new View[] {((MessageViewGroup) itemView).getMessageView(), ((MessageViewGroup) itemView).getOverlayView()};
+    } else {
+      views = new View[] {itemView};
+    }
+    if (boundThemeProvider != null) {
+      for (View view : views) {
+        boundThemeProvider.removeThemeListenerByTarget(view);
+      }
+    }
+    boundThemeProvider = themeProvider;
+    if (themeProvider != null) {
+      for (View view : views) {
+        themeProvider.addThemeInvalidateListener(view);
+      }
+    }
+  }
+
   public void setMessage (TGMessage message) {
     final int viewType = getItemViewType();
     if (viewType >= TYPE_MESSAGE_VIEW_GROUP) {
@@ -74,6 +134,21 @@ public class MessagesHolder extends RecyclerView.ViewHolder {
     }
   }
 
+  /**
+   * Releases the displayed message, so it does not stay in memory while view is in {@link MessagesRecycledViewPool}.
+   */
+  public void clearMessage () {
+    final int viewType = getItemViewType();
+    if (!isMessageType(viewType)) {
+      return;
+    }
+    if (viewType >= TYPE_MESSAGE_VIEW_GROUP) {
+      ((MessageViewGroup) itemView).clearMessage();
+    } else {
+      ((MessageView) itemView).clearMessage();
+    }
+  }
+
   public static MessageView findMessageView (View view) {
     if (view instanceof MessageView) {
       return (MessageView) view;
@@ -150,7 +225,50 @@ public class MessagesHolder extends RecyclerView.ViewHolder {
     throw new IllegalArgumentException("");
   }
 
+  /**
+   * Creates message view that is not bound to any list yet, so it can be put to {@link MessagesRecycledViewPool} in advance.
+   */
+  public static MessagesHolder createUnbound (Context context, int type) {
+    if (!isMessageType(type)) {
+      throw new IllegalArgumentException(Integer.toString(type));
+    }
+    //noinspection ConstantConditions
+    return new UnboundHolderFactory(context).createViewHolder(null, type);
+  }
+
+  // Sets view type of created holders, which can be done only by RecyclerView.Adapter
+  private static final class UnboundHolderFactory extends RecyclerView.Adapter<MessagesHolder> {
+    private final Context context;
+
+    public UnboundHolderFactory (Context context) {
+      this.context = context;
+    }
+
+    @NonNull
+    @Override
+    public MessagesHolder onCreateViewHolder (@NonNull ViewGroup parent, int viewType) {
+      return create(context, null, viewType, null);
+    }
+
+    @Override
+    public void onBindViewHolder (@NonNull MessagesHolder holder, int position) {
+      // Unbound holders are only created and pooled, never bound
+    }
+
+    @Override
+    public int getItemCount () {
+      return 0;
+    }
+  }
+
   public static MessagesHolder create (Context context, final MessagesManager manager, int type, @Nullable ViewController<?> themeProvider) {
+    MessagesHolder holder = createImpl(context, manager, type, themeProvider);
+    holder.boundManager = manager;
+    holder.boundThemeProvider = themeProvider;
+    return holder;
+  }
+
+  private static MessagesHolder createImpl (Context context, final MessagesManager manager, int type, @Nullable ViewController<?> themeProvider) {
     switch (type) {
       case TYPE_EMPTY: {
         final EmptyTextView view = new EmptyTextView(context) {
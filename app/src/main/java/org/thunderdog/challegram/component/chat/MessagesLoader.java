@@ -45,6 +45,7 @@ import org.thunderdog.challegram.tool.Strings;
 import org.thunderdog.challegram.tool.UI;
 import org.thunderdog.challegram.unsorted.Settings;
 import org.thunderdog.challegram.util.CancellableResultHandler;
+import org.thunderdog.challegram.util.PerfTrace;
 
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -522,9 +523,11 @@ public class MessagesLoader implements Client.ResultHandler {
           lastHandler = null;
         }
 
+        final long startTime = PerfTrace.begin();
         processMessages(currentContextId,
           messages, knownTotalCount, nextSearchOffset, nextSearchFromMessageId,
           needFindUnread && object.getConstructor() == TdApi.Messages.CONSTRUCTOR, missingAlbums);
+        PerfTrace.end(PerfTrace.Span.MESSAGES_PROCESS, startTime);
       }
     };
   }
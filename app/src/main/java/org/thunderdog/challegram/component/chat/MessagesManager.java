@@ -75,6 +75,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -96,6 +97,7 @@ public class MessagesManager implements Client.ResultHandler, MessagesSearchMana
   private final MessagesSearchManagerMiddleware searchMiddleware;
 
   private final MessagesLoader loader;
+  private final MessagesPrefetcher prefetcher;
 
   private String eventLogQuery;
   private long[] eventLogUserIds;
@@ -116,6 +118,7 @@ public class MessagesManager implements Client.ResultHandler, MessagesSearchMana
     this.tdlib = controller.tdlib();
     this.searchMiddleware = new MessagesSearchManagerMiddleware(tdlib);
     this.loader = new MessagesLoader(this, searchMiddleware);
+    this.prefetcher = new MessagesPrefetcher(tdlib);
     this.listener = new RecyclerView.OnScrollListener() {
       @Override
       public void onScrollStateChanged (RecyclerView recyclerView, int newState) {
@@ -143,6 +146,9 @@ public class MessagesManager implements Client.ResultHandler, MessagesSearchMana
       @Override
       public void onScrolled (RecyclerView recyclerView, int dx, int dy) {
         viewMessages(true);
+        if (dy != 0 && manager != null) {
+          prefetcher.onScrolled(adapter, manager.findFirstVisibleItemPosition(), manager.findLastVisibleItemPosition());
+        }
         if (dy == 0) {
           saveScrollPosition();
           ((MessagesRecyclerView) recyclerView).showDateForcely();
@@ -525,6 +531,9 @@ public class MessagesManager implements Client.ResultHandler, MessagesSearchMana
   }
 
   public void destroy (ViewController<?> context) {
+    cancelPendingLayouts();
+    prefetcher.reset();
+    MessagesRecycledViewPool.onManagerDestroyed(this);
     resetScroll();
     returnToMessageIds = null;
     highlightMode = 0;
@@ -1415,6 +1424,8 @@ public class MessagesManager implements Client.ResultHandler, MessagesSearchMana
   // Utils
 
   public void clear () {
+    cancelPendingLayouts();
+    prefetcher.reset();
     adapter.clear(false);
     onTopEndLoaded();
   }
@@ -1495,8 +1506,14 @@ public class MessagesManager implements Client.ResultHandler, MessagesSearchMana
 
   public void rebuildLayouts () {
     ArrayList<TGMessage> items = adapter.getItems();
-    if (items != null) {
-      for (TGMessage m : items) {
+    if (items == null) {
+      return;
+    }
+    final int firstVisiblePosition = manager != null ? manager.findFirstVisibleItemPosition() : RecyclerView.NO_POSITION;
+    final int lastVisiblePosition = manager != null ? manager.findLastVisibleItemPosition() : RecyclerView.NO_POSITION;
+    for (int i = 0; i < items.size(); i++) {
+      TGMessage m = items.get(i);
+      if (firstVisiblePosition == RecyclerView.NO_POSITION || (i >= firstVisiblePosition - 1 && i <= lastVisiblePosition + 1)) {
         int height = m.getHeight();
         m.rebuildLayout();
         if (height != m.getHeight() && !useBubbles()) {
@@ -1504,8 +1521,71 @@ public class MessagesManager implements Client.ResultHandler, MessagesSearchMana
         } else {
           m.invalidate();
         }
+      } else {
+        // Off-screen: keeps its current layout and height until rebuilt
+        // by the deferred layout queue or on bind, whichever comes first
+        m.invalidateLayout();
+        pendingLayouts.add(m);
+      }
+    }
+    schedulePendingLayouts();
+  }
+
+  // Deferred layout
+
+  private static final long PENDING_LAYOUT_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(4);
+
+  private final ArrayList<TGMessage> pendingLayouts = new ArrayList<>();
+  private boolean pendingLayoutsScheduled;
+  private final Runnable pendingLayoutsProcessor = this::processPendingLayouts;
+
+  /**
+   * Queues layout of all loaded messages for the current recycler width.
+   * Visible messages are measured by RecyclerView itself, so this only helps messages that are going to be bound later.
+   */
+  @UiThread
+  public void onRecyclerWidthChanged () {
+    ArrayList<TGMessage> items = adapter.getItems();
+    if (items != null && !items.isEmpty()) {
+      pendingLayouts.addAll(items);
+      schedulePendingLayouts();
+    }
+  }
+
+  private void schedulePendingLayouts () {
+    if (!pendingLayoutsScheduled && !pendingLayouts.isEmpty()) {
+      pendingLayoutsScheduled = true;
+      UI.post(pendingLayoutsProcessor);
+    }
+  }
+
+  private void cancelPendingLayouts () {
+    pendingLayouts.clear();
+    if (pendingLayoutsScheduled) {
+      pendingLayoutsScheduled = false;
+      UI.cancel(pendingLayoutsProcessor);
+    }
+  }
+
+  @UiThread
+  private void processPendingLayouts () {
+    pendingLayoutsScheduled = false;
+    final int width = getRecyclerWidth();
+    if (width == 0 || controller.isDestroyed()) {
+      pendingLayouts.clear();
+      return;
+    }
+    final long startNanos = System.nanoTime();
+    int index = pendingLayouts.size() - 1;
+    while (index >= 0 && System.nanoTime() - startNanos < PENDING_LAYOUT_BUDGET_NANOS) {
+      TGMessage m = pendingLayouts.remove(index);
+      if (!m.isDestroyed() && m.needsLayout(width)) {
+        m.buildLayout(width);
+        m.requestLayout();
       }
+      index--;
     }
+    schedulePendingLayouts();
   }
 
   public void onUpdateTextSize () {
@@ -1583,7 +1663,10 @@ public class MessagesManager implements Client.ResultHandler, MessagesSearchMana
 
     recyclerView.removeOnScrollListener(listener);
     recyclerView.addOnScrollListener(listener);
+    // Shared pool is set after the adapter: when adapter changes, RecyclerView drops all views of its pool
+    recyclerView.setRecycledViewPool(null);
     recyclerView.setAdapter(adapter);
+    recyclerView.setRecycledViewPool(MessagesRecycledViewPool.instance(context));
   }
 
   public boolean isSecretChat () {
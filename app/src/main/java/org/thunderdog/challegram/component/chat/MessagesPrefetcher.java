@@ -0,0 +1,319 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.component.chat;
+
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+import androidx.collection.LongSparseArray;
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.drinkless.tdlib.TdApi;
+import org.thunderdog.challegram.data.TD;
+import org.thunderdog.challegram.data.TGMessage;
+import org.thunderdog.challegram.loader.ImageFile;
+import org.thunderdog.challegram.loader.ImageLoader;
+import org.thunderdog.challegram.loader.Watcher;
+import org.thunderdog.challegram.loader.WatcherReference;
+import org.thunderdog.challegram.telegram.Tdlib;
+import org.thunderdog.challegram.telegram.TdlibFilesManager;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.vkryl.core.MathUtils;
+import me.vkryl.core.collection.IntList;
+import me.vkryl.core.unit.ByteUnit;
+
+/**
+ * Requests media of messages that are about to be scrolled into view, before their views are bound.
+ *
+ * The amount of messages depends on the scroll velocity. Nearest messages are requested first:
+ * downloads are started in order of distance, and previews are decoded starting from the nearest one.
+ * When scroll direction changes, downloads started by the prefetcher that did not receive any data yet are cancelled.
+ */
+public final class MessagesPrefetcher {
+  /**
+   * Receives files that are going to be requested by the message, once it is bound.
+   */
+  public interface Collector {
+    void prefetchPreview (@Nullable ImageFile file);
+    void prefetchImage (@Nullable ImageFile file);
+    void prefetchDownload (@Nullable TdApi.File file);
+  }
+
+  private static final int MIN_PREFETCH_COUNT = 3;
+  private static final int MAX_PREFETCH_COUNT = 15;
+  private static final float LOOKAHEAD_MS = 600f;
+
+  // Full-size images are decoded only for the nearest messages, so prefetch does not evict visible bitmaps
+  private static final int MAX_IMAGE_DISTANCE = 2;
+  private static final long MAX_DOWNLOAD_SIZE = ByteUnit.MIB.toBytes(1);
+
+  private final Tdlib tdlib;
+  private final LongSparseArray<Request> requests = new LongSparseArray<>();
+  private final ArrayList<Request> pendingImageRequests = new ArrayList<>();
+
+  private int direction;
+  private float velocity; // messages per millisecond
+  private long lastScrollTime;
+  private int firstVisible = RecyclerView.NO_POSITION, lastVisible = RecyclerView.NO_POSITION;
+
+  public MessagesPrefetcher (Tdlib tdlib) {
+    this.tdlib = tdlib;
+  }
+
+  @UiThread
+  public void onScrolled (MessagesAdapter adapter, int firstVisible, int lastVisible) {
+    if (firstVisible == RecyclerView.NO_POSITION || lastVisible == RecyclerView.NO_POSITION) {
+      return;
+    }
+    final int prevFirstVisible = this.firstVisible;
+    final int prevLastVisible = this.lastVisible;
+    this.firstVisible = firstVisible;
+    this.lastVisible = lastVisible;
+    if (prevFirstVisible == RecyclerView.NO_POSITION) {
+      lastScrollTime = SystemClock.uptimeMillis();
+      return;
+    }
+
+    final int positionDiff = (firstVisible + lastVisible) - (prevFirstVisible + prevLastVisible);
+    if (positionDiff == 0) {
+      return;
+    }
+    final long now = SystemClock.uptimeMillis();
+    final float currentVelocity = (float) Math.abs(positionDiff) / 2f / (float) Math.max(1, now - lastScrollTime);
+    velocity = velocity * .5f + currentVelocity * .5f;
+    lastScrollTime = now;
+
+    // Adapter positions grow towards older messages
+    final int direction = positionDiff > 0 ? 1 : -1;
+    if (this.direction != direction) {
+      if (this.direction != 0) {
+        cancel(this.direction);
+      }
+      this.direction = direction;
+    }
+
+    if (direction > 0) {
+      trackVisible(adapter, Math.max(prevLastVisible + 1, firstVisible), lastVisible);
+    } else {
+      trackVisible(adapter, firstVisible, Math.min(prevFirstVisible - 1, lastVisible));
+    }
+
+    final int count = MathUtils.clamp(MIN_PREFETCH_COUNT + Math.round(velocity * LOOKAHEAD_MS), MIN_PREFETCH_COUNT, MAX_PREFETCH_COUNT);
+    final int startPosition = direction > 0 ? lastVisible + 1 : firstVisible - 1;
+    for (int distance = 0; distance < count; distance++) {
+      TGMessage message = adapter.getMessage(startPosition + distance * direction);
+      if (message == null) {
+        break;
+      }
+      prefetch(message, direction, distance);
+    }
+    // Images requested later are decoded first, so the nearest message goes last
+    for (int i = pendingImageRequests.size() - 1; i >= 0; i--) {
+      pendingImageRequests.get(i).requestImages();
+    }
+    pendingImageRequests.clear();
+  }
+
+  private void prefetch (TGMessage message, int direction, int distance) {
+    final long messageId = message.getId();
+    if (message.isDestroyed() || requests.get(messageId) != null) {
+      return;
+    }
+    Request request = new Request(direction, distance);
+    message.requestPrefetch(request);
+    if (request.isEmpty()) {
+      return;
+    }
+    requests.put(messageId, request);
+    request.requestDownloads();
+    if (!request.images.isEmpty()) {
+      pendingImageRequests.add(request);
+    }
+    synchronized (statsLock) {
+      prefetchedMessageCount++;
+    }
+  }
+
+  private void trackVisible (MessagesAdapter adapter, int fromPosition, int toPosition) {
+    for (int position = fromPosition; position <= toPosition; position++) {
+      TGMessage message = adapter.getMessage(position);
+      if (message == null) {
+        continue;
+      }
+      final long messageId = message.getId();
+      final Request request = requests.get(messageId);
+      if (request != null) {
+        requests.remove(messageId);
+        // Receivers of the bound view now watch the same files
+        request.release();
+        synchronized (statsLock) {
+          if (request.isLoaded()) {
+            hitCount++;
+          } else {
+            lateCount++;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Cancels requests made while scrolling in the given direction.
+   */
+  private void cancel (int direction) {
+    int removedCount = 0;
+    for (int i = requests.size() - 1; i >= 0; i--) {
+      Request request = requests.valueAt(i);
+      if (request.direction == direction) {
+        request.cancel();
+        requests.removeAt(i);
+        removedCount++;
+      }
+    }
+    if (removedCount > 0) {
+      synchronized (statsLock) {
+        cancelledCount += removedCount;
+      }
+    }
+  }
+
+  @UiThread
+  public void reset () {
+    for (int i = requests.size() - 1; i >= 0; i--) {
+      requests.valueAt(i).cancel();
+    }
+    requests.clear();
+    pendingImageRequests.clear();
+    direction = 0;
+    velocity = 0;
+    lastScrollTime = 0;
+    firstVisible = lastVisible = RecyclerView.NO_POSITION;
+  }
+
+  private final class Request implements Collector, Watcher {
+    private final int direction, distance;
+    private final ArrayList<ImageFile> images = new ArrayList<>();
+    private final ArrayList<WatcherReference> references = new ArrayList<>();
+    private final ArrayList<TdApi.File> downloads = new ArrayList<>();
+    private final IntList startedDownloadIds = new IntList(0);
+    private final AtomicInteger pendingImageCount = new AtomicInteger();
+
+    Request (int direction, int distance) {
+      this.direction = direction;
+      this.distance = distance;
+    }
+
+    @Override
+    public void prefetchPreview (@Nullable ImageFile file) {
+      if (file != null) {
+        images.add(file);
+      }
+    }
+
+    @Override
+    public void prefetchImage (@Nullable ImageFile file) {
+      if (file != null && distance <= MAX_IMAGE_DISTANCE) {
+        images.add(file);
+      }
+    }
+
+    @Override
+    public void prefetchDownload (@Nullable TdApi.File file) {
+      if (file != null && file.size > 0 && file.size <= MAX_DOWNLOAD_SIZE && !TD.isFileLoaded(file)) {
+        downloads.add(file);
+      }
+    }
+
+    boolean isEmpty () {
+      return images.isEmpty() && downloads.isEmpty();
+    }
+
+    boolean isLoaded () {
+      return pendingImageCount.get() <= 0;
+    }
+
+    void requestImages () {
+      pendingImageCount.set(images.size());
+      for (ImageFile file : images) {
+        WatcherReference reference = new WatcherReference(this);
+        references.add(reference);
+        ImageLoader.instance().prefetchFile(file, reference);
+      }
+      synchronized (statsLock) {
+        prefetchedImageCount += images.size();
+      }
+    }
+
+    void requestDownloads () {
+      for (TdApi.File file : downloads) {
+        // Same priority as automatic downloads of visible messages, so prefetch never delays them
+        if (tdlib.files().downloadFileSpeculatively(file, TdlibFilesManager.DEFAULT_DOWNLOAD_PRIORITY)) {
+          startedDownloadIds.append(file.id);
+        }
+      }
+      if (startedDownloadIds.size() > 0) {
+        synchronized (statsLock) {
+          prefetchedDownloadCount += startedDownloadIds.size();
+        }
+      }
+    }
+
+    @Override
+    public void imageLoaded (ImageFile file, boolean successful, Bitmap bitmap) {
+      pendingImageCount.decrementAndGet();
+    }
+
+    void release () {
+      for (WatcherReference reference : references) {
+        ImageLoader.instance().removeWatcher(reference);
+      }
+      references.clear();
+    }
+
+    void cancel () {
+      release();
+      // Files manager keeps downloads that received data or were requested by anything else meanwhile
+      for (int i = 0; i < startedDownloadIds.size(); i++) {
+        tdlib.files().cancelSpeculativeDownload(startedDownloadIds.get(i));
+      }
+      startedDownloadIds.clear();
+    }
+  }
+
+  // Stats
+
+  private static final Object statsLock = new Object();
+  private static long prefetchedMessageCount, prefetchedImageCount, prefetchedDownloadCount, cancelledCount;
+  private static long hitCount, lateCount;
+
+  public static String getStats () {
+    synchronized (statsLock) {
+      final long total = hitCount + lateCount;
+      return "MessagesPrefetcher { messages = " + prefetchedMessageCount +
+        ", images = " + prefetchedImageCount +
+        ", downloads = " + prefetchedDownloadCount +
+        ", cancelled = " + cancelledCount +
+        ", hits = " + hitCount +
+        ", late = " + lateCount +
+        ", hitRate = " + (total > 0 ? Math.round((float) hitCount / (float) total * 100f) : 0) + "%" +
+        " }";
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.component.chat;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.SparseIntArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+
+/**
+ * {@link RecyclerView.RecycledViewPool} shared by all message lists, so that opening a chat
+ * takes message views left by other chats instead of creating new ones.
+ *
+ * Views are bound to {@link MessagesManager} of the list they are displayed in, see {@link MessagesHolder#bindManager}.
+ * Holders of service types capture their manager, so they are never shared.
+ * Pooled views do not keep messages and their content, see {@link MessagesHolder#clearMessage}.
+ */
+public final class MessagesRecycledViewPool extends RecyclerView.RecycledViewPool {
+  private static final int MAX_MESSAGE_VIEW_COUNT = 15;
+  private static final int MAX_MEDIA_VIEW_COUNT = 10;
+
+  // Amount of views created in idle time after startup, enough to fill the screen with text messages
+  private static final int[][] PREWARM_COUNTS = {
+    {MessagesHolder.TYPE_MESSAGE, 10},
+    {MessagesHolder.TYPE_MESSAGE_MEDIA, 4},
+    {MessagesHolder.TYPE_MESSAGE_COMPLEX_MEDIA, 2},
+    {MessagesHolder.TYPE_MESSAGE_VIEW_GROUP + MessagesHolder.TYPE_MESSAGE_MEDIA, 2}
+  };
+
+  private static MessagesRecycledViewPool instance;
+
+  @UiThread
+  public static void release (@NonNull Context context) {
+    if (instance != null && instance.context == context) {
+      instance.clear();
+      instance = null;
+    }
+  }
+
+  @UiThread
+  public static MessagesRecycledViewPool instance (@NonNull Context context) {
+    if (instance == null || instance.context != context) {
+      if (instance != null) {
+        instance.clear();
+      }
+      instance = new MessagesRecycledViewPool(context);
+    }
+    return instance;
+  }
+
+  private final Context context;
+  private final ArrayList<MessagesHolder> holders = new ArrayList<>();
+  private final SparseIntArray hitCounts = new SparseIntArray();
+  private final SparseIntArray missCounts = new SparseIntArray();
+
+  private MessagesRecycledViewPool (Context context) {
+    this.context = context;
+    setMaxRecycledViews(MessagesHolder.TYPE_EMPTY, 0);
+    setMaxRecycledViews(MessagesHolder.TYPE_SECRET_CHAT_INFO, 0);
+    setMaxRecycledViews(MessagesHolder.TYPE_SECRET_CHAT_INFO_BUBBLE, 0);
+    setMaxRecycledViews(MessagesHolder.TYPE_MESSAGE, MAX_MESSAGE_VIEW_COUNT);
+    setMaxRecycledViews(MessagesHolder.TYPE_MESSAGE_MEDIA, MAX_MEDIA_VIEW_COUNT);
+    setMaxRecycledViews(MessagesHolder.TYPE_MESSAGE_COMPLEX_MEDIA, MAX_MEDIA_VIEW_COUNT);
+    setMaxRecycledViews(MessagesHolder.TYPE_MESSAGE_VIEW_GROUP + MessagesHolder.TYPE_MESSAGE, MAX_MEDIA_VIEW_COUNT);
+    setMaxRecycledViews(MessagesHolder.TYPE_MESSAGE_VIEW_GROUP + MessagesHolder.TYPE_MESSAGE_MEDIA, MAX_MEDIA_VIEW_COUNT);
+    setMaxRecycledViews(MessagesHolder.TYPE_MESSAGE_VIEW_GROUP + MessagesHolder.TYPE_MESSAGE_COMPLEX_MEDIA, MAX_MEDIA_VIEW_COUNT);
+  }
+
+  @Nullable
+  @Override
+  public RecyclerView.ViewHolder getRecycledView (int viewType) {
+    RecyclerView.ViewHolder holder = super.getRecycledView(viewType);
+    if (holder != null) {
+      holders.remove(holder);
+      hitCounts.put(viewType, hitCounts.get(viewType) + 1);
+    } else {
+      missCounts.put(viewType, missCounts.get(viewType) + 1);
+    }
+    return holder;
+  }
+
+  @Override
+  public void putRecycledView (RecyclerView.ViewHolder holder) {
+    final int viewType = holder.getItemViewType();
+    final int countBefore = getRecycledViewCount(viewType);
+    super.putRecycledView(holder);
+    if (getRecycledViewCount(viewType) > countBefore && holder instanceof MessagesHolder) {
+      MessagesHolder messagesHolder = (MessagesHolder) holder;
+      messagesHolder.clearMessage();
+      holders.add(messagesHolder);
+    }
+  }
+
+  @Override
+  public void clear () {
+    holders.clear();
+    super.clear();
+  }
+
+  /**
+   * Unbinds pooled views from the manager of a list that is being destroyed, so it does not stay in memory.
+   */
+  @UiThread
+  public static void onManagerDestroyed (@NonNull MessagesManager manager) {
+    if (instance != null) {
+      for (MessagesHolder holder : instance.holders) {
+        holder.unbindManager(manager);
+      }
+    }
+  }
+
+  // Prewarm
+
+  private boolean prewarmScheduled;
+
+  /**
+   * Creates message views one by one, while the main thread has nothing else to do.
+   */
+  @UiThread
+  public void prewarmWhenIdle () {
+    if (prewarmScheduled) {
+      return;
+    }
+    prewarmScheduled = true;
+    Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+      private int index;
+
+      @Override
+      public boolean queueIdle () {
+        if (instance != MessagesRecycledViewPool.this) {
+          return false;
+        }
+        while (index < PREWARM_COUNTS.length) {
+          final int viewType = PREWARM_COUNTS[index][0];
+          if (getRecycledViewCount(viewType) < PREWARM_COUNTS[index][1]) {
+            putRecycledView(MessagesHolder.createUnbound(context, viewType));
+            return true;
+          }
+          index++;
+        }
+        return false;
+      }
+    });
+  }
+
+  @UiThread
+  public static String getStats () {
+    return instance != null ? instance.toString() : "";
+  }
+
+  @Override
+  public String toString () {
+    StringBuilder b = new StringBuilder("MessagesRecycledViewPool { pooled = ").append(holders.size());
+    SparseIntArray viewTypes = new SparseIntArray();
+    for (int i = 0; i < hitCounts.size(); i++) {
+      viewTypes.put(hitCounts.keyAt(i), 1);
+    }
+    for (int i = 0; i < missCounts.size(); i++) {
+      viewTypes.put(missCounts.keyAt(i), 1);
+    }
+    for (int i = 0; i < viewTypes.size(); i++) {
+      final int viewType = viewTypes.keyAt(i);
+      final int hitCount = hitCounts.get(viewType);
+      final int missCount = missCounts.get(viewType);
+      b.append(", type").append(viewType)
+        .append(" = ").append(hitCount).append('/').append(hitCount + missCount)
+        .append(" (").append(getRecycledViewCount(viewType)).append(" pooled)");
+    }
+    return b.append(" }").toString();
+  }
+}
@@ -29,6 +29,7 @@ import org.thunderdog.challegram.telegram.Tdlib;
 import org.thunderdog.challegram.tool.Screen;
 import org.thunderdog.challegram.tool.Strings;
 import org.thunderdog.challegram.tool.UI;
+import org.thunderdog.challegram.unsorted.Settings;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -253,6 +254,9 @@ public class SearchManager {
   public void onOpen (final @Nullable TdApi.ChatList chatList) {
     if (!isOpen) {
       isOpen = true;
+      if ((searchFlags & FLAG_NO_CHATS) == 0 && Settings.instance().isExperimentEnabled(Settings.EXPERIMENT_FLAG_LOCAL_SEARCH_INDEX)) {
+        tdlib.searchIndex().prepare();
+      }
       listener.onOpen();
       performSearch(chatList, "", FORCE_MODE_TOP);
     }
@@ -559,6 +563,8 @@ public class SearchManager {
     }
   }
 
+  private static final int INDEXED_CHATS_LIMIT = 20;
+
   private void searchLocalChats (final int currentContextId, final TdApi.ChatList chatList, final @Nullable String query) {
     if (this.contextId != currentContextId) {
       return;
@@ -567,6 +573,19 @@ public class SearchManager {
     final int[] state = new int[2]; // 1 - step, 2 - disallowSelf
     final LongList foundChatIds = new LongList(16);
 
+    if (!StringUtils.isEmpty(query) && Settings.instance().isExperimentEnabled(Settings.EXPERIMENT_FLAG_LOCAL_SEARCH_INDEX)) {
+      // Show chats found in memory right away, results of SearchChats will be appended to them
+      long[] indexedChatIds = tdlib.searchIndex().search(chatList, query, INDEXED_CHATS_LIMIT);
+      if (indexedChatIds != null && indexedChatIds.length > 0) {
+        ArrayList<TGFoundChat> indexedChats = new ArrayList<>(indexedChatIds.length);
+        parseResult(tdlib, listener, searchFlags, indexedChats, chatList, indexedChatIds, query, false, null);
+        foundChatIds.appendAll(indexedChatIds);
+        if (!indexedChats.isEmpty()) {
+          setLocalChats(currentContextId, query, indexedChats);
+        }
+      }
+    }
+
     tdlib.client().send(new TdApi.SearchChats(query, StringUtils.isEmpty(query) ? 20 : isFiltered() ? 50 : 30), new Client.ResultHandler() {
       @Override
       public void onResult (final TdApi.Object object) {
@@ -50,6 +50,8 @@ public class Config {
 
   public static final boolean MODERN_IMAGE_DECODER_ENABLED = true;
   public static final boolean FORCE_SOFTWARE_IMAGE_DECODER = true;
+  public static final boolean IMAGE_DISK_CACHE_ENABLED = true;
+  public static final boolean BITMAP_POOL_ENABLED = true;
 
   public static final boolean WAIT_ANIMATIONS_BEFORE_START_VIDEO = true;
 
@@ -179,6 +181,8 @@ public class Config {
   public static final int DEFAULT_SHOW_RECENT_STICKERS_COUNT = 10;
 
   public static final boolean USE_TEXT_ADVANCE = true; // Build.VERSION.SDK_INT >= Build.VERSION_CODES.M;
+  public static final boolean TEXT_WIDTH_CACHE_ENABLED = true;
+  public static final boolean EMOJI_TRIE_ENABLED = true;
 
   public static final boolean SMOOTH_SCROLL_TO_BOTTOM_ENABLED = false; // Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP;
 
@@ -35,8 +35,6 @@ import java.util.Stack;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import me.vkryl.core.StringUtils;
-
 /*
  * Functions for diff, match and patch.
  * Computes the difference between two texts to create a patch.
@@ -1475,7 +1473,7 @@ public class DiffMatchPatch {
         case '=':
           int n;
           try {
-            n = StringUtils.parseInt(param);
+            n = Integer.parseInt(param);
           } catch (NumberFormatException e) {
             throw new IllegalArgumentException(
               "Invalid number in diff_fromDelta: " + param, e);
@@ -2194,7 +2192,7 @@ public class DiffMatchPatch {
       }
       patch = new Patch();
       patches.add(patch);
-      patch.start1 = StringUtils.parseInt(m.group(1));
+      patch.start1 = Integer.parseInt(m.group(1));
       if (m.group(2).length() == 0) {
         patch.start1--;
         patch.length1 = 1;
@@ -2202,10 +2200,10 @@ public class DiffMatchPatch {
         patch.length1 = 0;
       } else {
         patch.start1--;
-        patch.length1 = StringUtils.parseInt(m.group(2));
+        patch.length1 = Integer.parseInt(m.group(2));
       }
 
-      patch.start2 = StringUtils.parseInt(m.group(3));
+      patch.start2 = Integer.parseInt(m.group(3));
       if (m.group(4).length() == 0) {
         patch.start2--;
         patch.length2 = 1;
@@ -2213,7 +2211,7 @@ public class DiffMatchPatch {
         patch.length2 = 0;
       } else {
         patch.start2--;
-        patch.length2 = StringUtils.parseInt(m.group(4));
+        patch.length2 = Integer.parseInt(m.group(4));
       }
       text.removeFirst();
 
@@ -52,6 +52,7 @@ import org.thunderdog.challegram.tool.Strings;
 import org.thunderdog.challegram.tool.UI;
 import org.thunderdog.challegram.unsorted.Settings;
 import org.thunderdog.challegram.util.CustomTypefaceSpan;
+import org.thunderdog.challegram.util.LongMap;
 import org.thunderdog.challegram.util.StringList;
 import org.thunderdog.challegram.util.text.Text;
 
@@ -314,8 +315,7 @@ public class Lang {
     if (allowCloud) {
       if (languagePackInfo == null)
         languagePackInfo = Settings.instance().getLanguagePackInfo();
-      final String key = getResourceEntryName(resId);
-      TdApi.LanguagePackStringValueOrdinary string = getStringValue(key, languagePackInfo);
+      TdApi.LanguagePackStringValueOrdinary string = getStringValue(resId, languagePackInfo);
       if (string != null)
         return string.value;
     }
@@ -427,11 +427,10 @@ public class Lang {
     if (allowCloud) {
       if (languagePackInfo == null)
         languagePackInfo = Settings.instance().getLanguagePackInfo();
-      final String key = getResourceEntryName(resId);
-      TdApi.LanguagePackStringValueOrdinary string = getStringValue(key, languagePackInfo);
+      TdApi.LanguagePackStringValueOrdinary string = getStringValue(resId, languagePackInfo);
       if (string != null) {
         try {
-          return formatString(applyFlags(string.value, flags), hasSpanned, creator, formatArgs);
+          return formatTemplate(templateKey(resId), string.value, flags, hasSpanned, creator, formatArgs);
         } catch (Throwable t) {
           warnResource(true, pluralCode(), resId);
         }
@@ -439,8 +438,7 @@ public class Lang {
     }
     try {
       if (creator != null || flags != 0 || hasSpanned) {
-        String format = applyFlags(getAndroidString(resId), flags);
-        return formatString(format, hasSpanned, creator, formatArgs);
+        return formatTemplate(templateKey(resId), getAndroidString(resId), flags, hasSpanned, creator, formatArgs);
       } else {
         return getAndroidString(resId, formatArgs);
       }
@@ -497,7 +495,7 @@ public class Lang {
     return getStringImpl(null, resId, true, 0, creator, formatArgs);
   }
 
-  private static void assertFormatArgumentType (char c, Object arg) {
+  static void assertFormatArgumentType (char c, Object arg) {
     boolean ok;
     switch (c) {
       case 's':
@@ -817,6 +815,36 @@ public class Lang {
     return formatString(format, hasSpanned(formatArgs), creator, formatArgs);
   }
 
+  private static long templateKey (@StringRes int resId) {
+    return resId & 0xffffffffL;
+  }
+
+  private static long templateKey (@StringRes int resId, @PluralForm int pluralForm) {
+    return ((long) (pluralForm + 1) << 32) | (resId & 0xffffffffL);
+  }
+
+  private static CharSequence formatTemplate (long templateKey, String source, int flags, boolean hasSpanned, @Nullable SpanCreator creator, Object... formatArgs) {
+    if (creator == null && !hasSpanned) {
+      return formatString(applyFlags(source, flags), false, null, formatArgs);
+    }
+    LangTemplate template = templates.get(templateKey);
+    if (template == null || !template.matches(source, flags)) {
+      template = LangTemplate.parse(source, flags, applyFlags(source, flags));
+      synchronized (templates) {
+        templates.put(templateKey, template);
+      }
+    }
+    return template.format(creator, formatArgs);
+  }
+
+  /**
+   * Formats {@code format} through a freshly parsed {@link LangTemplate}, bypassing the template cache.
+   * Result is expected to be equal to the one of {@link #formatString(String, boolean, SpanCreator, Object...)}.
+   */
+  public static CharSequence formatStringWithTemplate (String format, @Nullable SpanCreator creator, Object... formatArgs) {
+    return LangTemplate.parse(format, 0, format).format(creator, formatArgs);
+  }
+
   public static CharSequence formatString (String format, boolean hasSpanned, @Nullable SpanCreator creator, Object... formatArgs) {
     if (creator == null && !hasSpanned) {
       return String.format(locale(), format, formatArgs);
@@ -1673,8 +1701,7 @@ public class Lang {
     if (resId == 0)
       throw new Resources.NotFoundException("resId == 0");
 
-    String key = getResourceEntryName(resId);
-    TdApi.LanguagePackStringValuePluralized string = getStringPluralized(key, Settings.instance().getLanguagePackInfo());
+    TdApi.LanguagePackStringValuePluralized string = getStringPluralized(resId, Settings.instance().getLanguagePackInfo());
     if (string != null) {
       int languageCode = pluralCode();
       int pluralForm = numberPluralizationForm(languageCode, num);
@@ -1684,7 +1711,7 @@ public class Lang {
         value = string.otherValue;
       }
       try {
-        return formatString(value, creator, formatArgs);
+        return formatTemplate(templateKey(resId, pluralForm), value, 0, hasSpanned(formatArgs), creator, formatArgs);
       } catch (Throwable t) {
         warnResource(true, languageCode, LangUtils.getPluralForm(resId, pluralForm));
       }
@@ -3518,6 +3545,48 @@ public class Lang {
     return defaultLocale;
   }
 
+  private static @Nullable TdApi.LanguagePackStringValueOrdinary getStringValue (@StringRes int resId, @NonNull TdApi.LanguagePackInfo language) {
+    if (!packId().equals(language.id)) {
+      return getStringValue(getResourceEntryName(resId), language);
+    }
+    TdApi.LanguagePackStringValue cachedString = getCachedString(cachedStringsById, resId, language, false);
+    return cachedString instanceof TdApi.LanguagePackStringValueOrdinary ? (TdApi.LanguagePackStringValueOrdinary) cachedString : null;
+  }
+
+  private static @Nullable TdApi.LanguagePackStringValuePluralized getStringPluralized (@StringRes int resId, @NonNull TdApi.LanguagePackInfo language) {
+    if (!packId().equals(language.id)) {
+      return getStringPluralized(getResourceEntryName(resId), language);
+    }
+    TdApi.LanguagePackStringValue cachedString = getCachedString(cachedPluralsById, resId, language, true);
+    return cachedString instanceof TdApi.LanguagePackStringValuePluralized ? (TdApi.LanguagePackStringValuePluralized) cachedString : null;
+  }
+
+  private static TdApi.LanguagePackStringValue getCachedString (LongMap<TdApi.LanguagePackStringValue> cache, @StringRes int resId, @NonNull TdApi.LanguagePackInfo language, boolean isPluralized) {
+    if (!language.id.equals(cachedStringsPackId)) {
+      synchronized (cachedStringsById) {
+        if (!language.id.equals(cachedStringsPackId)) {
+          clearCachedStringsById();
+          cachedStringsPackId = language.id;
+        }
+      }
+    }
+    TdApi.LanguagePackStringValue cachedString = cache.get(resId);
+    if (cachedString == null) {
+      final int generation = cachedStringsGeneration;
+      final String key = getResourceEntryName(resId);
+      cachedString = isPluralized ? getStringPluralized(key, language) : getStringValue(key, language);
+      if (cachedString == null) {
+        cachedString = STRING_DELETED();
+      }
+      synchronized (cachedStringsById) {
+        if (generation == cachedStringsGeneration) {
+          cache.put(resId, cachedString);
+        }
+      }
+    }
+    return cachedString;
+  }
+
   public static @Nullable TdApi.LanguagePackStringValueOrdinary getStringValue (String key, @NonNull TdApi.LanguagePackInfo language) {
     String cacheKey = null;
     if (packId().equals(language.id)) {
@@ -3864,6 +3933,25 @@ public class Lang {
 
   private static Map<String, TdApi.LanguagePackStringValue> cachedStrings;
 
+  // Strings of the current language pack and parsed templates, by resource identifier.
+  // Reads are lock-free, writes are performed under cachedStringsById and templates respectively
+  private static final LongMap<TdApi.LanguagePackStringValue> cachedStringsById = new LongMap<>(512);
+  private static final LongMap<TdApi.LanguagePackStringValue> cachedPluralsById = new LongMap<>(128);
+  private static final LongMap<LangTemplate> templates = new LongMap<>(256);
+  private static volatile int cachedStringsGeneration;
+  private static volatile String cachedStringsPackId;
+
+  private static void clearCachedStringsById () {
+    synchronized (cachedStringsById) {
+      cachedStringsGeneration++;
+      cachedStringsById.clear();
+      cachedPluralsById.clear();
+    }
+    synchronized (templates) {
+      templates.clear();
+    }
+  }
+
   private static Map<String, TdApi.LanguagePackStringValue> cachedStrings () {
     if (cachedStrings == null) {
       synchronized (Lang.class) {
@@ -3911,10 +3999,13 @@ public class Lang {
         }
       }
     }
+    // Cleared after new values are applied, so concurrent lookups cannot cache old ones again
+    clearCachedStringsById();
   }
 
   public static void clearCachedStrings () {
     cachedStrings().clear();
+    clearCachedStringsById();
   }
 
   public static String makeStringCacheKey (String languageCode, String key) {
@@ -0,0 +1,189 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.core;
+
+import android.text.Spannable;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.thunderdog.challegram.util.text.Text;
+
+import java.util.Arrays;
+
+/**
+ * Format string parsed once into literal parts and argument slots,
+ * supporting the same subset of specifiers as {@link Lang#formatString(String, boolean, Lang.SpanCreator, Object...)}:
+ * {@code %%}, {@code %s}, {@code %d}, {@code %f}, {@code %1$s}, {@code %1$d}, {@code %1$f} and {@code %1$02d}.
+ */
+final class LangTemplate {
+  final String source;
+  final int flags;
+
+  // literals.length == argIndexes.length + 1
+  private final String[] literals;
+  private final int[] argIndexes;
+  private final char[] argTypes;
+  private final int[] argWidths;
+
+  private LangTemplate (String source, int flags, String[] literals, int[] argIndexes, char[] argTypes, int[] argWidths) {
+    this.source = source;
+    this.flags = flags;
+    this.literals = literals;
+    this.argIndexes = argIndexes;
+    this.argTypes = argTypes;
+    this.argWidths = argWidths;
+  }
+
+  boolean matches (String source, int flags) {
+    return this.flags == flags && (this.source == source || this.source.equals(source));
+  }
+
+  /**
+   * @param source format string as it is stored in the language pack or resources, used to validate cached template
+   * @param format format string with flags applied
+   */
+  static LangTemplate parse (@NonNull String source, int flags, @NonNull String format) {
+    int slotCount = 0;
+    for (int i = format.indexOf('%'); i != -1; i = format.indexOf('%', i + 2)) {
+      slotCount++;
+    }
+    String[] literals = new String[slotCount + 1];
+    int[] argIndexes = new int[slotCount];
+    char[] argTypes = new char[slotCount];
+    int[] argWidths = new int[slotCount];
+
+    final int len = format.length();
+    StringBuilder literal = new StringBuilder();
+    int argCount = 0;
+    int argumentIndex = 0; // used for arguments without index
+    int i = 0;
+    while (i < len) {
+      char c = format.charAt(i++);
+      if (c != '%') {
+        literal.append(c);
+        continue;
+      }
+      if (i == len)
+        throw new IllegalArgumentException("Invalid specifier format: %");
+      c = format.charAt(i++);
+      int index, width = 0;
+      switch (c) {
+        case '%': { // %%
+          literal.append('%');
+          continue;
+        }
+        case 'f': case 'd': case 's': { // %f, %d, %s
+          index = argumentIndex++;
+          break;
+        }
+        default: { // %1$s, %1$d, %1$s, %2$02d
+          int numStart = i - 1;
+          while (c >= '0' && c <= '9' && i < len) {
+            c = format.charAt(i++);
+          }
+          int numEnd = i - 1;
+          if (numEnd == numStart || c != '$' || i == len)
+            throw new IllegalArgumentException();
+          index = Integer.parseInt(format.substring(numStart, numEnd)) - 1;
+          c = format.charAt(i++);
+          if (c == '0') {
+            int widthStart = i;
+            while (i < len && (c = format.charAt(i)) >= '0' && c <= '9') {
+              i++;
+            }
+            if (i == widthStart || i == len)
+              throw new IllegalArgumentException();
+            width = Integer.parseInt(format.substring(widthStart, i));
+            c = format.charAt(i++);
+          }
+          if (c != 'f' && c != 'd' && c != 's')
+            throw new IllegalArgumentException();
+          break;
+        }
+      }
+      literals[argCount] = literal.toString();
+      literal.setLength(0);
+      argIndexes[argCount] = index;
+      argTypes[argCount] = c;
+      argWidths[argCount] = width;
+      argCount++;
+    }
+    literals[argCount] = literal.toString();
+    if (argCount < slotCount) {
+      literals = Arrays.copyOf(literals, argCount + 1);
+      argIndexes = Arrays.copyOf(argIndexes, argCount);
+      argTypes = Arrays.copyOf(argTypes, argCount);
+      argWidths = Arrays.copyOf(argWidths, argCount);
+    }
+    return new LangTemplate(source, flags, literals, argIndexes, argTypes, argWidths);
+  }
+
+  private static String padded (String replacement, int width) {
+    int paddingSize = width - replacement.length();
+    if (paddingSize <= 0) {
+      return replacement;
+    }
+    StringBuilder b = new StringBuilder(width);
+    do {
+      b.append('0');
+    } while (--paddingSize > 0);
+    return b.append(replacement).toString();
+  }
+
+  /**
+   * Formatting without spans is left to {@link String#format(java.util.Locale, String, Object...)},
+   * because it formats numbers according to locale.
+   */
+  CharSequence format (@Nullable Lang.SpanCreator creator, Object... formatArgs) {
+    SpannableStringBuilder str = new SpannableStringBuilder();
+    int spanCount = 0;
+    for (int slot = 0; slot < argIndexes.length; slot++) {
+      final int index = argIndexes[slot];
+      final Object argument = formatArgs[index];
+      Lang.assertFormatArgumentType(argTypes[slot], argument);
+      final String replacement = padded(String.valueOf(argument), argWidths[slot]);
+      str.append(literals[slot]);
+      final int formatStart = str.length();
+      str.append(replacement);
+      final int formatEnd = str.length();
+
+      if (creator != null) {
+        Object span = creator.onCreateSpan(str, formatStart, formatEnd, index, Text.needFakeBold(replacement));
+        if (span != null) {
+          str.setSpan(span, formatStart, formatEnd, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+          spanCount++;
+          continue;
+        }
+      }
+      if (argument instanceof Spanned) {
+        Spanned spanned = (Spanned) argument;
+        Object[] spans = spanned.getSpans(0, spanned.length(), Object.class);
+        if (spans != null && spans.length > 0) {
+          for (Object span : spans) {
+            int startIndex = spanned.getSpanStart(span);
+            int endIndex = spanned.getSpanEnd(span);
+            str.setSpan(span, formatStart + startIndex, formatStart + endIndex, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+            spanCount++;
+          }
+        }
+      }
+    }
+    str.append(literals[argIndexes.length]);
+    return spanCount > 0 ? str : str.toString();
+  }
+}
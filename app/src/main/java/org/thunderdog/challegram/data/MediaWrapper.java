@@ -45,6 +45,7 @@ import org.drinkless.tdlib.TdApi;
 import org.thunderdog.challegram.BaseActivity;
 import org.thunderdog.challegram.R;
 import org.thunderdog.challegram.U;
+import org.thunderdog.challegram.component.chat.MessagesPrefetcher;
 import org.thunderdog.challegram.config.Config;
 import org.thunderdog.challegram.core.Lang;
 import org.thunderdog.challegram.loader.DoubleImageReceiver;
@@ -814,6 +815,17 @@ public class MediaWrapper implements FileProgressComponent.SimpleListener, FileP
     receiver.requestFile(targetGifFile != null && TD.isFileLoaded(targetFile) && (fileProgress == null || fileProgress.isDownloaded()) && !isHot() ? targetGifFile : null);
   }
 
+  public void requestPrefetch (MessagesPrefetcher.Collector collector) {
+    if (showPreview()) {
+      collector.prefetchPreview(previewFile);
+    }
+    if (showImage()) {
+      collector.prefetchImage(targetImageFile);
+    } else if (targetFile != null && !isHot() && fileProgress.canDownloadAutomatically()) {
+      collector.prefetchDownload(targetFile);
+    }
+  }
+
   public boolean needGif () {
     return targetGifFile != null;
   }
@@ -23,6 +23,7 @@ import androidx.annotation.Dimension;
 import androidx.annotation.Nullable;
 
 import org.drinkless.tdlib.TdApi;
+import org.thunderdog.challegram.component.chat.MessagesPrefetcher;
 import org.thunderdog.challegram.loader.ComplexReceiver;
 import org.thunderdog.challegram.loader.DoubleImageReceiver;
 import org.thunderdog.challegram.loader.ImageReceiver;
@@ -132,6 +133,12 @@ public class MosaicWrapper implements FactorAnimator.Target, ComplexReceiver.Key
     return MOSAIC_NOT_CHANGED;
   }
 
+  public void requestPrefetch (MessagesPrefetcher.Collector collector) {
+    for (MediaWrapper item : items) {
+      item.requestPrefetch(collector);
+    }
+  }
+
   public MediaWrapper getSingularItem () {
     return items.get(0);
   }
@@ -63,6 +63,7 @@ import org.thunderdog.challegram.component.chat.MessageQuickActionSwipeHelper;
 import org.thunderdog.challegram.component.chat.MessageView;
 import org.thunderdog.challegram.component.chat.MessageViewGroup;
 import org.thunderdog.challegram.component.chat.MessagesManager;
+import org.thunderdog.challegram.component.chat.MessagesPrefetcher;
 import org.thunderdog.challegram.component.chat.ReplyComponent;
 import org.thunderdog.challegram.component.sticker.TGStickerObj;
 import org.thunderdog.challegram.config.Config;
@@ -1164,6 +1165,24 @@ public abstract class TGMessage implements InvalidateContentProvider, TdlibDeleg
     }
   }
 
+  private boolean isLayoutOutdated;
+
+  /**
+   * Marks current layout as outdated without building a new one. The message keeps its current layout and height,
+   * so scroll offsets computed from them stay valid, until the next {@link #buildLayout(int)} call,
+   * e.g. when the message is measured.
+   */
+  public void invalidateLayout () {
+    if (this.width != 0 && !isLayoutOutdated) {
+      isLayoutOutdated = true;
+      requestLayout();
+    }
+  }
+
+  public boolean needsLayout (int width) {
+    return width != 0 && (this.width != width || isLayoutOutdated);
+  }
+
   public void onUpdateTextSize () {
     messageReactions.onUpdateTextSize();
   }
@@ -1177,11 +1196,12 @@ public abstract class TGMessage implements InvalidateContentProvider, TdlibDeleg
   }
 
   public void buildLayout (int width) {
-    if (width == 0 || this.width == width) {
+    if (!needsLayout(width)) {
       return;
     }
 
     this.width = width;
+    this.isLayoutOutdated = false;
 
     if (useBubbles()) {
       pRealContentX = computeBubbleLeft();
@@ -4278,6 +4298,10 @@ public abstract class TGMessage implements InvalidateContentProvider, TdlibDeleg
     receiver.clear();
   }
 
+  public void requestPrefetch (MessagesPrefetcher.Collector collector) {
+    // override in children
+  }
+
   public void invalidateMediaContent (ComplexReceiver receiver, long messageId) {
     receiver.clear();
   }
@@ -9434,11 +9458,20 @@ public abstract class TGMessage implements InvalidateContentProvider, TdlibDeleg
     long[] emojiIds = TD.getUniqueEmojiIdList(getTextToTranslate());
 
     LongSet emojiSets = new LongSet();
+    boolean hasMissingEntries = false;
     for (long emojiId : emojiIds) {
-      TdlibEmojiManager.Entry entry = tdlib().emoji().find(emojiId);
-      if (entry == null || entry.value == null) continue;
+      // Request entries that are not loaded anymore, so they are available next time
+      TdlibEmojiManager.Entry entry = tdlib().emoji().findOrPostponeRequest(emojiId, null);
+      if (entry == null) {
+        hasMissingEntries = true;
+        continue;
+      }
+      if (entry.value == null) continue;
       emojiSets.add(entry.value.setId);
     }
+    if (hasMissingEntries) {
+      tdlib().emoji().performPostponedRequestsDelayed();
+    }
 
     return emojiSets.toArray();
   }
@@ -897,11 +897,19 @@ public class TGMessageSticker extends TGMessage implements AnimatedEmojiListener
     if (formattedText != null) {
       long[] emojiIds = TD.getUniqueEmojiIdList(formattedText);
       LongSet emojiSets = new LongSet();
+      boolean hasMissingEntries = false;
       for (long emojiId : emojiIds) {
-        TdlibEmojiManager.Entry entry = tdlib().emoji().find(emojiId);
-        if (entry == null || entry.value == null) continue;
+        TdlibEmojiManager.Entry entry = tdlib().emoji().findOrPostponeRequest(emojiId, null);
+        if (entry == null) {
+          hasMissingEntries = true;
+          continue;
+        }
+        if (entry.value == null) continue;
         emojiSets.add(entry.value.setId);
       }
+      if (hasMissingEntries) {
+        tdlib().emoji().performPostponedRequestsDelayed();
+      }
       return emojiSets.toArray();
     }
 
@@ -31,6 +31,7 @@ import org.drinkless.tdlib.Client;
 import org.drinkless.tdlib.TdApi;
 import org.thunderdog.challegram.Log;
 import org.thunderdog.challegram.U;
+import org.thunderdog.challegram.config.Config;
 import org.thunderdog.challegram.core.Media;
 import org.thunderdog.challegram.data.TD;
 import org.thunderdog.challegram.telegram.TGLegacyManager;
@@ -76,6 +77,7 @@ public class Emoji {
   }
 
   private final HashMap<String, EmojiInfo> rects;
+  private final EmojiTrie trie;
   private final ReferenceList<EmojiChangeListener> emojiChangeListeners = new ReferenceList<>();
 
   private final CountLimiter singleLimiter = newSingleLimiter();
@@ -143,6 +145,20 @@ public class Emoji {
         rects.put(EmojiData.data[sectionIndex][emojiIndex], new EmojiInfo(sectionIndex, page, position));
       }
     }
+
+    EmojiTrie.Builder trie = new EmojiTrie.Builder();
+    for (String[] section : EmojiData.data) {
+      for (String code : section) {
+        trie.add(code, code, rects.get(code));
+      }
+    }
+    for (Map.Entry<String, String> alias : EmojiData.instance().getEmojiAliases().entrySet()) {
+      EmojiInfo info = rects.get(alias.getValue());
+      if (info != null) {
+        trie.add(alias.getKey(), alias.getValue(), info);
+      }
+    }
+    this.trie = trie.build();
   }
 
   public void changeEmojiPack (Settings.EmojiPack emojiPack) {
@@ -636,9 +652,19 @@ public class Emoji {
   }
 
   public EmojiInfo getEmojiInfo (CharSequence codeCs, boolean allowRetry) {
+    return getEmojiInfo(codeCs, allowRetry, Config.EMOJI_TRIE_ENABLED);
+  }
+
+  private EmojiInfo getEmojiInfo (CharSequence codeCs, boolean allowRetry, boolean useTrie) {
     if (StringUtils.isEmpty(codeCs)) {
       return null;
     }
+    if (useTrie) {
+      EmojiInfo info = trie.find(codeCs, 0, codeCs.length());
+      if (info != null) {
+        return info;
+      }
+    }
     String code = codeCs.toString();
     EmojiInfo info = rects.get(code);
     if (info == null) {
@@ -651,10 +677,10 @@ public class Emoji {
     if (info == null && allowRetry) {
       char lastChar = code.charAt(code.length() - 1);
       if (lastChar == '\u200D' || lastChar == '\uFE0F') {
-        return getEmojiInfo(code.subSequence(0, code.length() - 1), true);
+        return getEmojiInfo(code.subSequence(0, code.length() - 1), true, useTrie);
       }
       if (code.length() == 3 && code.charAt(1) == '\uFE0F') {
-        return getEmojiInfo(Character.toString(code.charAt(0)) + code.charAt(2));
+        return getEmojiInfo(Character.toString(code.charAt(0)) + code.charAt(2), true, useTrie);
       }
     }
     /*if (info == null) {
@@ -735,12 +761,22 @@ public class Emoji {
   }
 
   public CharSequence replaceEmoji (CharSequence cs, int start, int end, CountLimiter countLimiter, Callback callback) {
+    return replaceEmoji(cs, start, end, countLimiter, callback, Config.EMOJI_TRIE_ENABLED);
+  }
+
+  /**
+   * @param useTrie Whether {@link #trie} is used instead of the previous scanner, so both can be compared in tests and benchmarks
+   */
+  public CharSequence replaceEmoji (CharSequence cs, int start, int end, CountLimiter countLimiter, Callback callback, boolean useTrie) {
     if (Settings.instance().useSystemEmoji() || StringUtils.isEmpty(cs)) {
       return cs;
     }
     if (start == end) {
       return "";
     }
+    if (useTrie) {
+      return replaceEmojiImpl(cs, start, end, countLimiter, callback);
+    }
 
     Spannable spannable = callback != null ? null : start == 0 && end == cs.length() && cs instanceof Spannable ? (Spannable) cs : null;
     long buf = 0;
@@ -802,7 +838,7 @@ public class Emoji {
           if (emojiCode.length() > 0) {
             // SAME CODE BEGIN
             final String code = emojiCode.toString();
-            final EmojiInfo info = getEmojiInfo(code, false);
+            final EmojiInfo info = getEmojiInfo(code, false, false);
             if (info != null) {
               if (callback != null) {
                 callback.onEmojiFound(cs, code, info, startIndex, startLength);
@@ -833,7 +869,7 @@ public class Emoji {
                 EmojiInfo componentInfo = null;
                 while (componentLength > 0 && componentInfo == null) {
                   String componentCode = code.substring(componentStartIndex, componentStartIndex + componentLength);
-                  componentInfo = getEmojiInfo(componentCode, false);
+                  componentInfo = getEmojiInfo(componentCode, false, false);
                   if (componentInfo == null) {
                     componentLength--;
                     continue;
@@ -942,7 +978,7 @@ public class Emoji {
         if (doneEmoji) {
           // SAME CODE BEGIN
           final String code = emojiCode.toString();
-          final EmojiInfo info = getEmojiInfo(code, false);
+          final EmojiInfo info = getEmojiInfo(code, false, false);
           if (info != null) {
             if (callback != null) {
               callback.onEmojiFound(cs, code, info, startIndex, startLength);
@@ -973,7 +1009,7 @@ public class Emoji {
               EmojiInfo componentInfo = null;
               while (componentLength > 0 && componentInfo == null) {
                 String componentCode = code.substring(componentStartIndex, componentStartIndex + componentLength);
-                componentInfo = getEmojiInfo(componentCode, false);
+                componentInfo = getEmojiInfo(componentCode, false, false);
                 if (componentInfo == null) {
                   componentLength--;
                   continue;
@@ -1030,6 +1066,50 @@ public class Emoji {
     return spannable != null ? spannable : cs;
   }
 
+  /**
+   * Single pass over the text: at each position the longest known emoji is matched against {@link #trie},
+   * so unknown ZWJ sequences and tones naturally fall apart into their known components.
+   */
+  private CharSequence replaceEmojiImpl (CharSequence cs, int start, int end, CountLimiter countLimiter, Callback callback) {
+    Spannable spannable = callback != null ? null : start == 0 && end == cs.length() && cs instanceof Spannable ? (Spannable) cs : null;
+    int emojiCount = countLimiter != null ? countLimiter.getEmojiCount() : 0;
+    try {
+      for (int i = start; i < end; ) {
+        if (!trie.mayStartWith(cs.charAt(i))) {
+          i++;
+          continue;
+        }
+        final long match = trie.match(cs, i, end);
+        if (match == -1) {
+          i++;
+          continue;
+        }
+        final int length = EmojiTrie.lengthOf(match);
+        final int value = EmojiTrie.valueOf(match);
+        final EmojiInfo info = trie.infoAt(value);
+        if (callback != null) {
+          callback.onEmojiFound(cs, trie.codeAt(value), info, i, length);
+        } else {
+          EmojiSpan span = EmojiSpanImpl.newSpan(info);
+          if (spannable == null) {
+            spannable = Spannable.Factory.getInstance().newSpannable(start == 0 && end == cs.length() ? cs : cs.subSequence(start, end));
+          }
+          spannable.setSpan(span, i - start, i + length - start, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        i += length;
+        emojiCount++;
+        if ((countLimiter != null && !countLimiter.incrementEmojiCount()) || (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP && emojiCount >= 1000)) {
+          break;
+        }
+      }
+    } catch (Text.LimitReachedException e) {
+      throw e;
+    } catch (Throwable t) {
+      Log.e("Cannot replace emoji, text:\n%s", t, start != 0 || end != cs.length() ? cs.subSequence(start, end) : cs);
+    }
+    return spannable != null ? spannable : cs;
+  }
+
   public boolean draw (@NonNull Canvas c, EmojiInfo info, Rect outRect, int alpha) {
     if (alpha == 0)
       return false;
@@ -0,0 +1,227 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.emoji;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable code point trie over all known emoji codes.
+ *
+ * Nodes are stored in flat arrays: edges of each node are sorted by code point and looked up with a binary search,
+ * so matching never allocates. Variation selectors (U+FE00..U+FE0F) are not part of stored codes:
+ * they are skipped in the input and become part of the matched range.
+ */
+final class EmojiTrie {
+  private static final int NO_VALUE = -1;
+
+  // Per node
+  private final int[] edgeStart, edgeCount, nodeValue;
+
+  // Per edge, grouped by parent node and sorted by code point within a group
+  private final int[] edgeCodePoint, edgeTarget;
+
+  // Per value
+  private final String[] codes;
+  private final EmojiInfo[] infos;
+
+  // Bit set of UTF-16 units that may start an emoji, used to reject most of the text without touching the trie
+  private final long[] startChars = new long[(Character.MAX_VALUE + 1) / 64];
+
+  private EmojiTrie (BuilderNode root, ArrayList<String> codes, ArrayList<EmojiInfo> infos) {
+    this.codes = codes.toArray(new String[0]);
+    this.infos = infos.toArray(new EmojiInfo[0]);
+
+    // Breadth-first numbering, so edges of each node occupy a continuous range
+    ArrayList<BuilderNode> nodes = new ArrayList<>();
+    nodes.add(root);
+    int edgeTotal = 0;
+    for (int i = 0; i < nodes.size(); i++) {
+      BuilderNode node = nodes.get(i);
+      node.index = i;
+      nodes.addAll(node.children.values());
+      edgeTotal += node.children.size();
+    }
+    this.edgeStart = new int[nodes.size()];
+    this.edgeCount = new int[nodes.size()];
+    this.nodeValue = new int[nodes.size()];
+    this.edgeCodePoint = new int[edgeTotal];
+    this.edgeTarget = new int[edgeTotal];
+    int edgeIndex = 0;
+    for (BuilderNode node : nodes) {
+      edgeStart[node.index] = edgeIndex;
+      edgeCount[node.index] = node.children.size();
+      nodeValue[node.index] = node.value;
+      for (Map.Entry<Integer, BuilderNode> child : node.children.entrySet()) {
+        edgeCodePoint[edgeIndex] = child.getKey();
+        edgeTarget[edgeIndex] = child.getValue().index;
+        edgeIndex++;
+      }
+    }
+    for (int codePoint : root.children.keySet()) {
+      char firstChar = Character.isSupplementaryCodePoint(codePoint) ? Character.highSurrogate(codePoint) : (char) codePoint;
+      startChars[firstChar >>> 6] |= 1L << (firstChar & 63);
+    }
+  }
+
+  private static boolean isVariationSelector (int c) {
+    return c >= 0xFE00 && c <= 0xFE0F;
+  }
+
+  private int child (int node, int codePoint) {
+    int low = edgeStart[node];
+    int high = low + edgeCount[node] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int midCodePoint = edgeCodePoint[mid];
+      if (midCodePoint < codePoint) {
+        low = mid + 1;
+      } else if (midCodePoint > codePoint) {
+        high = mid - 1;
+      } else {
+        return edgeTarget[mid];
+      }
+    }
+    return -1;
+  }
+
+  public boolean mayStartWith (char c) {
+    return (startChars[c >>> 6] & (1L << (c & 63))) != 0;
+  }
+
+  /**
+   * Finds the longest emoji that starts exactly at {@code start}.
+   * Variation selectors right after the emoji are included in the match.
+   *
+   * @return {@link #valueOf(long)} and {@link #lengthOf(long)} packed into one value, or -1, if there is no emoji at {@code start}
+   */
+  public long match (@NonNull CharSequence cs, int start, int end) {
+    if (start >= end || !mayStartWith(cs.charAt(start))) {
+      return -1;
+    }
+    int node = 0;
+    int matchValue = NO_VALUE;
+    int matchEnd = start;
+    int i = start;
+    while (i < end) {
+      int codePoint = Character.codePointAt(cs, i);
+      int charCount = Character.charCount(codePoint);
+      if (isVariationSelector(codePoint)) {
+        if (node == 0) {
+          break;
+        }
+        i += charCount;
+        if (matchValue != NO_VALUE && matchEnd == i - charCount) {
+          matchEnd = i;
+        }
+        continue;
+      }
+      int next = child(node, codePoint);
+      if (next == -1) {
+        break;
+      }
+      node = next;
+      i += charCount;
+      if (nodeValue[node] != NO_VALUE) {
+        matchValue = nodeValue[node];
+        matchEnd = i;
+      }
+    }
+    if (matchValue == NO_VALUE) {
+      return -1;
+    }
+    return ((long) matchValue << 32) | (matchEnd - start);
+  }
+
+  /**
+   * @return info of the emoji, if the whole range is exactly one known emoji, ignoring variation selectors
+   */
+  @Nullable
+  public EmojiInfo find (@NonNull CharSequence cs, int start, int end) {
+    long match = match(cs, start, end);
+    return match != -1 && lengthOf(match) == end - start ? infos[valueOf(match)] : null;
+  }
+
+  public static int valueOf (long match) {
+    return (int) (match >>> 32);
+  }
+
+  public static int lengthOf (long match) {
+    return (int) match;
+  }
+
+  public String codeAt (int value) {
+    return codes[value];
+  }
+
+  public EmojiInfo infoAt (int value) {
+    return infos[value];
+  }
+
+  public int size () {
+    return codes.length;
+  }
+
+  // Builder
+
+  private static final class BuilderNode {
+    final TreeMap<Integer, BuilderNode> children = new TreeMap<>();
+    int value = NO_VALUE;
+    int index;
+  }
+
+  static final class Builder {
+    private final BuilderNode root = new BuilderNode();
+    private final ArrayList<String> codes = new ArrayList<>();
+    private final ArrayList<EmojiInfo> infos = new ArrayList<>();
+
+    /**
+     * Adds emoji code. When the same code (ignoring variation selectors) is added twice, the first one wins.
+     *
+     * @param code code to be matched in the text
+     * @param canonicalCode code reported for the match, e.g. the new code of a legacy alias
+     */
+    Builder add (@NonNull String code, @NonNull String canonicalCode, @NonNull EmojiInfo info) {
+      BuilderNode node = root;
+      for (int i = 0; i < code.length(); ) {
+        int codePoint = code.codePointAt(i);
+        i += Character.charCount(codePoint);
+        if (isVariationSelector(codePoint)) {
+          continue;
+        }
+        BuilderNode next = node.children.get(codePoint);
+        if (next == null) {
+          next = new BuilderNode();
+          node.children.put(codePoint, next);
+        }
+        node = next;
+      }
+      if (node != root && node.value == NO_VALUE) {
+        node.value = codes.size();
+        codes.add(canonicalCode);
+        infos.add(info);
+      }
+      return this;
+    }
+
+    EmojiTrie build () {
+      return new EmojiTrie(root, codes, infos);
+    }
+  }
+}
@@ -0,0 +1,250 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.loader;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.thunderdog.challegram.Log;
+import org.thunderdog.challegram.U;
+import org.thunderdog.challegram.config.Config;
+import org.thunderdog.challegram.tool.UI;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+import me.vkryl.core.unit.ByteUnit;
+
+/**
+ * Pool of mutable bitmaps, bucketed by config and allocation size.
+ *
+ * Bitmaps get here only when nothing can draw them anymore:
+ * from {@link ImageCache} once the last reference is gone, or from their exclusive owners.
+ * Decoders take them back via {@link BitmapFactory.Options#inBitmap} or {@link Bitmap#reconfigure}.
+ */
+public class BitmapPool {
+  private static BitmapPool instance;
+
+  public static BitmapPool instance () {
+    if (instance == null) {
+      synchronized (BitmapPool.class) {
+        if (instance == null) {
+          instance = new BitmapPool();
+        }
+      }
+    }
+    return instance;
+  }
+
+  // Do not reuse bitmaps larger than twice the requested size
+  private static final int MAX_SIZE_MULTIPLIER = 2;
+
+  private final TreeMap<Integer, ArrayDeque<Bitmap>> argb8888 = new TreeMap<>();
+  private final TreeMap<Integer, ArrayDeque<Bitmap>> rgb565 = new TreeMap<>();
+  private final ArrayDeque<Bitmap> order = new ArrayDeque<>();
+
+  private final boolean isEnabled;
+  private final long maxSize;
+  private long size;
+
+  private long hitCount, missCount, putCount, evictionCount;
+
+  private BitmapPool () {
+    this.isEnabled = Config.BITMAP_POOL_ENABLED && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && !Config.PIN_BITMAP_ENABLED;
+    this.maxSize = isEnabled ? getMaxPoolSize() : 0;
+  }
+
+  private static long getMaxPoolSize () {
+    int mib = Math.min(16, ((ActivityManager) UI.getAppContext().getSystemService(Context.ACTIVITY_SERVICE)).getMemoryClass() / 8);
+    return ByteUnit.MIB.toBytes(Math.max(mib, 2));
+  }
+
+  public boolean isEnabled () {
+    return isEnabled;
+  }
+
+  private @Nullable TreeMap<Integer, ArrayDeque<Bitmap>> bucketsFor (Bitmap.Config config) {
+    if (config == Bitmap.Config.ARGB_8888) {
+      return argb8888;
+    } else if (config == Bitmap.Config.RGB_565) {
+      return rgb565;
+    }
+    return null;
+  }
+
+  private static int bytesPerPixel (Bitmap.Config config) {
+    return config == Bitmap.Config.RGB_565 ? 2 : 4;
+  }
+
+  /**
+   * Puts bitmap to the pool, or recycles it, if it cannot be reused.
+   *
+   * Caller must guarantee that bitmap is no longer drawn anywhere.
+   */
+  public void recycle (@Nullable Bitmap bitmap) {
+    if (bitmap == null || bitmap.isRecycled()) {
+      return;
+    }
+    TreeMap<Integer, ArrayDeque<Bitmap>> buckets = isEnabled && bitmap.isMutable() ? bucketsFor(bitmap.getConfig()) : null;
+    final int byteCount = buckets != null ? bitmap.getAllocationByteCount() : 0;
+    if (buckets == null || byteCount > maxSize / 4) {
+      U.recycle(bitmap);
+      return;
+    }
+    synchronized (this) {
+      ArrayDeque<Bitmap> bucket = buckets.get(byteCount);
+      if (bucket == null) {
+        buckets.put(byteCount, bucket = new ArrayDeque<>());
+      } else if (bucket.contains(bitmap)) {
+        return;
+      }
+      bucket.offer(bitmap);
+      order.offer(bitmap);
+      size += byteCount;
+      putCount++;
+      trimToSize(maxSize);
+    }
+  }
+
+  /**
+   * @return pooled bitmap reconfigured to the requested size and config, or null
+   */
+  @Nullable
+  public Bitmap get (int width, int height, @NonNull Bitmap.Config config) {
+    if (!isEnabled || width <= 0 || height <= 0) {
+      return null;
+    }
+    TreeMap<Integer, ArrayDeque<Bitmap>> buckets = bucketsFor(config);
+    if (buckets == null) {
+      return null;
+    }
+    final int requiredSize = width * height * bytesPerPixel(config);
+    Bitmap bitmap = null;
+    synchronized (this) {
+      Map.Entry<Integer, ArrayDeque<Bitmap>> entry = buckets.ceilingEntry(requiredSize);
+      if (entry != null && entry.getKey() <= requiredSize * MAX_SIZE_MULTIPLIER) {
+        bitmap = removeFromBucket(buckets, entry.getKey(), entry.getValue());
+        order.remove(bitmap);
+        hitCount++;
+      } else {
+        missCount++;
+      }
+    }
+    if (bitmap != null) {
+      try {
+        if (bitmap.getWidth() != width || bitmap.getHeight() != height || bitmap.getConfig() != config) {
+          bitmap.reconfigure(width, height, config);
+        }
+      } catch (Throwable t) {
+        Log.w(Log.TAG_IMAGE_LOADER, "Cannot reconfigure pooled bitmap", t);
+        U.recycle(bitmap);
+        bitmap = null;
+      }
+    }
+    return bitmap;
+  }
+
+  /**
+   * @return cleared bitmap of the requested size, taken from the pool if possible
+   */
+  @NonNull
+  public Bitmap obtain (int width, int height, @NonNull Bitmap.Config config) {
+    Bitmap bitmap = get(width, height, config);
+    if (bitmap != null) {
+      bitmap.eraseColor(0);
+      return bitmap;
+    }
+    return Bitmap.createBitmap(width, height, config);
+  }
+
+  /**
+   * Prepares {@code opts} to decode into a pooled bitmap.
+   * Must be called after decoding bounds with the final {@link BitmapFactory.Options#inSampleSize}.
+   */
+  public void prepareDecode (BitmapFactory.Options opts) {
+    if (!isEnabled || opts.outWidth <= 0 || opts.outHeight <= 0 || opts.inPreferredConfig == null) {
+      return;
+    }
+    final int sampleSize = Math.max(1, opts.inSampleSize);
+    final int width = (opts.outWidth + sampleSize - 1) / sampleSize;
+    final int height = (opts.outHeight + sampleSize - 1) / sampleSize;
+    opts.inMutable = true;
+    opts.inBitmap = get(width, height, opts.inPreferredConfig);
+  }
+
+  private Bitmap removeFromBucket (TreeMap<Integer, ArrayDeque<Bitmap>> buckets, int key, ArrayDeque<Bitmap> bucket) {
+    Bitmap bitmap = bucket.poll();
+    if (bucket.isEmpty()) {
+      buckets.remove(key);
+    }
+    size -= key;
+    return bitmap;
+  }
+
+  private void trimToSize (long maxSize) {
+    while (size > maxSize && !order.isEmpty()) {
+      Bitmap bitmap = order.poll();
+      TreeMap<Integer, ArrayDeque<Bitmap>> buckets = bucketsFor(bitmap.getConfig());
+      final int byteCount = bitmap.getAllocationByteCount();
+      ArrayDeque<Bitmap> bucket = buckets != null ? buckets.get(byteCount) : null;
+      if (bucket != null && bucket.remove(bitmap)) {
+        if (bucket.isEmpty()) {
+          buckets.remove(byteCount);
+        }
+        size -= byteCount;
+      }
+      evictionCount++;
+      U.recycle(bitmap);
+    }
+  }
+
+  public void clear () {
+    synchronized (this) {
+      trimToSize(0);
+      argb8888.clear();
+      rgb565.clear();
+      order.clear();
+      size = 0;
+    }
+  }
+
+  // Stats
+
+  public synchronized long getBytesHeld () {
+    return size;
+  }
+
+  public synchronized int getBitmapCount () {
+    return order.size();
+  }
+
+  public synchronized float getHitRate () {
+    long total = hitCount + missCount;
+    return total > 0 ? (float) hitCount / (float) total : 0f;
+  }
+
+  @Override
+  @NonNull
+  public synchronized String toString () {
+    return "BitmapPool { size = " + size + "/" + maxSize + ", bitmaps = " + order.size() + ", hits = " + hitCount + ", misses = " + missCount + ", puts = " + putCount + ", evictions = " + evictionCount + " }";
+  }
+}
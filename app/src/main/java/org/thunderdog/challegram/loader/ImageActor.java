@@ -33,6 +33,8 @@ public class ImageActor implements ImageReader.Listener, AudioController.ApicLis
   private ImageFile file;
 
   private volatile boolean isCancelled;
+  private volatile @ImageReaderPool.Priority int priority = ImageReaderPool.PRIORITY_VISIBLE;
+  private ImageReaderPool.Task pendingTask;
 
   public ImageActor (ImageFile file) {
     this.file = file;
@@ -40,6 +42,7 @@ public class ImageActor implements ImageReader.Listener, AudioController.ApicLis
 
   public void cancel () {
     this.isCancelled = true;
+    ImageReader.instance().cancel(this);
     if (cancellationSignal != null)
       cancellationSignal.cancel();
     if (file instanceof ImageApicFile) {
@@ -52,6 +55,33 @@ public class ImageActor implements ImageReader.Listener, AudioController.ApicLis
     return isCancelled;
   }
 
+  public @ImageReaderPool.Priority int getPriority () {
+    return priority;
+  }
+
+  public void setPriority (@ImageReaderPool.Priority int priority) {
+    if (this.priority != priority) {
+      this.priority = priority;
+      ImageReader.instance().reorder(this);
+    }
+  }
+
+  synchronized ImageReaderPool.Task getPendingTask () {
+    return pendingTask;
+  }
+
+  synchronized ImageReaderPool.Task setPendingTask (ImageReaderPool.Task task) {
+    ImageReaderPool.Task oldTask = this.pendingTask;
+    this.pendingTask = task;
+    return oldTask;
+  }
+
+  synchronized void clearPendingTask (ImageReaderPool.Task task) {
+    if (this.pendingTask == task) {
+      this.pendingTask = null;
+    }
+  }
+
   private CancellationSignal cancellationSignal;
 
   public CancellationSignal getCancellationSignal () {
@@ -29,6 +29,7 @@ import org.thunderdog.challegram.tool.UI;
 
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -51,6 +52,7 @@ public class ImageCache {
   private final HashMap<String, AtomicInteger> counters;
   private final HashMap<String, Integer> rotations;
   private final HashMap<String, WeakReference<Bitmap>> references;
+  private final HashSet<String> poolableKeys;
   private class BitmapLruCache extends LruCache<String, Bitmap> {
     public BitmapLruCache (int maxSize) {
       super(maxSize);
@@ -71,11 +73,13 @@ public class ImageCache {
 
     @Override
     protected void entryRemoved (boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
-      if (!counters.containsKey(key)) {
-        if (Log.isEnabled(Log.TAG_IMAGE_LOADER)) {
-          Log.v(Log.TAG_IMAGE_LOADER, "#%s: recycling bitmap in entryRemoved", key);
+      synchronized (counters) {
+        if (!counters.containsKey(key)) {
+          if (Log.isEnabled(Log.TAG_IMAGE_LOADER)) {
+            Log.v(Log.TAG_IMAGE_LOADER, "#%s: recycling bitmap in entryRemoved", key);
+          }
+          recycleBitmap(key, oldValue);
         }
-        U.recycle(oldValue);
       }
     }
   }
@@ -89,6 +93,7 @@ public class ImageCache {
     rotations = new HashMap<>();
     memcache = new BitmapLruCache(getMemcacheSize());
     references = new HashMap<>();
+    poolableKeys = new HashSet<>();
   }
 
   private boolean hasInMemcache (String key) {
@@ -144,14 +149,14 @@ public class ImageCache {
           }
           if (result == 0) {
             counters.remove(key);
+            if (ALLOW_REFERENCES) {
+              references.remove(key);
+            }
             if (!hasInMemcache(key)) {
               if (Log.isEnabled(Log.TAG_IMAGE_LOADER)) {
                 Log.v(Log.TAG_IMAGE_LOADER, "#%s: recycling bitmap in removeReference", key);
               }
-              U.recycle(bitmap);
-            }
-            if (ALLOW_REFERENCES) {
-              references.remove(key);
+              recycleBitmap(key, bitmap);
             }
           }
         }
@@ -163,12 +168,36 @@ public class ImageCache {
     }
   }
 
+  // Must be called with counters lock held
+  private void recycleBitmap (String key, Bitmap bitmap) {
+    if (poolableKeys.remove(key)) {
+      if (ALLOW_REFERENCES) {
+        WeakReference<Bitmap> reference = references.get(key);
+        if (reference != null && reference.get() == bitmap) {
+          references.remove(key);
+        }
+      }
+      // Nobody draws this bitmap anymore, so it can be decoded into
+      BitmapPool.instance().recycle(bitmap);
+    } else {
+      U.recycle(bitmap);
+    }
+  }
+
   private static String getBitmapInfo (@Nullable Bitmap bitmap) {
     return bitmap != null ? (bitmap.isRecycled() ? "recycled" : bitmap.getWidth() + "x" + bitmap.getHeight()) : "null";
   }
 
   public void putBitmap (ImageFile file, Bitmap bitmap) {
     final String key = file.toString();
+    synchronized (counters) {
+      // Bitmaps of files without reference counting may still be drawn after eviction
+      if (file.needReferences()) {
+        poolableKeys.add(key);
+      } else {
+        poolableKeys.remove(key);
+      }
+    }
     memcache.put(key, bitmap);
     if (file.getRotation() != 0) {
       rotations.put(key, file.getRotation());
@@ -206,7 +235,7 @@ public class ImageCache {
   @Override
   @NonNull
   public String toString () {
-    return "ImageCache { counters = " + counters.size() + ", memcache = " + memcache.size() + " }";
+    return "ImageCache { counters = " + counters.size() + ", memcache = " + memcache.size() + ", pool = " + BitmapPool.instance() + " }";
   }
 
   public void clear (boolean withMemcache) {
@@ -217,6 +246,7 @@ public class ImageCache {
     }
     if (withMemcache) {
       memcache.evictAll();
+      BitmapPool.instance().clear();
     }
   }
 
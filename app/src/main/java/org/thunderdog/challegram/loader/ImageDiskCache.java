@@ -0,0 +1,344 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.loader;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.Nullable;
+
+import org.thunderdog.challegram.Log;
+import org.thunderdog.challegram.N;
+import org.thunderdog.challegram.U;
+import org.thunderdog.challegram.config.Config;
+import org.thunderdog.challegram.core.BaseThread;
+import org.thunderdog.challegram.data.TD;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import me.vkryl.core.FileUtils;
+import me.vkryl.core.StringUtils;
+import me.vkryl.core.unit.ByteUnit;
+
+/**
+ * Persistent second-level cache behind {@link ImageCache}.
+ *
+ * Stores already downsampled pixels of small images, so they can be uploaded
+ * to a {@link Bitmap} straight from a memory-mapped file, without decoding JPEG/WebP again.
+ * Each entry remembers length and modification time of the source file and is ignored once they change.
+ */
+public class ImageDiskCache {
+  private static ImageDiskCache instance;
+
+  public static ImageDiskCache instance () {
+    if (instance == null) {
+      synchronized (ImageDiskCache.class) {
+        if (instance == null) {
+          instance = new ImageDiskCache();
+        }
+      }
+    }
+    return instance;
+  }
+
+  private static final int MAGIC = 0x54475850; // TGXP
+  private static final int VERSION = 1;
+
+  private static final int MAX_IMAGE_SIZE = 512;
+  private static final long MAX_CACHE_SIZE = ByteUnit.MIB.toBytes(64);
+
+  private static final int CONFIG_ARGB_8888 = 1;
+  private static final int CONFIG_RGB_565 = 2;
+
+  private final BaseThread thread = new BaseThread("ImageDiskCacheThread");
+  private final File cacheDir;
+
+  // Accessed only on ImageDiskCache thread
+  private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(64, .75f, true);
+  private boolean indexLoaded;
+  private long totalSize;
+
+  private ImageDiskCache () {
+    this.cacheDir = new File(TD.getCacheDir(false), "pixels");
+  }
+
+  public static File getCacheDir () {
+    return instance().cacheDir;
+  }
+
+  private static boolean isSupported (ImageFile file) {
+    final int size = file.getSize();
+    return Config.IMAGE_DISK_CACHE_ENABLED &&
+      size > 0 && size <= MAX_IMAGE_SIZE &&
+      file.shouldBeCached() &&
+      !file.isPrivate() &&
+      !file.isContentUri() &&
+      file.getBytes() == null &&
+      (file.getClass() == ImageFile.class || file instanceof ImageFileRemote);
+  }
+
+  private static String getEntryName (ImageFile file) {
+    return U.md5(file.toString());
+  }
+
+  private static File getAccountDir (File cacheDir, int accountId) {
+    return new File(cacheDir, Integer.toString(accountId));
+  }
+
+  @Nullable
+  public Bitmap get (ImageFile file, String path) {
+    if (!isSupported(file) || StringUtils.isEmpty(path)) {
+      return null;
+    }
+    final String key = file.toString();
+    final String entryName = getEntryName(file);
+    final File entryFile = new File(getAccountDir(cacheDir, file.accountId()), entryName);
+    final File sourceFile = new File(path);
+
+    Bitmap bitmap = null;
+    boolean isBroken = false;
+    try (RandomAccessFile f = new RandomAccessFile(entryFile, "r")) {
+      FileChannel channel = f.getChannel();
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        isBroken = true;
+      } else {
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        int config = buffer.getInt();
+        int rotation = buffer.getInt();
+        long sourceLength = buffer.getLong();
+        long sourceModified = buffer.getLong();
+        byte[] keyBytes = new byte[buffer.getInt()];
+        buffer.get(keyBytes);
+        if (sourceLength != sourceFile.length() || sourceModified != sourceFile.lastModified() || !key.equals(new String(keyBytes, StringUtils.UTF_8))) {
+          isBroken = true;
+        } else {
+          Bitmap.Config bitmapConfig = config == CONFIG_RGB_565 ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+          bitmap = BitmapPool.instance().get(width, height, bitmapConfig);
+          if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(width, height, bitmapConfig);
+          }
+          bitmap.copyPixelsFromBuffer(buffer);
+          if (rotation != 0) {
+            file.setRotation(rotation);
+          }
+          if (Config.PIN_BITMAP_ENABLED) {
+            N.pinBitmapIfNeeded(bitmap);
+          }
+        }
+      }
+    } catch (FileNotFoundException ignored) {
+      return null;
+    } catch (Throwable t) {
+      Log.w(Log.TAG_IMAGE_LOADER, "#%s: Cannot read cached pixels", t, key);
+      BitmapPool.instance().recycle(bitmap);
+      bitmap = null;
+      isBroken = true;
+    }
+
+    final int accountId = file.accountId();
+    if (isBroken) {
+      thread.post(() -> remove(accountId, entryName), 0);
+    } else if (bitmap != null) {
+      thread.post(() -> touch(accountId, entryName, entryFile), 0);
+      if (Log.isEnabled(Log.TAG_IMAGE_LOADER)) {
+        Log.v(Log.TAG_IMAGE_LOADER, "#%s: loaded from disk cache, width: %d height: %d", key, bitmap.getWidth(), bitmap.getHeight());
+      }
+    }
+    return bitmap;
+  }
+
+  public void put (ImageFile file, String path, Bitmap bitmap) {
+    if (!isSupported(file) || StringUtils.isEmpty(path) || !U.isValidBitmap(bitmap)) {
+      return;
+    }
+    final int config;
+    if (bitmap.getConfig() == Bitmap.Config.ARGB_8888) {
+      config = CONFIG_ARGB_8888;
+    } else if (bitmap.getConfig() == Bitmap.Config.RGB_565) {
+      config = CONFIG_RGB_565;
+    } else {
+      return;
+    }
+    final int width = bitmap.getWidth();
+    final int height = bitmap.getHeight();
+    final int byteCount = bitmap.getRowBytes() * height;
+    final byte[] pixels;
+    try {
+      pixels = new byte[byteCount];
+      bitmap.copyPixelsToBuffer(ByteBuffer.wrap(pixels));
+    } catch (Throwable t) {
+      Log.w(Log.TAG_IMAGE_LOADER, "#%s: Cannot copy pixels for disk cache", t, file.toString());
+      return;
+    }
+    final String key = file.toString();
+    final int accountId = file.accountId();
+    final int rotation = file.getRotation();
+    final String entryName = getEntryName(file);
+    thread.post(() -> {
+      File sourceFile = new File(path);
+      if (!sourceFile.exists()) {
+        return;
+      }
+      byte[] keyBytes = key.getBytes(StringUtils.UTF_8);
+      ByteBuffer header = ByteBuffer.allocate(4 * 6 + 8 * 2 + 4 + keyBytes.length);
+      header.putInt(MAGIC);
+      header.putInt(VERSION);
+      header.putInt(width);
+      header.putInt(height);
+      header.putInt(config);
+      header.putInt(rotation);
+      header.putLong(sourceFile.length());
+      header.putLong(sourceFile.lastModified());
+      header.putInt(keyBytes.length);
+      header.put(keyBytes);
+      header.flip();
+
+      File accountDir = getAccountDir(cacheDir, accountId);
+      if (!FileUtils.createDirectory(accountDir)) {
+        return;
+      }
+      File entryFile = new File(accountDir, entryName);
+      File tempFile = new File(accountDir, entryName + ".tmp");
+      boolean success = false;
+      try (RandomAccessFile f = new RandomAccessFile(tempFile, "rw")) {
+        FileChannel channel = f.getChannel();
+        channel.truncate(0);
+        channel.write(header);
+        channel.write(ByteBuffer.wrap(pixels));
+        success = true;
+      } catch (Throwable t) {
+        Log.w(Log.TAG_IMAGE_LOADER, "#%s: Cannot write pixels to disk cache", t, key);
+      }
+      if (success && tempFile.renameTo(entryFile)) {
+        onEntryAdded(accountId, entryName, entryFile.length());
+      } else {
+        tempFile.delete();
+      }
+    }, 0);
+  }
+
+  public void clearForAccount (int accountId) {
+    thread.post(() -> {
+      ensureIndexLoaded();
+      String prefix = accountId + "/";
+      Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<String, Long> entry = it.next();
+        if (entry.getKey().startsWith(prefix)) {
+          totalSize -= entry.getValue();
+          it.remove();
+        }
+      }
+      FileUtils.delete(getAccountDir(cacheDir, accountId), true);
+    }, 0);
+  }
+
+  public void clear () {
+    thread.post(() -> {
+      index.clear();
+      totalSize = 0;
+      FileUtils.delete(cacheDir, true);
+    }, 0);
+  }
+
+  // Index, ImageDiskCache thread only
+
+  private void ensureIndexLoaded () {
+    if (indexLoaded) {
+      return;
+    }
+    indexLoaded = true;
+    File[] accountDirs = cacheDir.listFiles();
+    if (accountDirs == null) {
+      return;
+    }
+    List<File> files = new ArrayList<>();
+    for (File accountDir : accountDirs) {
+      File[] entries = accountDir.listFiles();
+      if (entries != null) {
+        files.addAll(Arrays.asList(entries));
+      }
+    }
+    final long[] lastModified = new long[files.size()];
+    for (int i = 0; i < lastModified.length; i++) {
+      lastModified[i] = files.get(i).lastModified();
+    }
+    Integer[] order = new Integer[files.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Long.compare(lastModified[a], lastModified[b]));
+    for (int i : order) {
+      File file = files.get(i);
+      if (file.getName().endsWith(".tmp")) {
+        file.delete();
+        continue;
+      }
+      long size = file.length();
+      index.put(file.getParentFile().getName() + "/" + file.getName(), size);
+      totalSize += size;
+    }
+  }
+
+  private void onEntryAdded (int accountId, String entryName, long size) {
+    ensureIndexLoaded();
+    Long prevSize = index.put(accountId + "/" + entryName, size);
+    if (prevSize != null) {
+      totalSize -= prevSize;
+    }
+    totalSize += size;
+    trimToSize(MAX_CACHE_SIZE);
+  }
+
+  private void touch (int accountId, String entryName, File entryFile) {
+    ensureIndexLoaded();
+    if (index.get(accountId + "/" + entryName) != null) {
+      entryFile.setLastModified(System.currentTimeMillis());
+    }
+  }
+
+  private void remove (int accountId, String entryName) {
+    ensureIndexLoaded();
+    Long size = index.remove(accountId + "/" + entryName);
+    if (size != null) {
+      totalSize -= size;
+    }
+    new File(getAccountDir(cacheDir, accountId), entryName).delete();
+  }
+
+  private void trimToSize (long maxSize) {
+    Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+    while (totalSize > maxSize && it.hasNext()) {
+      Map.Entry<String, Long> entry = it.next();
+      File file = new File(cacheDir, entry.getKey());
+      if (!file.exists() || file.delete()) {
+        totalSize -= entry.getValue();
+        it.remove();
+      }
+    }
+  }
+}
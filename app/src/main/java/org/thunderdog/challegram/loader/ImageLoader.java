@@ -72,8 +72,20 @@ public class ImageLoader {
   }
 
   public void requestFile (final ImageFile file, WatcherReference reference) {
+    requestFile(file, reference, ImageReaderPool.PRIORITY_VISIBLE);
+  }
+
+  /**
+   * Loads the image into memory cache before any receiver requests it.
+   * Decoding waits for images requested by receivers.
+   */
+  public void prefetchFile (final ImageFile file, WatcherReference reference) {
+    requestFile(file, reference, ImageReaderPool.PRIORITY_PREFETCH);
+  }
+
+  void requestFile (final ImageFile file, WatcherReference reference, @ImageReaderPool.Priority int priority) {
     if (Thread.currentThread() != thread) {
-      thread.request(file, reference);
+      thread.request(file, reference, priority);
       return;
     }
 
@@ -89,6 +101,7 @@ public class ImageLoader {
 
     if (record == null) {
       ImageActor actor = new ImageActor(file);
+      actor.setPriority(priority);
       record = new ImageWatchers(file, actor, reference);
       synchronized (watchers) {
         watchers.put(file.toString(), record);
@@ -147,6 +160,9 @@ public class ImageLoader {
         }
         record.addWatcher(reference);
       }
+      if (priority < record.getActor().getPriority()) {
+        record.getActor().setPriority(priority);
+      }
     }
   }
 
@@ -418,5 +434,13 @@ public class ImageLoader {
     } else {
       ImageCache.instance().clear(withMemcache);
     }
+    if (!withMemcache) {
+      // Storage cleanup requested by user: drop persisted pixels as well
+      if (accountId != TdlibAccount.NO_ID) {
+        ImageDiskCache.instance().clearForAccount(accountId);
+      } else {
+        ImageDiskCache.instance().clear();
+      }
+    }
   }
 }
@@ -47,6 +47,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
 import me.vkryl.core.StringUtils;
+import me.vkryl.core.util.LocalVar;
 
 public class ImageReader {
   private static ImageReader instance;
@@ -58,33 +59,42 @@ public class ImageReader {
     return instance;
   }
 
-  private static byte[] bytesThumb;
+  private static final LocalVar<byte[]> bytesThumb = new LocalVar<>();
 
-  private final ImageReaderThread imageThread, videoThread, memThread;
+  private final ImageReaderThread thread;
+  private final ImageReaderPool pool;
 
   private ImageReader () {
-    imageThread = new ImageReaderThread();
-    videoThread = new ImageReaderThread();
-    memThread = new ImageReaderThread();
+    thread = new ImageReaderThread();
+    pool = new ImageReaderPool();
   }
 
   public void post (Runnable r) {
-    imageThread.post(r, 0);
+    thread.post(r, 0);
   }
 
   public void postVideo (Runnable r) {
-    videoThread.post(r, 0);
+    thread.post(r, 0);
   }
 
-  @SuppressWarnings (value={"SpellCheckingInspection", "deprecation"})
   public void readImage (final ImageActor actor, final ImageFile file, final String path, final Listener listener) {
-    ImageReaderThread thread = file.getBytes() != null ? memThread : file instanceof ImageVideoThumbFile || file instanceof ImageMp3File || (file instanceof ImageGalleryFile && ((ImageGalleryFile) file).isVideo()) ? videoThread : imageThread;
-
-    if (Thread.currentThread() != thread) {
-      thread.readImage(actor, file, path, listener);
+    if (actor.isCancelled()) {
       return;
     }
+    final int kind = file.getBytes() != null ? ImageReaderPool.KIND_MEMORY : file instanceof ImageVideoThumbFile || file instanceof ImageMp3File || (file instanceof ImageGalleryFile && ((ImageGalleryFile) file).isVideo()) ? ImageReaderPool.KIND_VIDEO : ImageReaderPool.KIND_IMAGE;
+    pool.readImage(actor, file, path, listener, kind);
+  }
+
+  void cancel (ImageActor actor) {
+    pool.cancel(actor);
+  }
 
+  void reorder (ImageActor actor) {
+    pool.reorder(actor);
+  }
+
+  @SuppressWarnings (value={"SpellCheckingInspection", "deprecation"})
+  void readImageImpl (final ImageActor actor, final ImageFile file, final String path, final Listener listener) {
     if (actor.isCancelled()) {
       return;
     }
@@ -128,7 +138,13 @@ public class ImageReader {
       return;
     }
 
-    Bitmap bitmap = readImage(file, path);
+    Bitmap bitmap = ImageDiskCache.instance().get(file, path);
+    if (bitmap == null) {
+      bitmap = readImage(file, path);
+      if (bitmap != null) {
+        ImageDiskCache.instance().put(file, path, bitmap);
+      }
+    }
     listener.onImageLoaded(bitmap != null, bitmap);
   }
 
@@ -311,9 +327,10 @@ public class ImageReader {
             bitmap = null;
           } else {
             int len = (int) f.length();
-            byte[] data = bytesThumb != null && bytesThumb.length >= len ? bytesThumb : null;
-            if (data == null) {
-              bytesThumb = data = new byte[len];
+            byte[] data = bytesThumb.get();
+            if (data == null || data.length < len) {
+              data = new byte[len];
+              bytesThumb.set(data);
             }
             f.readFully(data, 0, len);
             bitmap = BitmapFactory.decodeByteArray(data, 0, len, opts);
@@ -353,8 +370,21 @@ public class ImageReader {
           }
 
           if (bitmap == null) {
+            BitmapPool.instance().prepareDecode(opts);
             try (FileInputStream is = new FileInputStream(cacheFile)) {
               bitmap = BitmapFactory.decodeStream(is, null, opts);
+            } catch (IllegalArgumentException e) {
+              if (opts.inBitmap == null) {
+                throw e;
+              }
+            }
+            if (bitmap == null && opts.inBitmap != null) {
+              // Pooled bitmap cannot be reused for this image
+              BitmapPool.instance().recycle(opts.inBitmap);
+              opts.inBitmap = null;
+              try (FileInputStream is = new FileInputStream(cacheFile)) {
+                bitmap = BitmapFactory.decodeStream(is, null, opts);
+              }
             }
           }
         }
@@ -430,8 +460,24 @@ public class ImageReader {
       opts.inSampleSize = 1;
     }
     opts.inPreferredConfig = Bitmap.Config.ARGB_8888;
+    if (maxSize != 0) {
+      BitmapPool.instance().prepareDecode(opts);
+    }
 
-    Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, opts);
+    Bitmap bitmap;
+    try {
+      bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, opts);
+    } catch (IllegalArgumentException e) {
+      if (opts.inBitmap == null) {
+        throw e;
+      }
+      bitmap = null;
+    }
+    if (bitmap == null && opts.inBitmap != null) {
+      BitmapPool.instance().recycle(opts.inBitmap);
+      opts.inBitmap = null;
+      bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, opts);
+    }
 
     if (bitmap != null) {
       if (maxSize > 0 && Math.max(bitmap.getWidth(), bitmap.getHeight()) > maxSize && scaleToFit) {
@@ -862,7 +908,7 @@ public class ImageReader {
       resized = Bitmap.createScaledBitmap(bitmap, scaledWidth, scaledHeight, true);
       if (resized != null) {
         if (allowRecycle && !bitmap.isRecycled()) {
-          bitmap.recycle();
+          BitmapPool.instance().recycle(bitmap);
         }
         if (pin) {
           N.pinBitmapIfNeeded(resized);
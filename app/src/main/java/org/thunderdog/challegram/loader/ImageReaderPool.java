@@ -0,0 +1,163 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.loader;
+
+import android.os.Process;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+
+import org.thunderdog.challegram.Log;
+import org.thunderdog.challegram.util.PerfTrace;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of decoder threads used by {@link ImageReader}.
+ *
+ * Tasks are ordered by priority, then by decode cost, then by recency,
+ * so images requested by visible receivers are decoded before prefetched ones,
+ * and the most recently requested image is decoded first when scrolling fast.
+ */
+final class ImageReaderPool {
+  @Retention(RetentionPolicy.SOURCE)
+  @IntDef({
+    PRIORITY_VISIBLE,
+    PRIORITY_PREFETCH
+  })
+  public @interface Priority { }
+
+  public static final int PRIORITY_VISIBLE = 0;
+  public static final int PRIORITY_PREFETCH = 1;
+
+  @Retention(RetentionPolicy.SOURCE)
+  @IntDef({
+    KIND_MEMORY,
+    KIND_IMAGE,
+    KIND_VIDEO
+  })
+  public @interface Kind { }
+
+  public static final int KIND_MEMORY = 0;
+  public static final int KIND_IMAGE = 1;
+  public static final int KIND_VIDEO = 2;
+
+  private static final int MIN_POOL_SIZE = 2;
+  private static final int MAX_POOL_SIZE = 4;
+
+  private final ThreadPoolExecutor executor;
+  private final AtomicLong sequence = new AtomicLong();
+
+  ImageReaderPool () {
+    final int poolSize = Math.max(MIN_POOL_SIZE, Math.min(MAX_POOL_SIZE, Runtime.getRuntime().availableProcessors() - 1));
+    final AtomicInteger threadCount = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(poolSize, poolSize, 30, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), r -> {
+      Thread thread = new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        r.run();
+      }, "ImageReaderThread#" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  public void readImage (ImageActor actor, ImageFile file, String path, ImageReader.Listener listener, @Kind int kind) {
+    Task task = new Task(actor, file, path, listener, kind, sequence.incrementAndGet());
+    actor.setPendingTask(task);
+    executor.execute(task);
+  }
+
+  /**
+   * Removes pending decode of the given actor, if it did not start yet.
+   */
+  public void cancel (ImageActor actor) {
+    Task task = actor.setPendingTask(null);
+    if (task != null && executor.remove(task)) {
+      if (Log.isEnabled(Log.TAG_IMAGE_LOADER)) {
+        Log.v(Log.TAG_IMAGE_LOADER, "#%s: removed pending decode, because actor has been cancelled", task.file.toString());
+      }
+    }
+  }
+
+  /**
+   * Moves pending decode of the given actor according to its new priority.
+   */
+  public void reorder (ImageActor actor) {
+    Task task = actor.getPendingTask();
+    if (task != null && executor.remove(task)) {
+      task.priority = actor.getPriority();
+      task.sequence = sequence.incrementAndGet();
+      executor.execute(task);
+    }
+  }
+
+  public int getPoolSize () {
+    return executor.getMaximumPoolSize();
+  }
+
+  public int getPendingCount () {
+    return executor.getQueue().size();
+  }
+
+  static final class Task implements Runnable, Comparable<Task> {
+    private final ImageActor actor;
+    private final ImageFile file;
+    private final String path;
+    private final ImageReader.Listener listener;
+    private final @Kind int kind;
+
+    private volatile @Priority int priority;
+    private volatile long sequence;
+
+    Task (ImageActor actor, ImageFile file, String path, ImageReader.Listener listener, @Kind int kind, long sequence) {
+      this.actor = actor;
+      this.file = file;
+      this.path = path;
+      this.listener = listener;
+      this.kind = kind;
+      this.priority = actor.getPriority();
+      this.sequence = sequence;
+    }
+
+    @Override
+    public void run () {
+      actor.clearPendingTask(this);
+      if (actor.isCancelled()) {
+        return;
+      }
+      final long startTime = PerfTrace.begin();
+      ImageReader.instance().readImageImpl(actor, file, path, listener);
+      PerfTrace.end(PerfTrace.Span.IMAGE_READ, startTime);
+    }
+
+    @Override
+    public int compareTo (@NonNull Task other) {
+      if (priority != other.priority) {
+        return Integer.compare(priority, other.priority);
+      }
+      if (kind != other.kind) {
+        return Integer.compare(kind, other.kind);
+      }
+      return Long.compare(other.sequence, sequence);
+    }
+  }
+}
@@ -73,7 +73,7 @@ public class GifActor implements GifState.Callback, TGPlayerController.TrackChan
   private @Nullable GifState gif;
   private final int[] metadata;
   private final double[] lottieMetadata;
-  private final GifThread thread;
+  private final GifFrameScheduler.ActorQueue queue;
   private final boolean isLottie;
   private int lottieCacheState = LOTTIE_CACHE_NONE;
 
@@ -88,14 +88,14 @@ public class GifActor implements GifState.Callback, TGPlayerController.TrackChan
 
   private final boolean isPlayOnce;
 
-  public GifActor (final GifFile file, GifThread thread) {
+  public GifActor (final GifFile file, GifFrameScheduler scheduler) {
     this.isPlayOnce = file.isPlayOnce();
     file.setVibrationPattern(Emoji.VIBRATION_PATTERN_NONE);
     this.maxFrameRate = file.hasOptimizations() || Settings.instance().getNewSetting(Settings.SETTING_FLAG_LIMIT_STICKERS_FPS) ? REDUCED_MAX_FRAME_RATE : DEFAULT_MAX_FRAME_RATE;
     this.isLottie = file.getGifType() == GifFile.TYPE_TG_LOTTIE;
     this.metadata = new int[4];
     this.lottieMetadata = new double[3];
-    this.thread = thread;
+    this.queue = scheduler.newQueue(this, file.isHighPriorityForDecode());
     this.file = file;
     this.isPlaybackFrozen = isFrozen(file);
 
@@ -208,7 +208,7 @@ public class GifActor implements GifState.Callback, TGPlayerController.TrackChan
         file.tdlib().client().send(new TdApi.CancelDownloadFile(file.getFileId(), false), fileLoadHandler);
         flags &= ~FLAG_LOADING_FILE;
       } else {
-        thread.onDestroy(this);
+        queue.onDestroy();
       }
     }
   }
@@ -240,7 +240,7 @@ public class GifActor implements GifState.Callback, TGPlayerController.TrackChan
     Td.copyTo(file, localFile);
 
     if ((flags & FLAG_CANCELLED) == 0) {
-      thread.startDecoding(this, file.local.path);
+      queue.startDecoding(file.local.path);
     }
   }
 
@@ -302,12 +302,7 @@ public class GifActor implements GifState.Callback, TGPlayerController.TrackChan
           nativePtr = 0;
         }
         if (lottieCacheFile != null) {
-          LottieCache.instance().checkFile(file,
-            lottieCacheFile,
-            deleteLottieCacheFile || file.isOneTimeCache(),
-            lottieCacheFileSize,
-            file.getFitzpatrickType()
-          );
+          LottieCache.instance().checkFile(lottieCacheFile, deleteLottieCacheFile || file.isOneTimeCache());
         }
       } else {
         N.destroyDecoder(nativePtr);
@@ -417,8 +412,8 @@ public class GifActor implements GifState.Callback, TGPlayerController.TrackChan
       this.gif = gif;
     }
     if (!isPlaybackFrozen) {
-      thread.prepareNextFrame(this);
-      scheduleNext(false);
+      final long frameDelayMs = scheduleNext(false);
+      queue.prepareNextFrame(frameDelayMs);
     } else {
       GifBridge.instance().dispatchGifFrameChanged(file, gif, false);
     }
@@ -449,7 +444,7 @@ public class GifActor implements GifState.Callback, TGPlayerController.TrackChan
     }
     boolean res = N.seekVideoToStart(nativePtr);
     if (res) {
-      prepareNextFrame();
+      prepareNextFrame(0);
     }
   }
 
@@ -471,7 +466,7 @@ public class GifActor implements GifState.Callback, TGPlayerController.TrackChan
   }
 
   // Decoder thread
-  public void prepareNextFrame () {
+  public void prepareNextFrame (int skipFrames) {
     GifState gif;
     synchronized (gifLock) {
       gif = this.gif;
@@ -487,7 +482,7 @@ public class GifActor implements GifState.Callback, TGPlayerController.TrackChan
       double desiredNextFrameNo;
       if (isLottie) {
         double frameDelta = frameDelta();
-        desiredNextFrameNo = lastFrameNo + frameDelta;
+        desiredNextFrameNo = lastFrameNo + frameDelta * (1 + skipFrames);
         if ((long) desiredNextFrameNo >= totalFrameCount) {
           file.onLoop();
           desiredNextFrameNo = 0;
@@ -513,17 +508,17 @@ public class GifActor implements GifState.Callback, TGPlayerController.TrackChan
       if (isLottie) {
         switch (lottieCacheState) {
           case LOTTIE_CACHE_NONE: {
+            boolean skipOddFrames = frameRate == 60.0 && maxFrameRate == 30.0;
             lottieCacheFile = LottieCache.getCacheFile(
               file,
               file.isOneTimeCache(),
               lottieCacheFileSize = Math.max(free.getWidth(), free.getHeight()),
               file.getFitzpatrickType(),
-              file.getOptimizationMode() == GifFile.OptimizationMode.EMOJI ? TimeUnit.MINUTES.toMillis(30) : TimeUnit.MINUTES.toMillis(2),
-              8
+              skipOddFrames,
+              file.getOptimizationMode() == GifFile.OptimizationMode.EMOJI ? TimeUnit.MINUTES.toMillis(30) : TimeUnit.MINUTES.toMillis(2)
             );
             // final boolean cacheExisted = lottieCacheFile != null && lottieCacheFile.exists();
             int status;
-            boolean skipOddFrames = frameRate == 60.0 && maxFrameRate == 30.0;
             // final long startTime = SystemClock.uptimeMillis();
             synchronized (nativeSync) {
               status =
@@ -652,8 +647,19 @@ public class GifActor implements GifState.Callback, TGPlayerController.TrackChan
     return maxFrameRate;
   }
 
+  /**
+   * @return interval between two displayed animation frames, in milliseconds
+   */
+  public double frameIntervalMs () {
+    final double displayFrameRate = isLottie && frameRate > 0 ? Math.min(maxFrameRate(), frameRate) : Screen.refreshRate();
+    return 1000.0 / displayFrameRate;
+  }
+
+  /**
+   * @return delay before the frame that is going to be prepared next is displayed
+   */
   // GifStage thread
-  private void scheduleNext (boolean force) {
+  private long scheduleNext (boolean force) {
     final double frameDelay;
     final int nextTimeStamp;
 
@@ -693,6 +699,7 @@ public class GifActor implements GifState.Callback, TGPlayerController.TrackChan
         }
       }
     }
+    return force ? 0 : frameDelayMs;
   }
 
   // GifStage thread
@@ -785,7 +792,7 @@ public class GifActor implements GifState.Callback, TGPlayerController.TrackChan
         }
         if (isPlayingRoundVideo) {
           if (TdlibManager.instance().player().isPlayingMessage(file.getChatId(), file.getMessageId())) {
-            thread.prepareStartFrame(this);
+            queue.prepareStartFrame();
             if (lastTimeStamp != 0) {
               scheduleNext(true);
             }
@@ -793,8 +800,8 @@ public class GifActor implements GifState.Callback, TGPlayerController.TrackChan
           return false;
         }
         if (GifBridge.instance().canScheduleNextFrame(this, file.getFileId())) {
-          thread.prepareNextFrame(this);
-          scheduleNext(false);
+          final long frameDelayMs = scheduleNext(false);
+          queue.prepareNextFrame(frameDelayMs);
           return true;
         }
       }
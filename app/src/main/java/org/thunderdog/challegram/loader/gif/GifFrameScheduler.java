@@ -0,0 +1,335 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.loader.gif;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import org.thunderdog.challegram.Log;
+import org.thunderdog.challegram.tool.Screen;
+import org.thunderdog.challegram.util.PerfTrace;
+
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+
+/**
+ * Shared pool of decoder threads for {@link GifActor}.
+ *
+ * Each actor gets its own {@link ActorQueue}, so its tasks are still executed one by one and in order,
+ * but any idle decoder thread may pick it up. Ready queues are served earliest deadline first,
+ * where deadline is rounded to the next display frame, so frames of actors visible together
+ * are prepared together, cheapest first. Lottie actors that fall behind skip frames instead of lagging.
+ */
+public class GifFrameScheduler {
+  private static final int TASK_START_DECODING = 0;
+  private static final int TASK_PREPARE_START_FRAME = 1;
+  private static final int TASK_PREPARE_NEXT_FRAME = 2;
+  private static final int TASK_DESTROY = 3;
+
+  private static final int MAX_SKIPPED_FRAMES = 4;
+
+  private final Worker[] workers;
+  private final PriorityQueue<ActorQueue> readyQueues = new PriorityQueue<>();
+  private long sequence;
+
+  private long droppedFrameCount, lateFrameCount, frameCount;
+
+  public GifFrameScheduler () {
+    final int poolSize = Math.max(2, Math.min(6, Runtime.getRuntime().availableProcessors() - 1));
+    this.workers = new Worker[poolSize];
+    for (int i = 0; i < poolSize; i++) {
+      workers[i] = new Worker(this, i);
+      workers[i].start();
+    }
+  }
+
+  public ActorQueue newQueue (GifActor actor, boolean isHighPriority) {
+    return new ActorQueue(this, actor, isHighPriority);
+  }
+
+  private void schedule (ActorQueue queue) {
+    synchronized (readyQueues) {
+      queue.sequence = ++sequence;
+      readyQueues.offer(queue);
+      readyQueues.notify();
+    }
+  }
+
+  private ActorQueue takeQueue () throws InterruptedException {
+    synchronized (readyQueues) {
+      ActorQueue queue;
+      while ((queue = readyQueues.poll()) == null) {
+        readyQueues.wait();
+      }
+      return queue;
+    }
+  }
+
+  private static long frameIntervalMs () {
+    return Math.max(1, (long) Math.floor(1000.0 / Screen.refreshRate()));
+  }
+
+  // Diagnostics
+
+  public int getThreadCount () {
+    return workers.length;
+  }
+
+  /**
+   * @return share of time each decoder thread spent working since the previous call, 0..1
+   */
+  public float[] getThreadUtilization () {
+    float[] result = new float[workers.length];
+    for (int i = 0; i < workers.length; i++) {
+      result[i] = workers[i].takeUtilization();
+    }
+    return result;
+  }
+
+  public long getDroppedFrameCount () {
+    synchronized (readyQueues) {
+      return droppedFrameCount;
+    }
+  }
+
+  public long getLateFrameCount () {
+    synchronized (readyQueues) {
+      return lateFrameCount;
+    }
+  }
+
+  @Override
+  @NonNull
+  public String toString () {
+    StringBuilder b = new StringBuilder("GifFrameScheduler { threads = [");
+    float[] utilization = getThreadUtilization();
+    for (int i = 0; i < utilization.length; i++) {
+      if (i != 0) {
+        b.append(", ");
+      }
+      b.append(Math.round(utilization[i] * 100f)).append('%');
+    }
+    synchronized (readyQueues) {
+      b.append("], frames = ").append(frameCount)
+        .append(", late = ").append(lateFrameCount)
+        .append(", dropped = ").append(droppedFrameCount)
+        .append(", ready = ").append(readyQueues.size())
+        .append(" }");
+    }
+    return b.toString();
+  }
+
+  private void onFramePrepared (long lateMs, int skippedFrames) {
+    synchronized (readyQueues) {
+      frameCount++;
+      if (lateMs > 0) {
+        lateFrameCount++;
+      }
+      droppedFrameCount += skippedFrames;
+    }
+  }
+
+  private static final class Task {
+    final int type;
+    final Object arg;
+    final long deadline;
+
+    Task (int type, Object arg, long deadline) {
+      this.type = type;
+      this.arg = arg;
+      this.deadline = deadline;
+    }
+  }
+
+  public static final class ActorQueue implements Comparable<ActorQueue> {
+    private final GifFrameScheduler scheduler;
+    private final GifActor actor;
+    private final boolean isHighPriority;
+
+    // Guarded by this
+    private final ArrayDeque<Task> tasks = new ArrayDeque<>();
+    private boolean isScheduled;
+
+    // Guarded by scheduler.readyQueues while queue is in ready list
+    private long slot;
+    private long sequence;
+
+    // Exponential moving average of frame preparation time, accessed by one decoder thread at a time
+    private volatile long avgFrameCostNanos;
+
+    ActorQueue (GifFrameScheduler scheduler, GifActor actor, boolean isHighPriority) {
+      this.scheduler = scheduler;
+      this.actor = actor;
+      this.isHighPriority = isHighPriority;
+    }
+
+    public long getAverageFrameCostNanos () {
+      return avgFrameCostNanos;
+    }
+
+    // GifBridge thread
+    public void startDecoding (String path) {
+      post(new Task(TASK_START_DECODING, path, SystemClock.uptimeMillis()));
+    }
+
+    // GifBridge or UI thread
+    public void prepareStartFrame () {
+      post(new Task(TASK_PREPARE_START_FRAME, null, SystemClock.uptimeMillis()));
+    }
+
+    // GifBridge or UI thread
+    public void prepareNextFrame (long delayMs) {
+      post(new Task(TASK_PREPARE_NEXT_FRAME, null, SystemClock.uptimeMillis() + Math.max(0, delayMs)));
+    }
+
+    // GifBridge thread
+    public void onDestroy () {
+      post(new Task(TASK_DESTROY, null, SystemClock.uptimeMillis()));
+    }
+
+    private void post (Task task) {
+      synchronized (this) {
+        tasks.offer(task);
+        if (isScheduled) {
+          return;
+        }
+        isScheduled = true;
+        slot = toSlot(task.deadline);
+      }
+      scheduler.schedule(this);
+    }
+
+    private static long toSlot (long deadline) {
+      return deadline / frameIntervalMs();
+    }
+
+    // Decoder thread
+    private void runNext () {
+      final Task task;
+      synchronized (this) {
+        task = tasks.poll();
+      }
+      if (task != null) {
+        execute(task);
+      }
+      synchronized (this) {
+        Task next = tasks.peek();
+        if (next == null) {
+          isScheduled = false;
+          return;
+        }
+        slot = toSlot(next.deadline);
+      }
+      scheduler.schedule(this);
+    }
+
+    private void execute (Task task) {
+      switch (task.type) {
+        case TASK_START_DECODING: {
+          actor.startDecoding((String) task.arg);
+          break;
+        }
+        case TASK_PREPARE_START_FRAME: {
+          actor.prepareStartFrame();
+          break;
+        }
+        case TASK_PREPARE_NEXT_FRAME: {
+          final long lateMs = SystemClock.uptimeMillis() - task.deadline;
+          int skipFrames = 0;
+          if (actor.isLottie()) {
+            // Actor fell behind: catch up with the timeline instead of showing stale frames.
+            // Each skipped frame advances the animation by one of its own frames, not by one screen refresh.
+            final double animationFrameIntervalMs = actor.frameIntervalMs();
+            if (lateMs > animationFrameIntervalMs) {
+              skipFrames = (int) Math.min(MAX_SKIPPED_FRAMES, (long) (lateMs / animationFrameIntervalMs));
+            }
+          }
+          final long startNanos = System.nanoTime();
+          actor.prepareNextFrame(skipFrames);
+          final long elapsedNanos = System.nanoTime() - startNanos;
+          if (PerfTrace.isEnabled()) {
+            PerfTrace.end(PerfTrace.Span.GIF_FRAME, startNanos);
+          }
+          final long avgCostNanos = this.avgFrameCostNanos;
+          this.avgFrameCostNanos = avgCostNanos == 0 ? elapsedNanos : (avgCostNanos * 7 + elapsedNanos) / 8;
+          scheduler.onFramePrepared(lateMs, skipFrames);
+          break;
+        }
+        case TASK_DESTROY: {
+          actor.onDestroy();
+          break;
+        }
+      }
+    }
+
+    @Override
+    public int compareTo (ActorQueue other) {
+      if (slot != other.slot) {
+        return Long.compare(slot, other.slot);
+      }
+      if (isHighPriority != other.isHighPriority) {
+        return isHighPriority ? -1 : 1;
+      }
+      if (avgFrameCostNanos != other.avgFrameCostNanos) {
+        return Long.compare(avgFrameCostNanos, other.avgFrameCostNanos);
+      }
+      return Long.compare(sequence, other.sequence);
+    }
+  }
+
+  private static final class Worker extends Thread {
+    private final GifFrameScheduler scheduler;
+
+    private final Object statsLock = new Object();
+    private long busyNanos;
+    private long windowStartNanos = System.nanoTime();
+
+    Worker (GifFrameScheduler scheduler, int index) {
+      super("GifThread#" + index);
+      this.scheduler = scheduler;
+    }
+
+    float takeUtilization () {
+      synchronized (statsLock) {
+        final long now = System.nanoTime();
+        final long window = now - windowStartNanos;
+        final float utilization = window > 0 ? Math.min(1f, (float) busyNanos / (float) window) : 0f;
+        busyNanos = 0;
+        windowStartNanos = now;
+        return utilization;
+      }
+    }
+
+    @Override
+    public void run () {
+      while (true) {
+        ActorQueue queue;
+        try {
+          queue = scheduler.takeQueue();
+        } catch (InterruptedException e) {
+          Log.e(Log.TAG_GIF_LOADER, "GifFrameScheduler worker interrupted", e);
+          return;
+        }
+        final long startNanos = System.nanoTime();
+        queue.runNext();
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        synchronized (statsLock) {
+          busyNanos += elapsedNanos;
+        }
+      }
+    }
+  }
+}
@@ -17,6 +17,7 @@ package org.thunderdog.challegram.loader.gif;
 import android.graphics.Bitmap;
 
 import org.thunderdog.challegram.U;
+import org.thunderdog.challegram.loader.BitmapPool;
 
 import java.util.ArrayDeque;
 import java.util.Queue;
@@ -39,7 +40,7 @@ public class GifState {
     }
 
     public void recycle () {
-      bitmap.recycle();
+      BitmapPool.instance().recycle(bitmap);
     }
 
     public int getWidth () {
@@ -85,7 +86,7 @@ public class GifState {
   public boolean init (FrameReader reader, int numInit, Bitmap.Config config) {
     synchronized (busy) {
       for (int i = 0; i < queueSize; i++) {
-        Bitmap bitmap = Bitmap.createBitmap(width, height, config);
+        Bitmap bitmap = BitmapPool.instance().obtain(width, height, config);
         if (bitmap == null) {
           return false;
         }
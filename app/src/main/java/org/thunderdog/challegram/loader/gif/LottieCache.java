@@ -17,6 +17,7 @@ package org.thunderdog.challegram.loader.gif;
 import android.content.SharedPreferences;
 import android.os.SystemClock;
 
+import org.drinkless.tdlib.TdApi;
 import org.thunderdog.challegram.Log;
 import org.thunderdog.challegram.core.BaseThread;
 import org.thunderdog.challegram.data.TD;
@@ -26,12 +27,22 @@ import org.thunderdog.challegram.unsorted.Settings;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import me.vkryl.core.FileUtils;
 import me.vkryl.core.StringUtils;
+import me.vkryl.core.unit.ByteUnit;
 import me.vkryl.leveldb.LevelDB;
 
+/**
+ * Cache of pre-rendered Lottie frames.
+ *
+ * Files are addressed by the remote unique id of the animation, so the same sticker
+ * rendered for several accounts is stored once. Entries expire after their keep-alive time
+ * and the least recently used ones are evicted once the total size goes over {@link #MAX_CACHE_SIZE}.
+ */
 @Deprecated
 public class LottieCache {
   private static LottieCache instance;
@@ -47,15 +58,28 @@ public class LottieCache {
     return instance;
   }
 
+  private static final long MAX_CACHE_SIZE = ByteUnit.MIB.toBytes(96);
+  private static final String SHARED_OWNER = "shared";
+  private static final String REDUCED_FRAME_RATE_SUFFIX = "_r";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
   private final BaseThread gcThread = new BaseThread("LottieCacheGcThread");
   private final BaseThread[] threadPool = new BaseThread[4];
 
+  // Accessed only on gcThread
+  private final HashMap<String, Entry> index = new HashMap<>();
+  private boolean indexLoaded;
+
   private LottieCache () { }
 
   public boolean clear () {
     if (FileUtils.delete(LottieCache.getCacheDir(), true)) {
       Settings.instance().pmc().removeByPrefix(LOTTIE_KEY_PREFIX);
       cancelScheduledGc();
+      gcThread.post(() -> {
+        index.clear();
+        indexLoaded = true;
+      }, 0);
       return true;
     }
     return false;
@@ -65,9 +89,10 @@ public class LottieCache {
 
   private static class Entry implements Comparable<Entry> {
     public final String key;
-    public final long time;
+    public long time;
+    public long size = -1;
 
-    public final int accountId;
+    public final String owner;
     public final String directory, fileName;
 
     public Entry (String key, long time) {
@@ -76,8 +101,8 @@ public class LottieCache {
       String[] fileData = key.substring(LOTTIE_KEY_PREFIX.length()).split("/", 3);
       if (fileData.length != 3)
         throw new IllegalArgumentException(key);
-      this.accountId = StringUtils.parseInt(fileData[0], -1);
-      if (accountId == -1)
+      this.owner = fileData[0];
+      if (!SHARED_OWNER.equals(owner) && StringUtils.parseInt(owner, -1) == -1)
         throw new IllegalArgumentException(key);
       this.directory = fileData[1];
       this.fileName = fileData[2];
@@ -89,9 +114,6 @@ public class LottieCache {
       String[] fileData = key.substring(LOTTIE_KEY_PREFIX.length()).split("/", 3);
       if (fileData.length != 3)
         return false;
-      /*int accountId = StringUtils.parseInt(fileData[0], -1);
-      if (accountId == -1)
-        return false;*/
       String directory = fileData[1];
       String fileName = fileData[2];
       if (StringUtils.isEmpty(directory) || StringUtils.isEmpty(fileName))
@@ -105,97 +127,136 @@ public class LottieCache {
     }
 
     public File toFile (File cacheDir) {
-      return new File(new File(new File(cacheDir, Integer.toString(accountId)), directory), fileName);
+      return new File(new File(new File(cacheDir, owner), directory), fileName);
+    }
+
+    public long getSize (File cacheDir) {
+      if (size <= 0) {
+        size = toFile(cacheDir).length();
+      }
+      return size;
+    }
+  }
+
+  // Index, gcThread only
+
+  private void ensureIndexLoaded () {
+    if (indexLoaded)
+      return;
+    indexLoaded = true;
+    final LevelDB db = Settings.instance().pmc();
+    List<String> brokenKeys = null;
+    for (LevelDB.Entry entry : db.find(LOTTIE_KEY_PREFIX)) {
+      Entry e;
+      try {
+        e = new Entry(entry.key(), entry.asLong());
+      } catch (IllegalArgumentException t) {
+        Log.e("Bad lottie cache key: %s", t);
+        if (brokenKeys == null)
+          brokenKeys = new ArrayList<>();
+        brokenKeys.add(entry.key());
+        continue;
+      }
+      index.put(e.key, e);
+    }
+    if (brokenKeys != null) {
+      db.edit();
+      for (String brokenKey : brokenKeys) {
+        db.remove(brokenKey);
+      }
+      db.apply();
     }
   }
 
-  private void limitFileCount (int count, String key) {
+  private void touch (String key, long time) {
     gcThread.post(() -> {
-      final LevelDB db = Settings.instance().pmc();
-      final File cacheDir = getCacheDir();
-      List<Entry> entries = new ArrayList<>();
-      List<String> brokenKeys = null;
-      for (LevelDB.Entry entry : db.find(LOTTIE_KEY_PREFIX)) {
-        Entry e;
+      ensureIndexLoaded();
+      Entry entry = index.get(key);
+      if (entry == null) {
         try {
-          e = new Entry(entry.key(), entry.asLong());
+          entry = new Entry(key, time);
         } catch (IllegalArgumentException t) {
           Log.e("Bad lottie cache key: %s", t);
-          if (brokenKeys == null)
-            brokenKeys = new ArrayList<>();
-          brokenKeys.add(entry.key());
-          continue;
-        }
-        entries.add(e);
-      }
-      if (brokenKeys != null) {
-        db.edit();
-        for (String brokenKey : brokenKeys) {
-          db.remove(brokenKey);
-        }
-        db.apply();
-      }
-      Collections.sort(entries);
-      int extraCount = (entries.size() - count);
-      int index = 0;
-      SharedPreferences.Editor editor = null;
-      while (extraCount > 0 && index < entries.size()) {
-        Entry entry = entries.get(index++);
-        if (!entry.key.equals(key)) {
-          if (editor == null)
-            editor = db.edit();
-          delete(cacheDir, entry, editor);
-          extraCount--;
+          return;
         }
+        index.put(key, entry);
       }
-      if (editor != null) {
-        editor.apply();
-      }
+      entry.time = time;
+      trimToSize(MAX_CACHE_SIZE, key);
     }, 0);
   }
 
-  private static void delete (File cacheDir, Entry entry, SharedPreferences.Editor editor) {
+  private void trimToSize (long maxSize, String protectedKey) {
+    final File cacheDir = getCacheDir();
+    long totalSize = 0;
+    for (Entry entry : index.values()) {
+      totalSize += entry.getSize(cacheDir);
+    }
+    if (totalSize <= maxSize)
+      return;
+    List<Entry> entries = new ArrayList<>(index.values());
+    Collections.sort(entries);
+    SharedPreferences.Editor editor = Settings.instance().pmc().edit();
+    for (Entry entry : entries) {
+      if (totalSize <= maxSize)
+        break;
+      if (entry.key.equals(protectedKey))
+        continue;
+      long size = entry.getSize(cacheDir);
+      if (delete(cacheDir, entry, editor)) {
+        totalSize -= size;
+      }
+    }
+    editor.apply();
+  }
+
+  private boolean delete (File cacheDir, Entry entry, SharedPreferences.Editor editor) {
     File file = entry.toFile(cacheDir);
     if (!file.exists() || file.delete()) {
       editor.remove(entry.key);
+      index.remove(entry.key);
+      return true;
     }
+    return false;
   }
 
   public void gc () {
     gcThread.post(() -> {
       long nextTime = -1;
       final File cacheDir = getCacheDir();
+      final long now = System.currentTimeMillis();
 
-      File[] accountDirs = cacheDir.listFiles();
-      if (accountDirs != null) {
-        for (File accountDir : accountDirs) {
-          File[] thumbnailDirs = accountDir.listFiles((dir, name) -> "0".equals(name) || name.startsWith("thumbs"));
-          if (thumbnailDirs != null) {
-            for (File thumbnailDir : thumbnailDirs) {
-              FileUtils.delete(thumbnailDir, true);
+      File[] ownerDirs = cacheDir.listFiles();
+      if (ownerDirs != null) {
+        for (File ownerDir : ownerDirs) {
+          File[] sizeDirs = ownerDir.listFiles();
+          if (sizeDirs == null)
+            continue;
+          for (File sizeDir : sizeDirs) {
+            String name = sizeDir.getName();
+            if ("0".equals(name) || name.startsWith("thumbs")) {
+              FileUtils.delete(sizeDir, true);
+              continue;
+            }
+            // Leftovers of cache files that were being written when the process died
+            File[] tempFiles = sizeDir.listFiles((dir, fileName) -> fileName.endsWith(TEMP_FILE_SUFFIX));
+            if (tempFiles != null) {
+              for (File tempFile : tempFiles) {
+                if (now - tempFile.lastModified() >= TimeUnit.HOURS.toMillis(1)) {
+                  tempFile.delete();
+                }
+              }
             }
           }
         }
       }
 
-      long now = System.currentTimeMillis();
-      final LevelDB db = Settings.instance().pmc();
+      ensureIndexLoaded();
       SharedPreferences.Editor editor = null;
-      List<String> brokenKeys = null;
-      for (LevelDB.Entry entry : db.find(LOTTIE_KEY_PREFIX)) {
-        Entry e;
-        try {
-          e = new Entry(entry.key(), entry.asLong());
-        } catch (IllegalArgumentException t) {
-          Log.e("Bad lottie cache key: %s", t);
-          if (brokenKeys == null)
-            brokenKeys = new ArrayList<>();
-          brokenKeys.add(entry.key());
-          continue;
-        }
+      for (Entry e : new ArrayList<>(index.values())) {
         if (now >= e.time) {
           if (editor == null)
-            editor = db.edit();
+            editor = Settings.instance().pmc().edit();
           delete(cacheDir, e, editor);
         } else {
           nextTime = nextTime == -1 ? e.time : Math.min(nextTime, e.time);
@@ -228,17 +289,23 @@ public class LottieCache {
     }
   }
 
-  public static File getCacheDir (int accountId, int size, boolean optimize, String colorKey) {
+  private static String getDirectoryName (int size, boolean optimize, String colorKey, boolean reducedFrameRate) {
+    String folderName = optimize ? "thumbs" + size : Integer.toString(size);
+    if (!StringUtils.isEmpty(colorKey))
+      folderName += "_" + colorKey;
+    if (reducedFrameRate)
+      folderName += REDUCED_FRAME_RATE_SUFFIX;
+    return folderName;
+  }
+
+  public static File getCacheDir (String owner, int size, boolean optimize, String colorKey, boolean reducedFrameRate) {
     File cacheDir = getCacheDir();
     if (!FileUtils.createDirectory(cacheDir))
       return null;
-    cacheDir = new File(cacheDir, Integer.toString(accountId));
+    cacheDir = new File(cacheDir, owner);
     if (!FileUtils.createDirectory(cacheDir))
       return null;
-    String folderName = optimize ? "thumbs" + size : Integer.toString(size);
-    if (!StringUtils.isEmpty(colorKey))
-      folderName += "_" + colorKey;
-    cacheDir = new File(cacheDir, folderName);
+    cacheDir = new File(cacheDir, getDirectoryName(size, optimize, colorKey, reducedFrameRate));
     if (!FileUtils.createDirectory(cacheDir))
       return null;
     return cacheDir;
@@ -253,44 +320,67 @@ public class LottieCache {
 
   private static final String LOTTIE_KEY_PREFIX = "lottie_";
 
-  public static File getCacheFile (GifFile file, boolean optimize, int size, int fitzpatrickType, long keepAliveMs, int maxCount) {
+  public static File getCacheFile (GifFile file, boolean optimize, int size, int fitzpatrickType, boolean reducedFrameRate, long keepAliveMs) {
     if (optimize) {
       keepAliveMs = 0;
     }
     String colorKey = fitzpatrickType != 0 ? Integer.toString(fitzpatrickType) : null;
-    int accountId = file.tdlib() != null ? file.tdlib().id() : TdlibAccount.NO_ID;
-    File cacheDir = getCacheDir(accountId, size, optimize, colorKey);
+    TdApi.File tdFile = file.getFile();
+    String owner, fileName;
+    if (tdFile.remote != null && !StringUtils.isEmpty(tdFile.remote.uniqueId)) {
+      // Same animation has the same unique id in all accounts
+      owner = SHARED_OWNER;
+      fileName = tdFile.remote.uniqueId;
+    } else {
+      owner = Integer.toString(file.tdlib() != null ? file.tdlib().id() : TdlibAccount.NO_ID);
+      fileName = new File(file.getFilePath()).getName();
+    }
+    File cacheDir = getCacheDir(owner, size, optimize, colorKey, reducedFrameRate);
     if (cacheDir == null)
       return null;
-    File originalFile = new File(file.getFilePath());
+    File cacheFile = new File(cacheDir, fileName);
     if (keepAliveMs > 0) {
-      String key = getCacheFileKey(accountId, optimize, size, colorKey, originalFile.getName());
-      Settings.instance().pmc().putLong(key, System.currentTimeMillis() + keepAliveMs);
-      instance().limitFileCount(maxCount, key);
+      String key = getCacheFileKey(cacheFile);
+      long time = System.currentTimeMillis() + keepAliveMs;
+      Settings.instance().pmc().putLong(key, time);
+      instance().touch(key, time);
       instance().scheduleGc(keepAliveMs, false);
     }
-    return new File(cacheDir, originalFile.getName());
+    return cacheFile;
   }
 
-  public static String getCacheFileKey (int accountId, boolean optimize, int size, String colorKey, String originalFileName) {
-    String cacheKey = LOTTIE_KEY_PREFIX + accountId + "/" + (optimize ? "thumbs" + size : size) + (!StringUtils.isEmpty(colorKey) ? "_" + colorKey : "") + "/" + originalFileName;
+  public static String getCacheFileKey (File cacheFile) {
+    File directory = cacheFile.getParentFile();
+    File owner = directory != null ? directory.getParentFile() : null;
+    if (owner == null)
+      throw new IllegalArgumentException(cacheFile.getPath());
+    String cacheKey = LOTTIE_KEY_PREFIX + owner.getName() + "/" + directory.getName() + "/" + cacheFile.getName();
     if (!Entry.validateKey(cacheKey))
       throw new IllegalArgumentException(cacheKey);
     return cacheKey;
   }
 
-  public void checkFile (GifFile file, File cacheFile, boolean optimize, int size, int fitzpatrickType) {
+  public void checkFile (File cacheFile, boolean delete) {
     gcThread.post(() -> {
-      if (optimize) {
+      final String key = getCacheFileKey(cacheFile);
+      ensureIndexLoaded();
+      if (delete) {
         cacheFile.delete();
+        Entry entry = index.remove(key);
+        if (entry != null) {
+          Settings.instance().remove(key);
+        }
       } else {
-        String colorKey = fitzpatrickType != 0 ? Integer.toString(fitzpatrickType) : null;
-        String key = getCacheFileKey(file.tdlib != null ? file.tdlib.accountId() : TdlibAccount.NO_ID, optimize, size, colorKey, new File(file.getFilePath()).getName());
-        long time = Settings.instance().getLong(key, 0);
-        if (time == 0 || System.currentTimeMillis() >= time) {
+        Entry entry = index.get(key);
+        if (entry == null || System.currentTimeMillis() >= entry.time) {
           cacheFile.delete();
+          index.remove(key);
           Settings.instance().remove(key);
           gc();
+        } else {
+          // File has just been written, so its size is known only now
+          entry.size = cacheFile.length();
+          trimToSize(MAX_CACHE_SIZE, key);
         }
       }
     }, 0);
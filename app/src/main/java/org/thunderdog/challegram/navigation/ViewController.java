@@ -569,7 +569,7 @@ public abstract class ViewController<T> implements Future<View>, ThemeChangeList
     if (delay > 0) {
       runOnUiThread(act, delay);
     } else {
-      runOnUiThread(act);
+      UI.postBatched(act);
     }
   }
 
@@ -28,6 +28,7 @@ import androidx.annotation.Nullable;
 import androidx.annotation.UiThread;
 import androidx.media3.common.C;
 import androidx.media3.common.IllegalSeekPositionException;
+import androidx.media3.common.MediaItem;
 import androidx.media3.common.Metadata;
 import androidx.media3.common.PlaybackException;
 import androidx.media3.common.PlaybackParameters;
@@ -49,9 +50,11 @@ import org.thunderdog.challegram.data.TD;
 import org.thunderdog.challegram.data.TGAudio;
 import org.thunderdog.challegram.service.AudioService;
 import org.thunderdog.challegram.telegram.Tdlib;
+import org.thunderdog.challegram.telegram.TdlibFilesManager;
 import org.thunderdog.challegram.telegram.TdlibManager;
 import org.thunderdog.challegram.tool.UI;
 import org.thunderdog.challegram.unsorted.Settings;
+import org.thunderdog.challegram.util.PerfTrace;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -202,6 +205,8 @@ public class AudioController extends BasePlaybackController implements TGAudio.P
           playList.clear();
           playIndex = -1;
         }
+        cancelPreloadedTracks(null);
+        transitionStartTime = 0;
         if (exoPlayer != null) {
           if (isPlaying) {
             final ExoPlayer finishingExoPlayer = exoPlayer;
@@ -729,6 +734,7 @@ public class AudioController extends BasePlaybackController implements TGAudio.P
   @Override
   public void onTimelineChanged (@NonNull Timeline timeline, int reason) {
     Log.d(Log.TAG_PLAYER, "[state] onTimeLineChanged reason:%d", reason);
+    preloadNextTracks();
   }
 
   private static ApicFrame findApic (@NonNull Tracks tracks) {
@@ -803,6 +809,9 @@ public class AudioController extends BasePlaybackController implements TGAudio.P
   @Override
   public void onPlayerStateChanged (boolean playWhenReady, int playbackState) {
     setInProgressLoop(playbackState == Player.STATE_READY);
+    if (playbackState == Player.STATE_READY) {
+      finishTransition();
+    }
 
     boolean isBuffering = playbackState == Player.STATE_BUFFERING;
     boolean wasBuffering = bufferingStartTime != 0;
@@ -848,10 +857,26 @@ public class AudioController extends BasePlaybackController implements TGAudio.P
   }
 
   @Override
-  public void onRepeatModeChanged (int repeatMode) { }
+  public void onRepeatModeChanged (int repeatMode) {
+    preloadNextTracks();
+  }
+
+  @Override
+  public void onShuffleModeEnabledChanged (boolean shuffleModeEnabled) {
+    preloadNextTracks();
+  }
 
   @Override
-  public void onShuffleModeEnabledChanged (boolean shuffleModeEnabled) { }
+  public void onMediaItemTransition (@Nullable MediaItem mediaItem, int reason) {
+    if (playbackMode != PLAYBACK_MODE_EXOPLAYER_LIST || exoPlayer == null) {
+      return;
+    }
+    Log.d(Log.TAG_PLAYER, "[state] onMediaItemTransition mode:%d, reason:%d", playbackMode, reason);
+    if (reason == Player.MEDIA_ITEM_TRANSITION_REASON_AUTO || reason == Player.MEDIA_ITEM_TRANSITION_REASON_SEEK) {
+      TdApi.Message track = getPlayerTrack(exoPlayer.getCurrentMediaItemIndex());
+      startTransition(track != null && TD.isFileLoaded(track));
+    }
+  }
 
   @Override
   public void onPositionDiscontinuity (@NonNull Player.PositionInfo oldPosition, @NonNull Player.PositionInfo newPosition, int reason) {
@@ -860,6 +885,7 @@ public class AudioController extends BasePlaybackController implements TGAudio.P
     }
     Log.d(Log.TAG_PLAYER, "[state] onPositionDiscontinuity mode:%d, reason:%d", playbackMode, reason);
     checkPlayerPosition();
+    preloadNextTracks();
     // findApic(exoPlayer.getCurrentTrackGroups());
   }
 
@@ -868,6 +894,162 @@ public class AudioController extends BasePlaybackController implements TGAudio.P
     Log.d(Log.TAG_PLAYER, "[state] onPlaybackParametersChanged");
   }
 
+  // Preloading
+
+  // Files of the next tracks are downloaded while the current one plays,
+  // so moving to them does not wait for the first bytes from the network
+  private static final int PRELOAD_TRACK_COUNT = 2;
+
+  private final ArrayList<TdApi.File> preloadedFiles = new ArrayList<>();
+  private @Nullable Tdlib preloadTdlib;
+
+  @Nullable
+  private TdApi.Message getPlayerTrack (int windowIndex) {
+    if (playList == null || windowIndex == C.INDEX_UNSET) {
+      return null;
+    }
+    int position = reversePosition(windowIndex, playList.size(), inReverseMode());
+    return position >= 0 && position < playList.size() ? playList.get(position) : null;
+  }
+
+  private static int indexOfFile (List<TdApi.File> files, int fileId) {
+    for (int i = 0; i < files.size(); i++) {
+      if (files.get(i).id == fileId) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void preloadNextTracks () {
+    if (playbackMode != PLAYBACK_MODE_EXOPLAYER_LIST || exoPlayer == null || playList == null || tdlib == null) {
+      return;
+    }
+    final Timeline timeline = exoPlayer.getCurrentTimeline();
+    final int currentWindowIndex = exoPlayer.getCurrentMediaItemIndex();
+    final ArrayList<TdApi.File> nextFiles = new ArrayList<>(PRELOAD_TRACK_COUNT);
+    if (!timeline.isEmpty() && currentWindowIndex != C.INDEX_UNSET && currentWindowIndex < timeline.getWindowCount()) {
+      final int repeatMode = exoPlayer.getRepeatMode();
+      final boolean shuffleModeEnabled = exoPlayer.getShuffleModeEnabled();
+      int windowIndex = currentWindowIndex;
+      for (int i = 0; i < PRELOAD_TRACK_COUNT; i++) {
+        windowIndex = timeline.getNextWindowIndex(windowIndex, repeatMode, shuffleModeEnabled);
+        if (windowIndex == C.INDEX_UNSET || windowIndex == currentWindowIndex) {
+          break;
+        }
+        TdApi.Message track = getPlayerTrack(windowIndex);
+        TdApi.File file = track != null ? TD.getFile(track) : null;
+        if (file != null && file.id > 0 && indexOfFile(nextFiles, file.id) == -1) {
+          nextFiles.add(file);
+        }
+      }
+    }
+    TdApi.Message currentTrack = getPlayerTrack(currentWindowIndex);
+    cancelPreloadedTracks(nextFiles, currentTrack != null ? TD.getFileId(currentTrack) : 0);
+
+    final Tdlib tdlib = this.tdlib;
+    int requestedCount = 0;
+    for (TdApi.File file : nextFiles) {
+      if (indexOfFile(preloadedFiles, file.id) != -1) {
+        continue;
+      }
+      // Lower priority than the current track, which is streamed with TdlibFilesManager.CLOUD_PRIORITY.
+      // Files that are already loaded or requested by something else are not tracked, so they are never cancelled
+      if (tdlib.files().downloadFileSpeculatively(file, TdlibFilesManager.DEFAULT_DOWNLOAD_PRIORITY)) {
+        preloadedFiles.add(file);
+        requestedCount++;
+      }
+    }
+    preloadTdlib = tdlib;
+    if (requestedCount > 0) {
+      Log.i(Log.TAG_PLAYER, "Preloading %d next tracks", requestedCount);
+      synchronized (statsLock) {
+        preloadedTrackCount += requestedCount;
+      }
+    }
+  }
+
+  private void cancelPreloadedTracks (@Nullable List<TdApi.File> nextFiles) {
+    cancelPreloadedTracks(nextFiles, 0);
+  }
+
+  /**
+   * Cancels downloads started by {@link #preloadNextTracks()}, unless they are still upcoming or already playing.
+   */
+  private void cancelPreloadedTracks (@Nullable List<TdApi.File> nextFiles, int currentFileId) {
+    final boolean tdlibChanged = preloadTdlib != null && preloadTdlib != tdlib;
+    for (int i = preloadedFiles.size() - 1; i >= 0; i--) {
+      TdApi.File file = preloadedFiles.get(i);
+      if (!tdlibChanged && nextFiles != null && indexOfFile(nextFiles, file.id) != -1) {
+        continue;
+      }
+      preloadedFiles.remove(i);
+      if (file.id != currentFileId && preloadTdlib != null) {
+        // Skipped when the file has been requested elsewhere since then or got some data
+        preloadTdlib.files().cancelSpeculativeDownload(file.id);
+      }
+    }
+    if (preloadedFiles.isEmpty()) {
+      preloadTdlib = null;
+    }
+  }
+
+  // Transition metrics
+
+  private long transitionStartTime, transitionTraceTime;
+  private boolean transitionFileLoaded;
+
+  private void startTransition (boolean fileLoaded) {
+    transitionStartTime = SystemClock.uptimeMillis();
+    transitionTraceTime = PerfTrace.begin();
+    transitionFileLoaded = fileLoaded;
+    if (exoPlayer != null && exoPlayer.getPlaybackState() == Player.STATE_READY) {
+      finishTransition();
+    }
+  }
+
+  private void finishTransition () {
+    if (transitionStartTime == 0) {
+      return;
+    }
+    final long elapsed = SystemClock.uptimeMillis() - transitionStartTime;
+    transitionStartTime = 0;
+    PerfTrace.end(PerfTrace.Span.TRACK_TRANSITION, transitionTraceTime);
+    Log.i(Log.TAG_PLAYER, "[state] next track is ready in %dms, fileLoaded:%b", elapsed, transitionFileLoaded);
+    synchronized (statsLock) {
+      transitionCount++;
+      if (elapsed <= GAPLESS_TRANSITION_MS) {
+        gaplessTransitionCount++;
+      }
+      if (transitionFileLoaded) {
+        loadedTransitionCount++;
+      }
+      totalTransitionMs += elapsed;
+      maxTransitionMs = Math.max(maxTransitionMs, elapsed);
+    }
+  }
+
+  // Stats
+
+  // Transitions that did not leave ready state, or left it for less than one frame of the progress loop
+  private static final long GAPLESS_TRANSITION_MS = 50;
+
+  private static final Object statsLock = new Object();
+  private static long preloadedTrackCount;
+  private static long transitionCount, gaplessTransitionCount, loadedTransitionCount, totalTransitionMs, maxTransitionMs;
+
+  public static String getStats () {
+    synchronized (statsLock) {
+      return "AudioController { preloaded = " + preloadedTrackCount +
+        ", transitions = " + transitionCount +
+        ", gapless = " + gaplessTransitionCount +
+        ", fileLoaded = " + loadedTransitionCount +
+        ", avgReadyMs = " + (transitionCount > 0 ? totalTransitionMs / transitionCount : 0) +
+        ", maxReadyMs = " + maxTransitionMs +
+        " }";
+    }
+  }
+
   // Progress loop helper
 
   private static class ProgressHandler extends Handler {
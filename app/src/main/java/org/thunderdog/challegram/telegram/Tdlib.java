@@ -78,6 +78,8 @@ import org.thunderdog.challegram.unsorted.Passcode;
 import org.thunderdog.challegram.unsorted.Settings;
 import org.thunderdog.challegram.util.ChangeLogList;
 import org.thunderdog.challegram.util.DrawableProvider;
+import org.thunderdog.challegram.util.LongMap;
+import org.thunderdog.challegram.util.PerfTrace;
 import org.thunderdog.challegram.util.UserProvider;
 import org.thunderdog.challegram.util.WrapperProvider;
 import org.thunderdog.challegram.util.text.Letters;
@@ -434,7 +436,7 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
 
   private final Object clientLock = new Object();
   private final Object dataLock = new Object();
-  private final HashMap<Long, TdApi.Chat> chats = new HashMap<>();
+  private final LongMap<TdApi.Chat> chats = new LongMap<>();
   private final HashMap<Long, TdApi.ChatActiveStories> activeStories = new HashMap<>();
   private final SparseIntArray storyListChatCount = new SparseIntArray();
   private final SparseArrayCompat<StoryList> storyLists = new SparseArrayCompat<>();
@@ -447,6 +449,7 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
   private final HashMap<Long, Integer> chatOnlineMemberCount = new HashMap<>();
   private final TdlibCache cache;
   private final TdlibEmojiManager emoji;
+  private final TdlibSearchIndex searchIndex = new TdlibSearchIndex(this);
   private final TdlibEmojiReactionsManager reactions;
   private final TdlibSingleton<TdApi.Stickers> genericReactionEffects;
   private final TdlibListeners listeners;
@@ -2301,6 +2304,10 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
     return reactions;
   }
 
+  public TdlibSearchIndex searchIndex () {
+    return searchIndex;
+  }
+
   public TdlibSingleton<TdApi.Stickers> genericAnimationEffects () {
     return genericReactionEffects;
   }
@@ -2608,20 +2615,13 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
     if (chatId == 0) {
       return null;
     }
-    final TdApi.Chat chat;
-    synchronized (dataLock) {
-      chat = chats.get(chatId);
-    }
-    return chat;
+    return chats.get(chatId);
   }
 
   public @NonNull TdApi.Chat chatStrict (long chatId) {
-    final TdApi.Chat chat;
-    synchronized (dataLock) {
-      chat = chats.get(chatId);
-      if (chat == null) {
-        throw new IllegalStateException("updateChat not received for id:" + chatId);
-      }
+    final TdApi.Chat chat = chats.get(chatId);
+    if (chat == null) {
+      throw new IllegalStateException("updateChat not received for id:" + chatId);
     }
     return chat;
   }
@@ -2708,6 +2708,32 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
     return chatLists;
   }
 
+  @TdlibThread
+  private void updateChatListCounters (long chatId) {
+    final TdApi.Chat chat;
+    final TdlibChatList[] chatLists;
+    synchronized (dataLock) {
+      chat = chats.get(chatId);
+      chatLists = chat != null ? chatListsImpl(chat.positions) : null;
+    }
+    if (chatLists != null) {
+      for (TdlibChatList chatList : chatLists) {
+        chatList.onChatStateChanged(chat);
+      }
+    }
+  }
+
+  @NonNull
+  List<TdApi.Chat> chatsSnapshot () {
+    synchronized (dataLock) {
+      final ArrayList<TdApi.Chat> result = new ArrayList<>(chats.size());
+      for (TdApi.Chat chat : chats.values()) {
+        result.add(chat);
+      }
+      return result;
+    }
+  }
+
   public @NonNull List<TdApi.Chat> chats (long[] chatIds) {
     final ArrayList<TdApi.Chat> result = new ArrayList<>(chatIds.length);
     synchronized (dataLock) {
@@ -7306,6 +7332,7 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
   private void resetChatsData () {
     knownChatIds.clear();
     chats.clear();
+    searchIndex.reset();
     chatLists.clear();
     forumTopicInfos.clear();
   }
@@ -7620,6 +7647,7 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
     }
 
     listeners.updateMessageSendFailed(update);
+    updateChatListCounters(update.message.chatId);
     quickAckManager.onMessageSendFailed(update.message.chatId, update.oldMessageId);
 
     context.global().notifyUpdateMessageSendFailed(this, update);
@@ -7697,6 +7725,9 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
       chat.unreadMentionCount = update.unreadMentionCount;
     }
 
+    if (availabilityChanged) {
+      updateChatListCounters(update.chatId);
+    }
     listeners.updateMessageMentionRead(update, counterChanged, availabilityChanged);
   }
 
@@ -7721,7 +7752,9 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
       chatLists = counterChanged || availabilityChanged ? chatListsImpl(chat.positions) : null;
     }
 
-
+    if (availabilityChanged) {
+      updateChatListCounters(update.chatId);
+    }
     listeners.updateMessageUnreadReactions(update, counterChanged, availabilityChanged, chat, chatLists);
   }
 
@@ -7818,6 +7851,7 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
         chatList.onUpdateNewChat(update.chat);
       }
     }
+    searchIndex.onChatUpdated(update.chat.id);
   }
 
   public void refreshChatState (long chatId) {
@@ -7888,6 +7922,9 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
       availabilityChanged = (chat.unreadMentionCount > 0) != (update.unreadMentionCount > 0);
       chat.unreadMentionCount = update.unreadMentionCount;
     }
+    if (availabilityChanged) {
+      updateChatListCounters(update.chatId);
+    }
     listeners.updateChatUnreadMentionCount(update, availabilityChanged);
   }
 
@@ -7905,6 +7942,9 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
       chat.unreadReactionCount = update.unreadReactionCount;
       chatLists = chatListsImpl(chat.positions);
     }
+    if (availabilityChanged) {
+      updateChatListCounters(update.chatId);
+    }
     listeners.updateChatUnreadReactionCount(update, availabilityChanged, chat, chatLists);
   }
 
@@ -7922,6 +7962,7 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
       chat.lastMessage = update.lastMessage;
       listChanges = setChatPositions(chat, update.positions);
     }
+    updateChatListCounters(update.chatId);
     listeners.updateChatLastMessage(update, listChanges);
   }
 
@@ -8233,6 +8274,7 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
       chatLists = chatListsImpl(chat.positions);
     }
 
+    searchIndex.onChatUpdated(update.chatId);
     listeners.updateChatTitle(update, chat, chatLists);
 
     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
@@ -8302,6 +8344,7 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
       chat.hasScheduledMessages = update.hasScheduledMessages;
     }
 
+    updateChatListCounters(update.chatId);
     listeners.updateChatHasScheduledMessages(update);
   }
 
@@ -8856,6 +8899,7 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
       }
     }
     cache.onUpdateSupergroup(update, chat);
+    searchIndex.onChatUpdated(ChatId.fromSupergroupId(update.supergroup.id));
   }
 
   // Updates: SECURITY
@@ -9968,7 +10012,50 @@ public class Tdlib implements TdlibProvider, Settings.SettingsChangeListener, Da
     clientHolder().sendFakeUpdate(update);
   }
 
+  private ClientHolder updateCoalescerContext;
+  private final TdlibUpdateCoalescer updateCoalescer = new TdlibUpdateCoalescer(new TdlibUpdateCoalescer.Dispatcher() {
+    @Override
+    public void dispatchUpdate (TdApi.Update update) {
+      processUpdateImpl(updateCoalescerContext, update);
+    }
+
+    @Override
+    public void scheduleFlush (Runnable flush, double timeoutSeconds) {
+      updateCoalescerContext.runOnTdlibThread(flush, timeoutSeconds);
+    }
+  });
+
+  public String getUpdateCoalescerStats () {
+    return updateCoalescer.toString();
+  }
+
+  public String getListenerDispatchStats () {
+    return listeners.getDispatchStats();
+  }
+
   private void processUpdate (ClientHolder context, TdApi.Update update) {
+    final long startTime = PerfTrace.begin();
+    final boolean batchUiUpdates = Settings.instance().isExperimentEnabled(Settings.EXPERIMENT_FLAG_BATCH_UI_UPDATES);
+    if (batchUiUpdates) {
+      UI.beginBatch();
+    }
+    try {
+      if (updateCoalescerContext != context) {
+        updateCoalescer.flush();
+        updateCoalescerContext = context;
+      }
+      if (!updateCoalescer.offer(update, Settings.instance().isExperimentEnabled(Settings.EXPERIMENT_FLAG_COALESCE_UPDATES))) {
+        processUpdateImpl(context, update);
+      }
+    } finally {
+      if (batchUiUpdates) {
+        UI.endBatch();
+      }
+      PerfTrace.end(PerfTrace.Span.TDLIB_UPDATE, startTime);
+    }
+  }
+
+  private void processUpdateImpl (ClientHolder context, TdApi.Update update) {
     switch (update.getConstructor()) {
       // Notifications
       case TdApi.UpdateHavePendingNotifications.CONSTRUCTOR:
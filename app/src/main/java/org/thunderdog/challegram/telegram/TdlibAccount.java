@@ -617,7 +617,8 @@ public class TdlibAccount implements Comparable<TdlibAccount>, TdlibProvider {
       if (emojiStatus == null) {
         return null;
       }
-      TdlibEmojiManager.Entry entry = allowTdlib() ? tdlib().emoji().find(emojiStatus.customEmojiId) : null;
+      // Requests the sticker again when it was evicted, until then the stored one is returned
+      TdlibEmojiManager.Entry entry = allowTdlib() ? tdlib().emoji().findOrRequest(emojiStatus.customEmojiId, null) : null;
       if (entry != null) {
         return entry.isNotFound() ? null : entry.value;
       }
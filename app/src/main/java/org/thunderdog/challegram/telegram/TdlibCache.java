@@ -41,7 +41,9 @@ import org.thunderdog.challegram.loader.ImageFile;
 import org.thunderdog.challegram.tool.Strings;
 import org.thunderdog.challegram.tool.UI;
 import org.thunderdog.challegram.util.AppUpdater;
+import org.thunderdog.challegram.util.ContentionLock;
 import org.thunderdog.challegram.util.DrawableProvider;
+import org.thunderdog.challegram.util.LongMap;
 import org.thunderdog.challegram.util.text.Letters;
 import org.thunderdog.challegram.voip.annotation.CallState;
 import org.thunderdog.challegram.voip.gui.CallSettings;
@@ -50,7 +52,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import me.vkryl.android.AppInstallationUtil;
@@ -112,8 +113,8 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
   private final Tdlib tdlib;
   private volatile long myUserId;
 
-  private final HashMap<Long, TdApi.User> users = new HashMap<>();
-  private final HashMap<Long, TdApi.UserFullInfo> userFulls = new HashMap<>();
+  private final LongMap<TdApi.User> users = new LongMap<>();
+  private final LongMap<TdApi.UserFullInfo> userFulls = new LongMap<>();
   private final ReferenceLongMap<UserDataChangeListener> userListeners = new ReferenceLongMap<>(true);
 
   private final ReferenceMap.FullnessListener<Long, UserStatusChangeListener> statusFullnessListener = (list, isFull) -> setRefreshNeeded(isFull);
@@ -121,13 +122,13 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
   private final ReferenceLongMap<UserStatusChangeListener> simpleStatusListeners = new ReferenceLongMap<>(true, null);
   private final ReferenceList<MyUserDataChangeListener> myUserListeners = new ReferenceList<>(true);
 
-  private final HashMap<Long, TdApi.BasicGroup> basicGroup = new HashMap<>();
-  private final HashMap<Long, TdApi.BasicGroupFullInfo> basicGroupFull = new HashMap<>();
+  private final LongMap<TdApi.BasicGroup> basicGroup = new LongMap<>();
+  private final LongMap<TdApi.BasicGroupFullInfo> basicGroupFull = new LongMap<>();
   private final ReferenceList<BasicGroupDataChangeListener> groupsGlobalListeners = new ReferenceList<>(true);
   private final ReferenceLongMap<BasicGroupDataChangeListener> groupListeners = new ReferenceLongMap<>(true);
 
-  private final HashMap<Long, TdApi.Supergroup> supergroups = new HashMap<>();
-  private final HashMap<Long, TdApi.SupergroupFullInfo> supergroupsFulls = new HashMap<>();
+  private final LongMap<TdApi.Supergroup> supergroups = new LongMap<>();
+  private final LongMap<TdApi.SupergroupFullInfo> supergroupsFulls = new LongMap<>();
   private final LongSparseLongArray supergroupsFullsLastUpdateTime = new LongSparseLongArray();
   private final ReferenceList<SupergroupDataChangeListener> supergroupsGlobalListeners = new ReferenceList<>();
   private final ReferenceLongMap<SupergroupDataChangeListener> supergroupListeners = new ReferenceLongMap<>();
@@ -164,7 +165,16 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
     }
   };
 
-  private final Object dataLock = new Object();
+  // Writers of each entity type are serialized by its own lock, lookups are lock-free, see LongMap
+  private final ContentionLock userLock = new ContentionLock("TdlibCache.users");
+  private final ContentionLock groupLock = new ContentionLock("TdlibCache.basicGroups");
+  private final ContentionLock supergroupLock = new ContentionLock("TdlibCache.supergroups");
+  private final ContentionLock secretChatLock = new ContentionLock("TdlibCache.secretChats");
+  private final ContentionLock callLock = new ContentionLock("TdlibCache.calls");
+
+  public String getLockStats () {
+    return userLock + "\n" + groupLock + "\n" + supergroupLock + "\n" + secretChatLock + "\n" + callLock + "\n" + onlineLock;
+  }
 
   private TdApi.HttpUrl downloadUrl;
 
@@ -190,21 +200,22 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
     if (user == null) {
       return;
     }
-    synchronized (onlineMutex) {
-      if (user.status == null) {
-        return;
-      }
-      if (user.status.getConstructor() != TdApi.UserStatusOffline.CONSTRUCTOR) {
-        return;
-      }
-      if (((TdApi.UserStatusOffline) user.status).wasOnline != wasOnline) {
-        return;
-      }
+    final TdApi.UserStatus status = user.status;
+    if (status == null || status.getConstructor() != TdApi.UserStatusOffline.CONSTRUCTOR || ((TdApi.UserStatusOffline) status).wasOnline != wasOnline) {
+      return;
+    }
+    onlineLock.lock();
+    try {
       pendingStatusRefresh.delete(userId);
+    } finally {
+      onlineLock.unlock();
     }
-    notifyUserStatusChanged(userId, user.status, true);
-    synchronized (onlineMutex) {
-      checkUserStatus(user, user.status, false);
+    notifyUserStatusChanged(userId, status, true);
+    onlineLock.lock();
+    try {
+      checkUserStatus(user, status, false);
+    } finally {
+      onlineLock.unlock();
     }
   }
 
@@ -361,12 +372,15 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
   private boolean refreshActive;
 
   private void setRefreshNeeded (boolean refreshNeeded) {
-    synchronized (onlineMutex) {
+    onlineLock.lock();
+    try {
       if (this.refreshNeeded != refreshNeeded) {
         this.refreshNeeded = refreshNeeded;
         Log.i("accountId:%d refreshNeeded -> %b", tdlib.id(), refreshNeeded);
         checkRefreshActivity();
       }
+    } finally {
+      onlineLock.unlock();
     }
   }
 
@@ -394,12 +408,15 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
   }
 
   private void setPauseStatusRefreshers (boolean pause) {
-    synchronized (onlineMutex) {
+    onlineLock.lock();
+    try {
       if (this.refreshUiPaused != pause) {
         this.refreshUiPaused = pause;
         Log.i("accountId:%d refreshUiPaused -> %b", tdlib.id(), refreshUiPaused);
         checkRefreshActivity();
       }
+    } finally {
+      onlineLock.unlock();
     }
   }
 
@@ -415,12 +432,15 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
   @TdlibThread
   void onUpdateMyUserId (long userId) {
     TdApi.User myUser;
-    synchronized (dataLock) {
+    userLock.lock();
+    try {
       if (this.myUserId == userId) {
         return;
       }
       this.myUserId = userId;
       myUser = userId != 0 ? users.get(userId) : null;
+    } finally {
+      userLock.unlock();
     }
 
     if (userId != 0) {
@@ -448,7 +468,8 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
     final boolean isContactChanged;
     final boolean isContact;
     TdApi.User newUser = update.user;
-    synchronized (dataLock) {
+    userLock.lock();
+    try {
       TdApi.User oldUser = users.get(newUser.id);
       hadUser = oldUser != null;
       isContact = newUser.isContact;
@@ -456,17 +477,18 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
         statusChanged = !Td.equalsTo(oldUser.status, newUser.status);
         isContactChanged = oldUser.isContact != newUser.isContact;
         Td.copyTo(newUser, oldUser);
-        synchronized (onlineMutex) {
-          oldUser.status = newUser.status;
-        }
+        oldUser.status = newUser.status;
         newUser = oldUser;
       } else {
         statusChanged = isContactChanged = false;
         users.put(newUser.id, newUser);
       }
+    } finally {
+      userLock.unlock();
     }
 
     notifyUserListeners(newUser);
+    tdlib.searchIndex().onUserUpdated(newUser.id);
     boolean isMe = (newUser.id == myUserId);
     if (isMe) {
       notifyMyUserListeners(myUserListeners.iterator(), newUser);
@@ -478,8 +500,11 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
     if (statusChanged) {
       onUpdateUserStatus(new TdApi.UpdateUserStatus(newUser.id, newUser.status));
     } else {
-      synchronized (onlineMutex) {
+      onlineLock.lock();
+      try {
         checkUserStatus(newUser, newUser.status, false);
+      } finally {
+        onlineLock.unlock();
       }
     }
 
@@ -498,8 +523,11 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
   @TdlibThread
   void onUpdateUserFull (final TdApi.UpdateUserFullInfo update) {
     boolean updated;
-    synchronized (dataLock) {
+    userLock.lock();
+    try {
       updated = putUserFull(update.userId, update.userFullInfo);
+    } finally {
+      userLock.unlock();
     }
     if (updated) {
       notifyUserFullListeners(update.userId, update.userFullInfo);
@@ -511,7 +539,11 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
 
   // User statuses
 
-  private final Object onlineMutex = new Object();
+  // Guards pendingStatusRefresh, refresh flags and onlineHandler messages.
+  // Not striped: checkRefreshActivity() needs all pending users at once, and the lock is never held
+  // together with userLock, so the updates thread does not wait for refresh loops on the UI thread.
+  // User.status itself is replaced with a single reference write under userLock and read once by callers.
+  private final ContentionLock onlineLock = new ContentionLock("TdlibCache.online");
 
   @AnyThread
   private void checkUserStatus (TdApi.User user, TdApi.UserStatus status, boolean force) {
@@ -548,30 +580,32 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
 
   @TdlibThread
   void onUpdateUserStatus (final TdApi.UpdateUserStatus update) {
-    synchronized (dataLock) {
+    userLock.lock();
+    try {
       TdApi.User user = users.get(update.userId);
       if (user == null) {
         return;
       }
-      synchronized (onlineMutex) {
-        user.status = update.status;
-      }
+      user.status = update.status;
+    } finally {
+      userLock.unlock();
     }
     tdlib.dispatchUserStatus(update, false);
   }
 
   @UiThread
   void onUpdateUserStatusInternal (TdApi.UpdateUserStatus update, boolean uiOnly) {
-    TdApi.User user;
-    synchronized (dataLock) {
-      user = users.get(update.userId);
-      if (user == null) {
-        return;
-      }
+    final TdApi.User user = users.get(update.userId);
+    if (user == null) {
+      return;
     }
-    notifyUserStatusChanged(update.userId, user.status, uiOnly);
-    synchronized (onlineMutex) {
-      checkUserStatus(user, user.status, false);
+    final TdApi.UserStatus status = user.status;
+    notifyUserStatusChanged(update.userId, status, uiOnly);
+    onlineLock.lock();
+    try {
+      checkUserStatus(user, status, false);
+    } finally {
+      onlineLock.unlock();
     }
   }
 
@@ -581,12 +615,15 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
   void onUpdateBasicGroup (TdApi.UpdateBasicGroup update) {
     boolean updated;
     long migratedToSupergroupId;
-    synchronized (dataLock) {
+    groupLock.lock();
+    try {
       TdApi.BasicGroup group = update.basicGroup;
       TdApi.BasicGroup oldGroup = basicGroup.get(group.id);
       basicGroup.put(group.id, group);
       updated = oldGroup != null;
       migratedToSupergroupId = updated && oldGroup.upgradedToSupergroupId == 0 ? group.upgradedToSupergroupId : 0;
+    } finally {
+      groupLock.unlock();
     }
     if (updated) {
       notifyListeners(groupsGlobalListeners.iterator(), update.basicGroup, migratedToSupergroupId != 0);
@@ -597,8 +634,11 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
   @TdlibThread
   void onUpdateBasicGroupFull (TdApi.UpdateBasicGroupFullInfo update) {
     boolean updated;
-    synchronized (dataLock) {
+    groupLock.lock();
+    try {
       updated = putGroupFull(update.basicGroupId, update.basicGroupFullInfo);
+    } finally {
+      groupLock.unlock();
     }
     if (updated) {
       notifyListeners(groupsGlobalListeners.iterator(), update.basicGroupId, update.basicGroupFullInfo);
@@ -610,8 +650,11 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
   void onUpdateSupergroup (TdApi.UpdateSupergroup update, @Nullable TdApi.Chat chat) {
     final TdApi.Supergroup supergroup = update.supergroup;
     int updateMode;
-    synchronized (dataLock) {
+    supergroupLock.lock();
+    try {
       updateMode = putSupergroup(supergroup);
+    } finally {
+      supergroupLock.unlock();
     }
     if (updateMode != UPDATE_MODE_NONE) {
       notifyListeners(supergroupsGlobalListeners.iterator(), supergroup);
@@ -637,8 +680,11 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
     final long supergroupId = update.supergroupId;
     final TdApi.SupergroupFullInfo supergroupFullInfo = update.supergroupFullInfo;
     boolean updated;
-    synchronized (dataLock) {
+    supergroupLock.lock();
+    try {
       updated = putSupergroupFull(supergroupId, supergroupFullInfo);
+    } finally {
+      supergroupLock.unlock();
     }
     if (updated) {
       notifyListeners(supergroupsGlobalListeners.iterator(), supergroupId, supergroupFullInfo);
@@ -650,8 +696,11 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
   public void onUpdateSecretChat (TdApi.UpdateSecretChat update) {
     final TdApi.SecretChat secretChat = update.secretChat;
     boolean updated;
-    synchronized (dataLock) {
+    secretChatLock.lock();
+    try {
       updated = putSecretChat(secretChat);
+    } finally {
+      secretChatLock.unlock();
     }
     if (updated) {
       notifyListeners(secretChatsGlobalListeners.iterator(), secretChat);
@@ -676,13 +725,17 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
   }
 
   public CallSettings getCallSettings (int callId) {
-    synchronized (dataLock) {
+    callLock.lock();
+    try {
       return callSettings.get(callId);
+    } finally {
+      callLock.unlock();
     }
   }
 
   public TdApi.Call getPendingCall () {
-    synchronized (dataLock) {
+    callLock.lock();
+    try {
       final int size = calls.size();
       for (int i = size - 1; i >= 0; i--) {
         TdApi.Call call = calls.valueAt(i);
@@ -690,13 +743,18 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
           return call;
         }
       }
+    } finally {
+      callLock.unlock();
     }
     return null;
   }
 
   public TdApi.Call getCall (int callId) {
-    synchronized (dataLock) {
+    callLock.lock();
+    try {
       return calls.get(callId);
+    } finally {
+      callLock.unlock();
     }
   }
 
@@ -704,12 +762,15 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
   public void onUpdateCall (TdApi.UpdateCall update) {
     final TdApi.Call call = update.call;
     int delta;
-    synchronized (dataLock) {
+    callLock.lock();
+    try {
       TdApi.Call oldCall = calls.get(call.id);
       boolean wasActive = !TD.isFinished(oldCall);
       calls.put(call.id, call);
       boolean nowActive = !TD.isFinished(call);
       delta = wasActive != nowActive ? (nowActive ? 1 : -1) : 0;
+    } finally {
+      callLock.unlock();
     }
     notifyListeners(callsGlobalListeners.iterator(), call);
     notifyListeners(callListeners.iterator(call.id), call);
@@ -723,8 +784,11 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
 
   @UiThread
   public void onUpdateCallSettings (int callId, CallSettings settings) {
-    synchronized (dataLock) {
+    callLock.lock();
+    try {
       callSettings.put(callId, settings);
+    } finally {
+      callLock.unlock();
     }
     notifyListeners(callsGlobalListeners.iterator(), callId, settings);
     notifyListeners(callListeners.iterator(callId), callId, settings);
@@ -886,16 +950,14 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
 
   public int users (long[] userIds, ArrayList<TdApi.User> out) {
     int addedCount = 0;
-    synchronized (dataLock) {
-      for (long userId : userIds) {
-        if (userId != 0) {
-          TdApi.User user = users.get(userId);
-          if (user != null) {
-            out.add(user);
-            addedCount++;
-          } else {
-            Log.bug("updateUser missing for userId:%d", userId);
-          }
+    for (long userId : userIds) {
+      if (userId != 0) {
+        TdApi.User user = users.get(userId);
+        if (user != null) {
+          out.add(user);
+          addedCount++;
+        } else {
+          Log.bug("updateUser missing for userId:%d", userId);
         }
       }
     }
@@ -907,34 +969,28 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
       Log.bug("getUser for userId=0");
       return null;
     }
-    synchronized (dataLock) {
-      TdApi.User user = users.get(userId);
-      if (user == null)
-        Log.bug("updateUser missing for userId:%d", userId);
-      return user;
-    }
+    TdApi.User user = users.get(userId);
+    if (user == null)
+      Log.bug("updateUser missing for userId:%d", userId);
+    return user;
   }
 
   @NonNull
   public TdApi.User userStrict (long userId) {
     if (userId == 0)
       throw new IllegalArgumentException();
-    synchronized (dataLock) {
-      TdApi.User user = users.get(userId);
-      if (user == null)
-        throw new IllegalStateException("id" + userId);
-      return user;
-    }
+    TdApi.User user = users.get(userId);
+    if (user == null)
+      throw new IllegalStateException("id" + userId);
+    return user;
   }
 
   public boolean userLastSeenAvailable (long userId) {
     if (userId == 0)
       return false;
-    synchronized (dataLock) {
-      TdApi.User user = users.get(userId);
-      TdApi.UserStatus status = user != null ? user.status : null;
-      return status != null && status.getConstructor() == TdApi.UserStatusOffline.CONSTRUCTOR && ((TdApi.UserStatusOffline) status).wasOnline != 0;
-    }
+    TdApi.User user = users.get(userId);
+    TdApi.UserStatus status = user != null ? user.status : null;
+    return status != null && status.getConstructor() == TdApi.UserStatusOffline.CONSTRUCTOR && ((TdApi.UserStatusOffline) status).wasOnline != 0;
   }
 
   public boolean userGeneral (long userId) {
@@ -1103,17 +1159,13 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
 
   @Nullable
   public TdApi.UserFullInfo userFull (long userId, boolean allowRequest) {
-    TdApi.UserFullInfo userFull;
-    synchronized (dataLock) {
-      Long key = userId;
-      userFull = userFulls.get(key);
-      if (userFull == null || allowRequest) {
-        TdApi.User user = users.get(key);
-        if (user != null) {
-          tdlib.client().send(new TdApi.GetUserFullInfo(userId), dataHandler);
-        } else {
-          tdlib.client().send(new TdApi.GetUser(userId), ignored -> tdlib.client().send(new TdApi.GetUserFullInfo(userId), dataHandler));
-        }
+    final TdApi.UserFullInfo userFull = userFulls.get(userId);
+    if (userFull == null || allowRequest) {
+      TdApi.User user = users.get(userId);
+      if (user != null) {
+        tdlib.client().send(new TdApi.GetUserFullInfo(userId), dataHandler);
+      } else {
+        tdlib.client().send(new TdApi.GetUser(userId), ignored -> tdlib.client().send(new TdApi.GetUserFullInfo(userId), dataHandler));
       }
     }
     return userFull;
@@ -1152,14 +1204,10 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
 
   public @Nullable TdApi.User searchUser (String username, boolean allowDisabled) {
     TdApi.User result = null;
-    synchronized (dataLock) {
-      final Set<HashMap.Entry<Long, TdApi.User>> entries = users.entrySet();
-      for (HashMap.Entry<Long, TdApi.User> entry : entries) {
-        TdApi.User user = entry.getValue();
-        if (Td.findUsername(user, username, allowDisabled)) {
-          result = user;
-          break;
-        }
+    for (TdApi.User user : users.values()) {
+      if (Td.findUsername(user, username, allowDisabled)) {
+        result = user;
+        break;
       }
     }
     return result;
@@ -1167,21 +1215,17 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
 
   @Nullable
   public TdApi.BasicGroup basicGroup (long basicGroupId) {
-    synchronized (dataLock) {
-      return basicGroup.get(basicGroupId);
-    }
+    return basicGroup.get(basicGroupId);
   }
 
   @NonNull
   public TdApi.BasicGroup basicGroupStrict (long basicGroupId) {
     if (basicGroupId == 0)
       throw new IllegalArgumentException();
-    synchronized (dataLock) {
-      TdApi.BasicGroup group = basicGroup.get(basicGroupId);
-      if (group == null)
-        throw new IllegalStateException("id:" + basicGroupId);
-      return group;
-    }
+    TdApi.BasicGroup group = basicGroup.get(basicGroupId);
+    if (group == null)
+      throw new IllegalStateException("id:" + basicGroupId);
+    return group;
   }
 
   public boolean basicGroupActive (long basicGroupId) {
@@ -1196,14 +1240,12 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
 
   @Nullable
   public TdApi.BasicGroupFullInfo basicGroupFull (long basicGroupId, boolean allowRequest) {
-    synchronized (dataLock) {
-      return basicGroupFullUnsafe(basicGroupId, allowRequest);
-    }
+    return basicGroupFullUnsafe(basicGroupId, allowRequest);
   }
 
   @Nullable
   private TdApi.BasicGroupFullInfo basicGroupFullUnsafe (long basicGroupId, boolean allowRequest) {
-    Long key = basicGroupId;
+    long key = basicGroupId;
     TdApi.BasicGroupFullInfo groupFull;
     groupFull = basicGroupFull.get(key);
     if (groupFull == null || allowRequest) {
@@ -1246,21 +1288,17 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
 
   @Nullable
   public TdApi.Supergroup supergroup (long supergroupId) {
-    synchronized (dataLock) {
-      return supergroups.get(supergroupId);
-    }
+    return supergroups.get(supergroupId);
   }
 
   @NonNull
   public TdApi.Supergroup supergroupStrict (long supergroupId) {
     if (supergroupId == 0)
       throw new IllegalArgumentException();
-    synchronized (dataLock) {
-      TdApi.Supergroup supergroup = supergroups.get(supergroupId);
-      if (supergroup == null)
-        throw new IllegalStateException("id:" + supergroupId);
-      return supergroup;
-    }
+    TdApi.Supergroup supergroup = supergroups.get(supergroupId);
+    if (supergroup == null)
+      throw new IllegalStateException("id:" + supergroupId);
+    return supergroup;
   }
 
   @Nullable
@@ -1276,30 +1314,29 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
 
   @Nullable
   public TdApi.SupergroupFullInfo supergroupFull (long supergroupId, boolean allowRequest) {
-    TdApi.SupergroupFullInfo result;
-    synchronized (dataLock) {
-      Long key = supergroupId;
-      result = supergroupsFulls.get(key);
-      if (result == null || allowRequest) {
-        TdApi.Supergroup supergroup = supergroups.get(key);
-        if (supergroup != null) {
-          tdlib.client().send(new TdApi.GetSupergroupFullInfo(supergroupId), dataHandler);
-        } else {
-          tdlib.client().send(new TdApi.GetSupergroup(supergroupId), ignored -> tdlib.client().send(new TdApi.GetSupergroupFullInfo(supergroupId), dataHandler));
-        }
+    final TdApi.SupergroupFullInfo result = supergroupsFulls.get(supergroupId);
+    if (result == null || allowRequest) {
+      TdApi.Supergroup supergroup = supergroups.get(supergroupId);
+      if (supergroup != null) {
+        tdlib.client().send(new TdApi.GetSupergroupFullInfo(supergroupId), dataHandler);
+      } else {
+        tdlib.client().send(new TdApi.GetSupergroup(supergroupId), ignored -> tdlib.client().send(new TdApi.GetSupergroupFullInfo(supergroupId), dataHandler));
       }
     }
     return result;
   }
 
   public long getSlowModeDelayExpiresIn (long supergroupId, TimeUnit timeUnit) {
-    synchronized (dataLock) {
+    supergroupLock.lock();
+    try {
       final long lastUpdateTime = supergroupsFullsLastUpdateTime.get(supergroupId, 0);
       final TdApi.SupergroupFullInfo supergroupFullInfo = supergroupsFulls.get(supergroupId);
       if (supergroupFullInfo != null) {
         final long delayExpiresInMillis = TimeUnit.SECONDS.toMillis((long) supergroupFullInfo.slowModeDelayExpiresIn);
         return timeUnit.convert(Math.max(0, delayExpiresInMillis - (SystemClock.uptimeMillis() - lastUpdateTime)), TimeUnit.MILLISECONDS);
       }
+    } finally {
+      supergroupLock.unlock();
     }
 
     return 0;
@@ -1333,8 +1370,11 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
   }
 
   public @Nullable TdApi.SecretChat secretChat (int secretChatId) {
-    synchronized (dataLock) {
+    secretChatLock.lock();
+    try {
       return secretChats.get(secretChatId);
+    } finally {
+      secretChatLock.unlock();
     }
   }
 
@@ -1342,11 +1382,14 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
   public TdApi.SecretChat secretChatStrict (int secretChatId) {
     if (secretChatId == 0)
       throw new IllegalArgumentException();
-    synchronized (dataLock) {
+    secretChatLock.lock();
+    try {
       TdApi.SecretChat secretChat = secretChats.get(secretChatId);
       if (secretChat == null)
         throw new IllegalStateException("id:" + secretChatId);
       return secretChat;
+    } finally {
+      secretChatLock.unlock();
     }
   }
 
@@ -1359,11 +1402,8 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
   }
 
   public @Nullable TdApi.User myUser () {
-    TdApi.User result;
-    synchronized (dataLock) {
-      result = myUserId != 0 ? users.get(myUserId) : null;
-    }
-    return result;
+    final long myUserId = this.myUserId;
+    return myUserId != 0 ? users.get(myUserId) : null;
   }
 
   public boolean isOnline (long userId) {
@@ -1377,12 +1417,10 @@ public class TdlibCache implements LiveLocationManager.OutputDelegate, CleanupSt
       return false;
     }
     boolean isOnline;
-    synchronized (dataLock) {
-      if (userId != myUserId) {
-        isOnline = TD.isOnline(users.get(userId));
-      } else {
-        isOnline = true;
-      }
+    if (userId != myUserId) {
+      isOnline = TD.isOnline(users.get(userId));
+    } else {
+      isOnline = true;
     }
     return isOnline;
   }
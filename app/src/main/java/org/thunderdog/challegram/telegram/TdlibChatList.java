@@ -19,6 +19,7 @@ import androidx.annotation.Nullable;
 
 import org.drinkless.tdlib.TdApi;
 import org.thunderdog.challegram.data.TD;
+import org.thunderdog.challegram.util.LongMap;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -39,6 +40,9 @@ public class TdlibChatList implements Comparator<TdlibChatList.Entry>, CounterCh
     public final TdApi.ChatList chatList;
     public TdApi.ChatPosition effectivePosition;
 
+    // Aggregate flags this entry currently contributes to the list counters, guarded by list
+    private int flags;
+
     public Entry (TdApi.Chat chat, TdApi.ChatList chatList, TdApi.ChatPosition position) {
       this.chat = chat;
       this.chatList = chatList;
@@ -74,9 +78,22 @@ public class TdlibChatList implements Comparator<TdlibChatList.Entry>, CounterCh
     int END_REACHED = 2;
   }
 
+  private static final int FLAG_UNREAD_MENTIONS = 1;
+  private static final int FLAG_UNREAD_REACTIONS = 1 << 1;
+  private static final int FLAG_SCHEDULED_MESSAGES = 1 << 2;
+  private static final int FLAG_FAILED_MESSAGE = 1 << 3;
+
   private final Tdlib tdlib;
   private final TdApi.ChatList chatList;
+
+  // Sorted by Entry.compareTo. Modified only on TDLib thread, under synchronized (list)
   private final ArrayList<Entry> list = new ArrayList<>();
+  private final LongMap<Entry> entries = new LongMap<>();
+  private int unreadMentionsCount, unreadReactionsCount, scheduledMessagesCount, failedMessagesCount;
+
+  // Immutable snapshot of list, rebuilt on first read after any change
+  private volatile Entry[] snapshot;
+
   private final List<Runnable> onLoadMore = new ArrayList<>();
   private final List<RunnableData<TdApi.Chat>> perChatCallbacks = new ArrayList<>();
 
@@ -124,18 +141,18 @@ public class TdlibChatList implements Comparator<TdlibChatList.Entry>, CounterCh
   }
 
   public int count (@Nullable Filter<TdApi.Chat> filter) {
-    synchronized (list) {
-      if (filter == null) {
+    if (filter == null) {
+      synchronized (list) {
         return list.size();
       }
-      int count = 0;
-      for (Entry entry : list) {
-        if (filter.accept(entry.chat)) {
-          count++;
-        }
+    }
+    int count = 0;
+    for (Entry entry : snapshot()) {
+      if (filter.accept(entry.chat)) {
+        count++;
       }
-      return count;
     }
+    return count;
   }
 
   public List<Entry> listCopy (@Nullable Filter<TdApi.Chat> filter) {
@@ -154,65 +171,60 @@ public class TdlibChatList implements Comparator<TdlibChatList.Entry>, CounterCh
     return copy;
   }
 
+  private Entry[] snapshot () {
+    Entry[] snapshot = this.snapshot;
+    if (snapshot == null) {
+      synchronized (list) {
+        snapshot = this.snapshot;
+        if (snapshot == null) {
+          snapshot = list.toArray(new Entry[0]);
+          this.snapshot = snapshot;
+        }
+      }
+    }
+    return snapshot;
+  }
+
   public boolean hasUnreadMentions () {
     synchronized (list) {
-      for (Entry entry : list) {
-        if (entry.chat.unreadMentionCount > 0)
-          return true;
-      }
-      return false;
+      return unreadMentionsCount > 0;
     }
   }
 
   public boolean hasUnreadReactions () {
     synchronized (list) {
-      for (Entry entry : list) {
-        if (entry.chat.unreadReactionCount > 0)
-          return true;
-      }
-      return false;
+      return unreadReactionsCount > 0;
     }
   }
 
   public boolean hasScheduledMessages () {
     synchronized (list) {
-      for (Entry entry : list) {
-        if (entry.chat.hasScheduledMessages)
-          return true;
-      }
-      return false;
+      return scheduledMessagesCount > 0;
     }
   }
 
   public boolean hasFailedMessages () {
     synchronized (list) {
-      for (Entry entry : list) {
-        if (TD.isFailed(entry.chat.lastMessage))
-          return true;
-      }
-      return false;
+      return failedMessagesCount > 0;
     }
   }
 
   public int maxDate () {
-    synchronized (list) {
-      int maxDate = 0;
-      for (Entry entry : list) {
-        if (entry.chat.lastMessage != null) {
-          maxDate = Math.max(entry.chat.lastMessage.date, maxDate);
-          if (!ChatPosition.isPinned(entry.chat, chatList))
-            break;
-        }
+    int maxDate = 0;
+    // Pinned chats come first, so only they and the first other chat with a message have to be checked
+    for (Entry entry : snapshot()) {
+      if (entry.chat.lastMessage != null) {
+        maxDate = Math.max(entry.chat.lastMessage.date, maxDate);
+        if (!ChatPosition.isPinned(entry.chat, chatList))
+          break;
       }
-      return maxDate;
     }
+    return maxDate;
   }
 
   public void iterate (RunnableData<TdApi.Chat> callback) {
-    synchronized (list) {
-      for (Entry entry : list) {
-        callback.runWithData(entry.chat);
-      }
+    for (Entry entry : snapshot()) {
+      callback.runWithData(entry.chat);
     }
   }
 
@@ -333,14 +345,46 @@ public class TdlibChatList implements Comparator<TdlibChatList.Entry>, CounterCh
   }
 
   private int indexOfEntry (long chatId) {
-    int index = 0;
-    for (Entry entry : list) {
-      if (entry.chat.id == chatId) {
-        return index;
-      }
-      index++;
+    Entry entry = entries.get(chatId);
+    if (entry == null) {
+      return -1;
+    }
+    int index = Collections.binarySearch(list, entry, this);
+    if (index < 0)
+      throw new IllegalStateException();
+    return index;
+  }
+
+  private static int flagsOf (TdApi.Chat chat) {
+    int flags = 0;
+    if (chat.unreadMentionCount > 0) {
+      flags |= FLAG_UNREAD_MENTIONS;
+    }
+    if (chat.unreadReactionCount > 0) {
+      flags |= FLAG_UNREAD_REACTIONS;
+    }
+    if (chat.hasScheduledMessages) {
+      flags |= FLAG_SCHEDULED_MESSAGES;
+    }
+    if (TD.isFailed(chat.lastMessage)) {
+      flags |= FLAG_FAILED_MESSAGE;
+    }
+    return flags;
+  }
+
+  private void updateCounters (int flags, int delta) {
+    if ((flags & FLAG_UNREAD_MENTIONS) != 0) {
+      unreadMentionsCount += delta;
+    }
+    if ((flags & FLAG_UNREAD_REACTIONS) != 0) {
+      unreadReactionsCount += delta;
+    }
+    if ((flags & FLAG_SCHEDULED_MESSAGES) != 0) {
+      scheduledMessagesCount += delta;
+    }
+    if ((flags & FLAG_FAILED_MESSAGE) != 0) {
+      failedMessagesCount += delta;
     }
-    return -1;
   }
 
   // Updates handling
@@ -377,6 +421,7 @@ public class TdlibChatList implements Comparator<TdlibChatList.Entry>, CounterCh
             throw new IllegalStateException();
           newIndex = newIndex * -1 - 1;
           list.add(newIndex, existingEntry);
+          snapshot = null;
         }
         if (newIndex != prevIndex) {
           tdlib.listeners().updateChatMoved(this, existingEntry.chat, prevIndex, newIndex, changeInfo);
@@ -391,6 +436,26 @@ public class TdlibChatList implements Comparator<TdlibChatList.Entry>, CounterCh
     }
   }
 
+  /**
+   * Called whenever any chat property affecting {@link #hasUnreadMentions()}, {@link #hasUnreadReactions()},
+   * {@link #hasScheduledMessages()} or {@link #hasFailedMessages()} might have changed.
+   */
+  @TdlibThread
+  void onChatStateChanged (TdApi.Chat chat) {
+    synchronized (list) {
+      Entry entry = entries.get(chat.id);
+      if (entry == null) {
+        return;
+      }
+      int newFlags = flagsOf(entry.chat);
+      if (entry.flags != newFlags) {
+        updateCounters(entry.flags, -1);
+        updateCounters(newFlags, 1);
+        entry.flags = newFlags;
+      }
+    }
+  }
+
   // Internal
 
   private void addChatToList (Entry entry, Tdlib.ChatChange changeInfo) {
@@ -401,6 +466,10 @@ public class TdlibChatList implements Comparator<TdlibChatList.Entry>, CounterCh
         throw new IllegalStateException();
       atIndex = atIndex * -1 - 1;
       list.add(atIndex, entry);
+      entries.put(entry.chat.id, entry);
+      entry.flags = flagsOf(entry.chat);
+      updateCounters(entry.flags, 1);
+      snapshot = null;
     }
     for (RunnableData<TdApi.Chat> perChatCallback : perChatCallbacks) {
       perChatCallback.runWithData(entry.chat);
@@ -412,6 +481,9 @@ public class TdlibChatList implements Comparator<TdlibChatList.Entry>, CounterCh
     Entry entry;
     synchronized (list) {
       entry = list.remove(fromIndex);
+      entries.remove(entry.chat.id);
+      updateCounters(entry.flags, -1);
+      snapshot = null;
     }
     tdlib.listeners().updateChatRemoved(this, entry.chat, fromIndex, changeInfo);
   }
@@ -0,0 +1,221 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.telegram;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.thunderdog.challegram.Log;
+import org.thunderdog.challegram.unsorted.Settings;
+import org.thunderdog.challegram.util.LongMap;
+
+import me.vkryl.core.StringUtils;
+import me.vkryl.leveldb.LevelDB;
+
+/**
+ * In-memory copy of per-chat notification settings of a single account,
+ * stored in {@link Settings} under {@code custom_*_<chatId>} keys by {@link TdlibNotificationManager}.
+ *
+ * All keys are read with a single prefix scan on first access. {@link TdlibNotificationManager} writes every change
+ * to the database first and then to this snapshot. Reads are lock-free.
+ */
+final class TdlibChatNotificationSettings {
+  static final String KEY_PREFIX = "custom_";
+
+  // Key suffixes after KEY_PREFIX. Longer suffixes go first, so "sound_name_" is not taken for "sound_" with chat id "name_…"
+  private static final int
+    FIELD_SOUND_NAME = 0,
+    FIELD_SOUND_PATH = 1,
+    FIELD_SOUND = 2,
+    FIELD_VIBRATE_ONLY_IF_SILENT = 3,
+    FIELD_VIBRATE = 4,
+    FIELD_PRIORITY_OR_IMPORTANCE = 5,
+    FIELD_LED = 6,
+    FIELD_CALL_RINGTONE_NAME = 7,
+    FIELD_CALL_RINGTONE_PATH = 8,
+    FIELD_CALL_RINGTONE = 9,
+    FIELD_CALL_VIBRATE_ONLY_IF_SILENT = 10,
+    FIELD_CALL_VIBRATE = 11;
+
+  private static final String[] FIELD_KEYS = {
+    TdlibNotificationManager._CUSTOM_SOUND_NAME_KEY,
+    TdlibNotificationManager._CUSTOM_SOUND_PATH_KEY,
+    TdlibNotificationManager._CUSTOM_SOUND_KEY,
+    TdlibNotificationManager._CUSTOM_VIBRATE_ONLYSILENT_KEY,
+    TdlibNotificationManager._CUSTOM_VIBRATE_KEY,
+    TdlibNotificationManager._CUSTOM_PRIORITY_OR_IMPORTANCE_KEY,
+    TdlibNotificationManager._CUSTOM_LED_KEY,
+    TdlibNotificationManager._CUSTOM_CALL_RINGTONE_NAME_KEY,
+    TdlibNotificationManager._CUSTOM_CALL_RINGTONE_PATH_KEY,
+    TdlibNotificationManager._CUSTOM_CALL_RINGTONE_KEY,
+    TdlibNotificationManager._CUSTOM_CALL_VIBRATE_ONLYSILENT_KEY,
+    TdlibNotificationManager._CUSTOM_CALL_VIBRATE_KEY
+  };
+
+  static final class Chat {
+    static final Chat EMPTY = new Chat();
+
+    @Nullable Integer vibrateMode;
+    @Nullable Boolean vibrateOnlyIfSilent;
+    @Nullable Integer priorityOrImportance;
+    @Nullable Integer ledColor;
+    @Nullable String sound, soundName, soundPath;
+    @Nullable Integer callVibrateMode;
+    @Nullable Boolean callVibrateOnlyIfSilent;
+    @Nullable String callRingtone, callRingtoneName, callRingtonePath;
+
+    Chat () { }
+
+    Chat (Chat copy) {
+      this.vibrateMode = copy.vibrateMode;
+      this.vibrateOnlyIfSilent = copy.vibrateOnlyIfSilent;
+      this.priorityOrImportance = copy.priorityOrImportance;
+      this.ledColor = copy.ledColor;
+      this.sound = copy.sound;
+      this.soundName = copy.soundName;
+      this.soundPath = copy.soundPath;
+      this.callVibrateMode = copy.callVibrateMode;
+      this.callVibrateOnlyIfSilent = copy.callVibrateOnlyIfSilent;
+      this.callRingtone = copy.callRingtone;
+      this.callRingtoneName = copy.callRingtoneName;
+      this.callRingtonePath = copy.callRingtonePath;
+    }
+
+    boolean isEmpty () {
+      return vibrateMode == null && vibrateOnlyIfSilent == null && priorityOrImportance == null && ledColor == null &&
+        sound == null && soundName == null && soundPath == null &&
+        callVibrateMode == null && callVibrateOnlyIfSilent == null &&
+        callRingtone == null && callRingtoneName == null && callRingtonePath == null;
+    }
+
+    private void set (int field, LevelDB.Entry entry) {
+      switch (field) {
+        case FIELD_SOUND: sound = entry.asString(); break;
+        case FIELD_SOUND_NAME: soundName = entry.asString(); break;
+        case FIELD_SOUND_PATH: soundPath = entry.asString(); break;
+        case FIELD_VIBRATE: vibrateMode = entry.asInt(); break;
+        case FIELD_VIBRATE_ONLY_IF_SILENT: vibrateOnlyIfSilent = entry.asBoolean(); break;
+        case FIELD_PRIORITY_OR_IMPORTANCE: priorityOrImportance = entry.asInt(); break;
+        case FIELD_LED: ledColor = entry.asInt(); break;
+        case FIELD_CALL_RINGTONE: callRingtone = entry.asString(); break;
+        case FIELD_CALL_RINGTONE_NAME: callRingtoneName = entry.asString(); break;
+        case FIELD_CALL_RINGTONE_PATH: callRingtonePath = entry.asString(); break;
+        case FIELD_CALL_VIBRATE: callVibrateMode = entry.asInt(); break;
+        case FIELD_CALL_VIBRATE_ONLY_IF_SILENT: callVibrateOnlyIfSilent = entry.asBoolean(); break;
+      }
+    }
+  }
+
+  interface Editor {
+    void edit (@NonNull Chat chat);
+  }
+
+  private final int accountId;
+  private final LongMap<Chat> chats = new LongMap<>();
+  private volatile boolean isLoaded;
+
+  TdlibChatNotificationSettings (int accountId) {
+    this.accountId = accountId;
+  }
+
+  @NonNull
+  Chat get (long chatId) {
+    if (!isLoaded) {
+      load();
+    }
+    Chat chat = chats.get(chatId);
+    return chat != null ? chat : Chat.EMPTY;
+  }
+
+  /**
+   * Applies change that has already been written to the database.
+   */
+  void edit (long chatId, @NonNull Editor editor) {
+    synchronized (chats) {
+      if (!isLoaded) {
+        // Will be read from the database on first access
+        return;
+      }
+      Chat chat = chats.get(chatId);
+      chat = chat != null ? new Chat(chat) : new Chat();
+      editor.edit(chat);
+      chats.put(chatId, chat.isEmpty() ? null : chat);
+    }
+  }
+
+  /**
+   * Forgets all settings, so they get loaded from the database again on next access.
+   */
+  void reset () {
+    synchronized (chats) {
+      isLoaded = false;
+      chats.clear();
+    }
+  }
+
+  private static long parseChatId (String key, int start) {
+    final int end = key.length();
+    int i = start < end && key.charAt(start) == '-' ? start + 1 : start;
+    if (i == end) {
+      return 0;
+    }
+    for (; i < end; i++) {
+      char c = key.charAt(i);
+      if (c < '0' || c > '9') {
+        return 0;
+      }
+    }
+    return StringUtils.parseLong(key.substring(start));
+  }
+
+  private void load () {
+    synchronized (chats) {
+      if (isLoaded) {
+        return;
+      }
+      final String prefix = TdlibNotificationManager.key(KEY_PREFIX, accountId);
+      final int accountPrefixLength = prefix.length() - KEY_PREFIX.length();
+      int count = 0;
+      for (LevelDB.Entry entry : Settings.instance().pmc().find(prefix)) {
+        final String key = entry.key();
+        for (int field = 0; field < FIELD_KEYS.length; field++) {
+          final String fieldKey = FIELD_KEYS[field];
+          if (!key.startsWith(fieldKey, accountPrefixLength)) {
+            continue;
+          }
+          final long chatId = parseChatId(key, accountPrefixLength + fieldKey.length());
+          if (chatId == 0) {
+            // Legacy user_<id> keys
+            continue;
+          }
+          Chat chat = chats.get(chatId);
+          if (chat == null) {
+            chat = new Chat();
+            chats.put(chatId, chat);
+          }
+          try {
+            chat.set(field, entry);
+            count++;
+          } catch (Throwable t) {
+            Log.e("Unable to read notification setting: %s", t, key);
+          }
+          break;
+        }
+      }
+      Log.i("Loaded %d custom notification settings for %d chats, accountId: %d", count, chats.size(), accountId);
+      isLoaded = true;
+    }
+  }
+}
@@ -52,7 +52,10 @@ import java.lang.ref.Reference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import me.vkryl.core.ArrayUtils;
 import me.vkryl.core.DateUtils;
@@ -91,6 +94,9 @@ public class TdlibContactManager implements CleanupStartupDelegate {
   public static final int HIDE_OPTION_LATER = 1;
   public static final int HIDE_OPTION_NEVER = 2;
 
+  private static final String _SNAPSHOT_KEY = "sync_snapshot";
+  private static final String _SNAPSHOT_DATE_KEY = "sync_snapshot_date";
+
   private static final String _STATUS_KEY = "sync_state";
   public static final int STATUS_INACTIVE = 0;
   public static final int STATUS_IN_FIRST_PROGRESS = 1;
@@ -200,6 +206,7 @@ public class TdlibContactManager implements CleanupStartupDelegate {
   }
 
   public void deleteContacts () {
+    clearSnapshot();
     tdlib.client().send(new TdApi.ClearImportedContacts(), new Client.ResultHandler() {
       @Override
       public void onResult (TdApi.Object clearImportResult) {
@@ -248,6 +255,7 @@ public class TdlibContactManager implements CleanupStartupDelegate {
     setState(STATE_NOT_STARTED);
     setRegisteredContactsImpl(null, 0, false);
     maxModificationDate = 0;
+    clearSnapshot();
     if (includeServer) {
       tdlib.client().send(new TdApi.ClearImportedContacts(), tdlib.okHandler());
       tdlib.client().send(new TdApi.ChangeImportedContacts(new TdApi.Contact[0]), object -> {
@@ -564,7 +572,7 @@ public class TdlibContactManager implements CleanupStartupDelegate {
         public void act () {
 
         }
-      }, contactsArray);
+      }, contactsArray, false);
       if (callback != null) {
         callback.run();
       }
@@ -1054,14 +1062,254 @@ public class TdlibContactManager implements CleanupStartupDelegate {
     if (cancellationSignal.isPending()) {
       if (result != null) {
         this.maxModificationDate = maxModificationDate;
-        importContacts(cancellationSignal, result);
+        syncContacts(cancellationSignal, result);
       } else {
         setState(STATE_NOT_STARTED);
       }
     }
   }
 
-  private void importContacts (final CancellableRunnable cancellationSingal, final TdApi.Contact[] contacts) {
+  // Snapshot of imported contacts
+
+  // Full import is still performed from time to time, so importer counts and server state do not drift away
+  private static final long SNAPSHOT_MAX_AGE = TimeUnit.DAYS.toMillis(7);
+  private static final int SYNC_BATCH_SIZE = 100;
+
+  private static class SnapshotEntry {
+    public final long contentHash;
+    public final long userId;
+    public final int importerCount;
+
+    public SnapshotEntry (long contentHash, long userId, int importerCount) {
+      this.contentHash = contentHash;
+      this.userId = userId;
+      this.importerCount = importerCount;
+    }
+  }
+
+  private static long hash (long hash, @Nullable String value) {
+    // FNV-1a
+    if (value != null) {
+      final int length = value.length();
+      for (int i = 0; i < length; i++) {
+        hash ^= value.charAt(i);
+        hash *= 0x100000001b3L;
+      }
+    }
+    hash ^= 0xff;
+    hash *= 0x100000001b3L;
+    return hash;
+  }
+
+  private static long phoneKey (TdApi.Contact contact) {
+    return hash(0xcbf29ce484222325L, contact.phoneNumber);
+  }
+
+  private static long contentHash (TdApi.Contact contact) {
+    return hash(hash(0xcbf29ce484222325L, contact.firstName), contact.lastName);
+  }
+
+  /**
+   * Groups contacts by phone number, the key used by TDLib when importing.
+   * Hashes of contacts sharing the same phone number are summed, so the result does not depend on cursor order.
+   */
+  private static LinkedHashMap<Long, TdApi.Contact> groupByPhone (TdApi.Contact[] contacts, HashMap<Long, Long> outContentHashes) {
+    LinkedHashMap<Long, TdApi.Contact> map = new LinkedHashMap<>(contacts.length);
+    for (TdApi.Contact contact : contacts) {
+      final long phoneKey = phoneKey(contact);
+      if (!map.containsKey(phoneKey)) {
+        map.put(phoneKey, contact);
+      }
+      Long contentHash = outContentHashes.get(phoneKey);
+      outContentHashes.put(phoneKey, (contentHash != null ? contentHash : 0) + contentHash(contact));
+    }
+    return map;
+  }
+
+  @Nullable
+  private HashMap<Long, SnapshotEntry> restoreSnapshot () {
+    final long date = Settings.instance().getLong(key(_SNAPSHOT_DATE_KEY), 0);
+    if (date == 0 || System.currentTimeMillis() - date > SNAPSHOT_MAX_AGE) {
+      return null;
+    }
+    long[] data = Settings.instance().getLongArray(key(_SNAPSHOT_KEY));
+    if (data == null || data.length % 4 != 0) {
+      return null;
+    }
+    HashMap<Long, SnapshotEntry> snapshot = new HashMap<>(data.length / 4);
+    for (int i = 0; i < data.length; i += 4) {
+      snapshot.put(data[i], new SnapshotEntry(data[i + 1], data[i + 2], (int) data[i + 3]));
+    }
+    return snapshot;
+  }
+
+  private void saveSnapshot (HashMap<Long, SnapshotEntry> snapshot, boolean isFullImport) {
+    long[] data = new long[snapshot.size() * 4];
+    int i = 0;
+    for (Map.Entry<Long, SnapshotEntry> entry : snapshot.entrySet()) {
+      SnapshotEntry value = entry.getValue();
+      data[i++] = entry.getKey();
+      data[i++] = value.contentHash;
+      data[i++] = value.userId;
+      data[i++] = value.importerCount;
+    }
+    Settings.instance().putLongArray(key(_SNAPSHOT_KEY), data);
+    if (isFullImport) {
+      Settings.instance().putLong(key(_SNAPSHOT_DATE_KEY), System.currentTimeMillis());
+    }
+  }
+
+  private void clearSnapshot () {
+    Settings.instance().remove(key(_SNAPSHOT_KEY));
+    Settings.instance().remove(key(_SNAPSHOT_DATE_KEY));
+  }
+
+  private void syncContacts (final CancellableRunnable cancellationSignal, final TdApi.Contact[] contacts) {
+    final HashMap<Long, SnapshotEntry> snapshot = UI.inTestMode() ? null : restoreSnapshot();
+    if (snapshot == null) {
+      importContacts(cancellationSignal, contacts, !UI.inTestMode());
+      return;
+    }
+
+    final HashMap<Long, Long> contentHashes = new HashMap<>(contacts.length);
+    final LinkedHashMap<Long, TdApi.Contact> phoneContacts = groupByPhone(contacts, contentHashes);
+
+    final ArrayList<TdApi.Contact> changedContacts = new ArrayList<>();
+    for (Map.Entry<Long, TdApi.Contact> entry : phoneContacts.entrySet()) {
+      SnapshotEntry snapshotEntry = snapshot.get(entry.getKey());
+      //noinspection ConstantConditions
+      if (snapshotEntry == null || snapshotEntry.contentHash != contentHashes.get(entry.getKey())) {
+        changedContacts.add(entry.getValue());
+      }
+    }
+    final ArrayList<Long> removedUserIds = new ArrayList<>();
+    final ArrayList<Long> removedKeys = new ArrayList<>();
+    int removedUnregisteredCount = 0;
+    for (Map.Entry<Long, SnapshotEntry> entry : snapshot.entrySet()) {
+      if (!phoneContacts.containsKey(entry.getKey())) {
+        if (entry.getValue().userId != 0) {
+          removedUserIds.add(entry.getValue().userId);
+          removedKeys.add(entry.getKey());
+        } else {
+          removedUnregisteredCount++;
+        }
+      }
+    }
+
+    Log.i(Log.TAG_CONTACT, "Contacts delta: changed:%d, removed:%d, removedUnregistered:%d, total:%d", changedContacts.size(), removedKeys.size(), removedUnregisteredCount, phoneContacts.size());
+    if (removedUnregisteredCount > 0) {
+      // Someone could have registered with a removed phone number after it was imported,
+      // and RemoveContacts needs their identifier, which is not known.
+      // ChangeImportedContacts removes all contacts that are missing from the list instead.
+      importContacts(cancellationSignal, contacts, true);
+      return;
+    }
+    if (changedContacts.isEmpty() && removedKeys.isEmpty()) {
+      onSyncFinished(cancellationSignal, phoneContacts, snapshot);
+      return;
+    }
+    importChangedContacts(cancellationSignal, phoneContacts, contentHashes, snapshot, changedContacts, removedUserIds, removedKeys, 0);
+  }
+
+  private void importChangedContacts (final CancellableRunnable cancellationSignal, final LinkedHashMap<Long, TdApi.Contact> phoneContacts, final HashMap<Long, Long> contentHashes, final HashMap<Long, SnapshotEntry> snapshot, final ArrayList<TdApi.Contact> changedContacts, final ArrayList<Long> removedUserIds, final ArrayList<Long> removedKeys, final int offset) {
+    if (offset >= changedContacts.size() || !cancellationSignal.isPending()) {
+      removeDeletedContacts(cancellationSignal, phoneContacts, snapshot, removedUserIds, removedKeys, 0);
+      return;
+    }
+    final int count = Math.min(SYNC_BATCH_SIZE, changedContacts.size() - offset);
+    final TdApi.Contact[] batch = changedContacts.subList(offset, offset + count).toArray(new TdApi.Contact[0]);
+    tdlib.client().send(new TdApi.ImportContacts(batch), object -> {
+      switch (object.getConstructor()) {
+        case TdApi.ImportedContacts.CONSTRUCTOR: {
+          TdApi.ImportedContacts imported = (TdApi.ImportedContacts) object;
+          for (int i = 0; i < batch.length && i < imported.userIds.length; i++) {
+            final long phoneKey = phoneKey(batch[i]);
+            //noinspection ConstantConditions
+            snapshot.put(phoneKey, new SnapshotEntry(contentHashes.get(phoneKey), imported.userIds[i], imported.importerCount[i]));
+          }
+          importChangedContacts(cancellationSignal, phoneContacts, contentHashes, snapshot, changedContacts, removedUserIds, removedKeys, offset + count);
+          break;
+        }
+        case TdApi.Error.CONSTRUCTOR: {
+          // Contacts that were not imported keep their old hash, so they will be retried during next sync
+          Log.e(Log.TAG_CONTACT, "importContacts: %s", TD.toErrorString(object));
+          removeDeletedContacts(cancellationSignal, phoneContacts, snapshot, removedUserIds, removedKeys, 0);
+          break;
+        }
+      }
+    });
+  }
+
+  private void removeDeletedContacts (final CancellableRunnable cancellationSignal, final LinkedHashMap<Long, TdApi.Contact> phoneContacts, final HashMap<Long, SnapshotEntry> snapshot, final ArrayList<Long> removedUserIds, final ArrayList<Long> removedKeys, final int offset) {
+    if (offset >= removedUserIds.size() || !cancellationSignal.isPending()) {
+      if (cancellationSignal.isPending()) {
+        // Not saved after reset, progress of cancelled sync is simply repeated next time
+        saveSnapshot(snapshot, false);
+      }
+      onSyncFinished(cancellationSignal, phoneContacts, snapshot);
+      return;
+    }
+    final int count = Math.min(SYNC_BATCH_SIZE, removedUserIds.size() - offset);
+    final long[] userIds = ArrayUtils.asArray(removedUserIds.subList(offset, offset + count));
+    tdlib.client().send(new TdApi.RemoveContacts(userIds), object -> {
+      switch (object.getConstructor()) {
+        case TdApi.Ok.CONSTRUCTOR: {
+          for (int i = offset; i < offset + count; i++) {
+            snapshot.remove(removedKeys.get(i));
+          }
+          removeDeletedContacts(cancellationSignal, phoneContacts, snapshot, removedUserIds, removedKeys, offset + count);
+          break;
+        }
+        case TdApi.Error.CONSTRUCTOR: {
+          Log.e(Log.TAG_CONTACT, "removeContacts: %s", TD.toErrorString(object));
+          removeDeletedContacts(cancellationSignal, phoneContacts, snapshot, removedUserIds, removedKeys, removedUserIds.size());
+          break;
+        }
+      }
+    });
+  }
+
+  private void onSyncFinished (CancellableRunnable cancellationSignal, LinkedHashMap<Long, TdApi.Contact> phoneContacts, HashMap<Long, SnapshotEntry> snapshot) {
+    if (cancellationSignal.isPending()) {
+      ArrayList<UnregisteredContact> unregisteredContacts = null;
+      for (Map.Entry<Long, TdApi.Contact> entry : phoneContacts.entrySet()) {
+        SnapshotEntry snapshotEntry = snapshot.get(entry.getKey());
+        if (snapshotEntry != null && snapshotEntry.userId == 0) {
+          if (unregisteredContacts == null) {
+            unregisteredContacts = new ArrayList<>();
+          }
+          TdApi.Contact contact = entry.getValue();
+          unregisteredContacts.add(new UnregisteredContact(contact, formatPhoneNumber(contact.phoneNumber), snapshotEntry.importerCount));
+        }
+      }
+      if (unregisteredContacts != null) {
+        sortUnregisteredContacts(unregisteredContacts);
+      }
+      setUnregisteredContacts(unregisteredContacts);
+      checkRegisteredCount();
+    }
+    setState(STATE_FINISHED);
+  }
+
+  private static void sortUnregisteredContacts (ArrayList<UnregisteredContact> unregisteredContacts) {
+    unregisteredContacts.trimToSize();
+    Collections.sort(unregisteredContacts, (o1, o2) -> {
+      int c;
+      c = Integer.compare(o2.importerCount, o1.importerCount);
+      if (c != 0) {
+        return c;
+      }
+      String n1 = TD.getUserName(o1.contact.firstName, o1.contact.lastName).toLowerCase();
+      String n2 = TD.getUserName(o2.contact.firstName, o2.contact.lastName).toLowerCase();
+      c = n1.compareTo(n2);
+      if (c != 0) {
+        return c;
+      }
+      return o1.contact.phoneNumber.compareTo(o2.contact.phoneNumber);
+    });
+  }
+
+  private void importContacts (final CancellableRunnable cancellationSingal, final TdApi.Contact[] contacts, final boolean saveSnapshot) {
     if (Log.isEnabled(Log.TAG_CONTACT)) {
       if (Log.checkLogLevel(Log.LEVEL_VERBOSE)) {
         Log.v(Log.TAG_CONTACT, "Importing %d contacts...\n%s", contacts.length, TextUtils.join("\n", contacts));
@@ -1073,6 +1321,19 @@ public class TdlibContactManager implements CleanupStartupDelegate {
       switch (object.getConstructor()) {
         case TdApi.ImportedContacts.CONSTRUCTOR: {
           TdApi.ImportedContacts imported = (TdApi.ImportedContacts) object;
+          if (saveSnapshot && cancellationSingal.isPending()) {
+            HashMap<Long, Long> contentHashes = new HashMap<>(contacts.length);
+            groupByPhone(contacts, contentHashes);
+            HashMap<Long, SnapshotEntry> snapshot = new HashMap<>(contentHashes.size());
+            for (int index = 0; index < contacts.length && index < imported.userIds.length; index++) {
+              final long phoneKey = phoneKey(contacts[index]);
+              if (!snapshot.containsKey(phoneKey)) {
+                //noinspection ConstantConditions
+                snapshot.put(phoneKey, new SnapshotEntry(contentHashes.get(phoneKey), imported.userIds[index], imported.importerCount[index]));
+              }
+            }
+            saveSnapshot(snapshot, true);
+          }
           ArrayList<UnregisteredContact> unregisteredContacts = null;
           int i = 0;
           for (long userId : imported.userIds) {
@@ -1088,21 +1349,7 @@ public class TdlibContactManager implements CleanupStartupDelegate {
           }
           if (cancellationSingal.isPending()) {
             if (unregisteredContacts != null) {
-              unregisteredContacts.trimToSize();
-              Collections.sort(unregisteredContacts, (o1, o2) -> {
-                int c;
-                c = Integer.compare(o2.importerCount, o1.importerCount);
-                if (c != 0) {
-                  return c;
-                }
-                String n1 = TD.getUserName(o1.contact.firstName, o1.contact.lastName).toLowerCase();
-                String n2 = TD.getUserName(o2.contact.firstName, o2.contact.lastName).toLowerCase();
-                c = n1.compareTo(n2);
-                if (c != 0) {
-                  return c;
-                }
-                return o1.contact.phoneNumber.compareTo(o2.contact.phoneNumber);
-              });
+              sortUnregisteredContacts(unregisteredContacts);
               setUnregisteredContacts(unregisteredContacts);
             } else {
               setUnregisteredContacts(null);
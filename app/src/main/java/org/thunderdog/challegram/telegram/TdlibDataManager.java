@@ -14,6 +14,8 @@
  */
 package org.thunderdog.challegram.telegram;
 
+import android.os.SystemClock;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.UiThread;
@@ -21,6 +23,10 @@ import androidx.annotation.UiThread;
 import org.drinkless.tdlib.TdApi;
 import org.thunderdog.challegram.util.BatchOperationHandler;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -55,10 +61,52 @@ abstract class TdlibDataManager<Key, Value extends TdApi.Object, Result extends
 
   protected abstract Result newEntry (@NonNull Key key, @Nullable Value value, @Nullable TdApi.Error error);
 
+  protected static final int DEFAULT_MAX_ENTRY_COUNT = 2000;
+
+  /**
+   * @return Maximum amount of entries kept in memory. Least recently used entries are evicted first.
+   */
+  protected int maxEntryCount () {
+    return DEFAULT_MAX_ENTRY_COUNT;
+  }
+
+  /**
+   * @return Maximum amount of keys passed to a single {@link #requestData} call,
+   * after which postponed requests are performed without waiting for the batch delay.
+   */
+  protected int maxBatchSize () {
+    return Integer.MAX_VALUE;
+  }
+
   protected final Tdlib tdlib;
 
   private final Object dataLock = new Object();
-  private final Map<Key, Result> entries = new HashMap<>();
+  // Access-ordered, so the eldest entry is the least recently used one
+  private final LinkedHashMap<Key, Result> entries = new LinkedHashMap<Key, Result>(16, .75f, true) {
+    @Override
+    protected boolean removeEldestEntry (Map.Entry<Key, Result> eldest) {
+      if (size() > maxEntryCount()) {
+        evictedCount++;
+        onEntryEvicted(eldest.getKey(), eldest.getValue());
+        return true;
+      }
+      return false;
+    }
+  };
+  private int evictedCount, restoredCount;
+  // Evicted entries are still returned while something else holds them (e.g. a displayed custom emoji),
+  // so callers that use only find() do not lose data of content that is on screen
+  private final Map<Key, EvictedEntry<Key, Result>> evictedEntries = new HashMap<>();
+  private final ReferenceQueue<Result> evictedQueue = new ReferenceQueue<>();
+
+  private static final class EvictedEntry<K, R> extends WeakReference<R> {
+    public final K key;
+
+    public EvictedEntry (K key, R entry, ReferenceQueue<? super R> queue) {
+      super(entry, queue);
+      this.key = key;
+    }
+  }
   private final Set<Key> postponedKeys = new HashSet<>();
   private final Set<Key> loadingKeys = new HashSet<>();
   private final ReferenceMap<Key, Watcher<Key, Value, Result>> watcherReferences = new ReferenceMap<>(true);
@@ -78,6 +126,7 @@ abstract class TdlibDataManager<Key, Value extends TdApi.Object, Result extends
     synchronized (dataLock) {
       contextId++;
       entries.clear();
+      evictedEntries.clear();
       // TODO cancel all pending requests
     }
   }
@@ -87,7 +136,38 @@ abstract class TdlibDataManager<Key, Value extends TdApi.Object, Result extends
   @UiThread
   public final Result find (Key key) {
     synchronized (dataLock) {
-      return entries.get(key);
+      return findImpl(key);
+    }
+  }
+
+  private Result findImpl (Key key) {
+    Result entry = entries.get(key);
+    if (entry == null && !evictedEntries.isEmpty()) {
+      EvictedEntry<Key, Result> evicted = evictedEntries.remove(key);
+      entry = evicted != null ? evicted.get() : null;
+      if (entry != null) {
+        restoredCount++;
+        entries.put(key, entry);
+      }
+    }
+    return entry;
+  }
+
+  private void onEntryEvicted (Key key, Result entry) {
+    purgeEvictedEntries();
+    if (entry.value != null) {
+      evictedEntries.put(key, new EvictedEntry<>(key, entry, evictedQueue));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void purgeEvictedEntries () {
+    Reference<? extends Result> reference;
+    while ((reference = evictedQueue.poll()) != null) {
+      EvictedEntry<Key, Result> evicted = (EvictedEntry<Key, Result>) reference;
+      if (evictedEntries.get(evicted.key) == evicted) {
+        evictedEntries.remove(evicted.key);
+      }
     }
   }
 
@@ -119,7 +199,7 @@ abstract class TdlibDataManager<Key, Value extends TdApi.Object, Result extends
   @Nullable
   public final Result findOrPostponeRequest (Key key, Watcher<Key, Value, Result> watcher, boolean strongReference) {
     synchronized (dataLock) {
-      Result entry = entries.get(key);
+      Result entry = findImpl(key);
       if (entry != null) {
         return entry;
       }
@@ -152,7 +232,49 @@ abstract class TdlibDataManager<Key, Value extends TdApi.Object, Result extends
     watcherReferences.remove(key, watcher);
   }
 
-  private final BatchOperationHandler delayedHandler = new BatchOperationHandler(this::performPostponedRequests, 10);
+  private static final long MIN_BATCH_DELAY_MS = 10;
+  private static final long MAX_BATCH_DELAY_MS = 80;
+
+  private long batchDelay = MIN_BATCH_DELAY_MS;
+  private long firstPostponedTime;
+
+  private final BatchOperationHandler delayedHandler = new BatchOperationHandler(this::performPostponedRequests, MIN_BATCH_DELAY_MS) {
+    @Override
+    protected long batchOperationDelay () {
+      return nextBatchDelay();
+    }
+  };
+
+  /**
+   * Batch window grows while requests arrive in bursts and shrinks back when they come one by one.
+   * Requests are never delayed more than {@link #MAX_BATCH_DELAY_MS} since the first postponed one,
+   * and are sent right away once there is enough of them for a full batch.
+   */
+  @UiThread
+  private long nextBatchDelay () {
+    final int postponedCount;
+    synchronized (dataLock) {
+      postponedCount = postponedKeys.size();
+    }
+    if (postponedCount >= maxBatchSize()) {
+      return 0;
+    }
+    final long now = SystemClock.uptimeMillis();
+    if (firstPostponedTime == 0) {
+      firstPostponedTime = now;
+    }
+    return Math.max(0, Math.min(batchDelay, firstPostponedTime + MAX_BATCH_DELAY_MS - now));
+  }
+
+  @UiThread
+  private void onBatchPerformed (int keyCount) {
+    firstPostponedTime = 0;
+    if (keyCount > 1) {
+      batchDelay = Math.min(MAX_BATCH_DELAY_MS, batchDelay * 2);
+    } else {
+      batchDelay = Math.max(MIN_BATCH_DELAY_MS, batchDelay / 2);
+    }
+  }
 
   @UiThread
   public void performPostponedRequest (Key key) {
@@ -178,16 +300,58 @@ abstract class TdlibDataManager<Key, Value extends TdApi.Object, Result extends
     int contextId;
     synchronized (dataLock) {
       if (postponedKeys.isEmpty()) {
-        return;
+        keysToRequest = null;
+        contextId = 0;
+      } else {
+        loadingKeys.addAll(postponedKeys);
+        keysToRequest = new HashSet<>(postponedKeys);
+        postponedKeys.clear();
+        contextId = this.contextId;
       }
-      loadingKeys.addAll(postponedKeys);
-      keysToRequest = new HashSet<>(postponedKeys);
-      postponedKeys.clear();
-      contextId = this.contextId;
     }
+    if (keysToRequest == null) {
+      onBatchPerformed(0);
+      return;
+    }
+    onBatchPerformed(keysToRequest.size());
     requestData(contextId, keysToRequest);
   }
 
+  /**
+   * @return Up to {@code limit} keys of successfully loaded entries, starting from the most recently used one
+   */
+  protected final List<Key> getRecentlyUsedKeys (int limit) {
+    final ArrayDeque<Key> keys;
+    synchronized (dataLock) {
+      keys = new ArrayDeque<>(Math.min(limit, entries.size()));
+      // Iteration goes from the least recently used entry and does not change access order
+      for (Result entry : entries.values()) {
+        if (entry.value == null) {
+          continue;
+        }
+        if (keys.size() == limit) {
+          keys.removeLast();
+        }
+        keys.addFirst(entry.key);
+      }
+    }
+    return new ArrayList<>(keys);
+  }
+
+  public final String getStats () {
+    synchronized (dataLock) {
+      return getClass().getSimpleName() + " { entries = " + entries.size() +
+        ", limit = " + maxEntryCount() +
+        ", evicted = " + evictedCount +
+        ", restored = " + restoredCount +
+        ", evictedTracked = " + evictedEntries.size() +
+        ", postponed = " + postponedKeys.size() +
+        ", loading = " + loadingKeys.size() +
+        ", batchDelay = " + batchDelay + "ms" +
+        " }";
+    }
+  }
+
   protected final boolean isCancelled (int contextId) {
     synchronized (dataLock) {
       return this.contextId != contextId;
@@ -218,6 +382,7 @@ abstract class TdlibDataManager<Key, Value extends TdApi.Object, Result extends
       if (this.contextId != contextId)
         return;
       entries.put(entry.key, entry);
+      evictedEntries.remove(entry.key);
       watcherList = watchers.remove(entry.key);
     }
     ReferenceList<Watcher<Key, Value, Result>> referenceList = watcherReferences.removeAll(entry.key);
@@ -13,6 +13,7 @@
 package org.thunderdog.challegram.telegram;
 
 import android.net.Uri;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -27,11 +28,15 @@ import org.thunderdog.challegram.data.TD;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import me.vkryl.core.StringUtils;
+import me.vkryl.core.unit.ByteUnit;
 import me.vkryl.td.Td;
 
 public final class TdlibDataSource extends BaseDataSource {
@@ -83,26 +88,50 @@ public final class TdlibDataSource extends BaseDataSource {
     }
   }
 
+  /**
+   * When less than this amount of bytes is available ahead of the playhead,
+   * download is moved to the end of the available range before playback reaches it.
+   */
+  public static final long DEFAULT_READ_AHEAD_SIZE = ByteUnit.MIB.toBytes(2);
+
   public static final class Factory implements DataSource.Factory {
+    private final long readAheadSize;
+
+    public Factory () {
+      this(DEFAULT_READ_AHEAD_SIZE);
+    }
+
+    public Factory (long readAheadSize) {
+      this.readAheadSize = readAheadSize;
+    }
+
     @Override
     @NonNull
     public DataSource createDataSource () {
-      return new TdlibDataSource();
+      return new TdlibDataSource(readAheadSize);
     }
   }
 
+  private final long readAheadSize;
+
   private Uri uri;
   private long bytesRead;
   private Tdlib tdlib;
   private final Object fileLock = new Object();
   private TdApi.File file;
+  private int fileVersion; // Guarded by fileLock, incremented on every file update
 
   private final FileUpdateListener listener = this::processUpdate;
 
   private boolean referenceAcquired;
 
   public TdlibDataSource () {
+    this(DEFAULT_READ_AHEAD_SIZE);
+  }
+
+  public TdlibDataSource (long readAheadSize) {
     super(true);
+    this.readAheadSize = readAheadSize;
   }
 
   @Override
@@ -124,6 +153,8 @@ public final class TdlibDataSource extends BaseDataSource {
 
     this.uri = uri;
     this.bytesRead = dataSpec.position;
+    this.availableEnd = 0;
+    this.readAheadOffset = -1;
     this.tdlib = TdlibManager.getTdlib(accountId);
 
     final TdApi.Function<?> function = !StringUtils.isEmpty(remoteId) ? new TdApi.GetRemoteFile(remoteId, null) : new TdApi.GetFile(fileId);
@@ -171,18 +202,24 @@ public final class TdlibDataSource extends BaseDataSource {
 
   @TdlibThread
   private void processUpdate (TdApi.UpdateFile file) {
-    TdApi.File currentFile;
     synchronized (fileLock) {
-      currentFile = this.file;
-      boolean notify = currentFile != null && currentFile.id == file.file.id && Td.copyTo(file.file, currentFile);
-      if (notify && this.latch != null) {
-        this.latch.countDown();
-        this.latch = null;
+      TdApi.File currentFile = this.file;
+      if (currentFile != null && currentFile.id == file.file.id && Td.copyTo(file.file, currentFile)) {
+        fileVersion++;
+        fileLock.notifyAll();
       }
     }
   }
 
-  private long getAvailableSize (TdApi.File file, long offset, int length) {
+  private void awaitUpdate (int version) throws InterruptedException {
+    synchronized (fileLock) {
+      while (this.file != null && this.fileVersion == version) {
+        fileLock.wait();
+      }
+    }
+  }
+
+  private long getAvailableSize (TdApi.File file, long offset) {
     long available;
     if (file.local.isDownloadingCompleted) {
       available = file.local.downloadedSize - offset;
@@ -196,12 +233,18 @@ public final class TdlibDataSource extends BaseDataSource {
         return 0;
       }
     }
-    return Math.max(0, Math.min(length, available));
+    return Math.max(0, available);
   }
 
   private final TdApi.File localFile = new TdApi.File(0, 0, 0, new TdApi.LocalFile(), new TdApi.RemoteFile());
-  private CountDownLatch latch;
   private RandomAccessFile openFile;
+  private FileChannel openChannel;
+  private ByteBuffer channelBuffer;
+
+  // Accessed only from the loading thread.
+  // Bytes in [bytesRead, availableEnd) are known to be on disk, so they are read without looking at the file state.
+  private long availableEnd;
+  private long readAheadOffset = -1;
 
   private boolean acquireReference (TdApi.File file, long offset) {
     if (!referenceAcquired && file.local.canBeDownloaded) {
@@ -222,75 +265,128 @@ public final class TdlibDataSource extends BaseDataSource {
     }
   }
 
+  /**
+   * Moves download to the end of the available range, when it is close to the playhead
+   * and is not the range that is being downloaded right now (e.g. part of the file left from the previous playback).
+   */
+  private void readAhead (TdApi.File file, long offset, long availableEnd) {
+    if (!referenceAcquired || file.local.isDownloadingCompleted || availableEnd - offset >= readAheadSize || (file.size != 0 && availableEnd >= file.size)) {
+      return;
+    }
+    if (availableEnd == file.local.downloadOffset + file.local.downloadedPrefixSize && file.local.isDownloadingActive) {
+      // Playhead is already following the download
+      return;
+    }
+    if (readAheadOffset != availableEnd) {
+      readAheadOffset = availableEnd;
+      tdlib.files().seekCloudReference(file, listener, availableEnd);
+      readAheadCount.incrementAndGet();
+    }
+  }
+
+  private int readChannel (String path, byte[] buffer, int bufferOffset, int readLength, long offset) throws IOException {
+    if (openChannel == null) {
+      synchronized (fileLock) {
+        if (this.file == null)
+          throw new TdlibDataSourceException("file == null");
+        openFile = new RandomAccessFile(path, "r");
+        openChannel = openFile.getChannel();
+      }
+    }
+    ByteBuffer byteBuffer = channelBuffer;
+    if (byteBuffer == null || byteBuffer.array() != buffer) {
+      channelBuffer = byteBuffer = ByteBuffer.wrap(buffer);
+    }
+    byteBuffer.clear();
+    byteBuffer.limit(bufferOffset + readLength);
+    byteBuffer.position(bufferOffset);
+    // Positional read: no seek and no file pointer to keep in sync after reopening at another position
+    return openChannel.read(byteBuffer, offset);
+  }
+
   @Override
   public int read (@NonNull byte[] buffer, int bufferOffset, int readLength) throws TdlibDataSourceException {
     if (readLength == 0) {
       return 0;
     }
+    long stallStartTime = 0;
     try {
       boolean first = true;
       do {
-        final TdApi.File file;
-        final CountDownLatch latch;
-        synchronized (fileLock) {
-          if (this.file != null) {
-            Td.copyTo(this.file, localFile);
-            this.localFile.id = this.file.id;
-            file = localFile;
-            if (this.latch != null) {
-              latch = this.latch;
+        final long offset = bytesRead;
+        final boolean isKnownAvailable = offset < availableEnd;
+        TdApi.File file = null;
+        int version = 0;
+        if (!isKnownAvailable) {
+          synchronized (fileLock) {
+            if (this.file != null) {
+              Td.copyTo(this.file, localFile);
+              this.localFile.id = this.file.id;
+              file = localFile;
+              version = fileVersion;
+            }
+          }
+          if (file == null)
+            throw new TdlibDataSourceException("file == null");
+          if (file.size != 0 && offset >= file.size)
+            return C.RESULT_END_OF_INPUT;
+
+          if (first) {
+            first = false;
+            if (file.local.isDownloadingCompleted) {
+              releaseReference(file);
             } else {
-              this.latch = latch = new CountDownLatch(1);
+              acquireReference(file, offset);
             }
-          } else {
-            file = null;
-            latch = null;
           }
-        }
-        if (file == null)
-          throw new TdlibDataSourceException("file == null");
-        final long offset = bytesRead;
-        if (file.size != 0 && offset >= file.size)
-          return C.RESULT_END_OF_INPUT;
-
-        if (first) {
-          first = false;
-          if (file.local.isDownloadingCompleted) {
-            releaseReference(file);
-          } else {
-            acquireReference(file, offset);
+          long available = getAvailableSize(file, offset);
+          if (available == 0) {
+            if (stallStartTime == 0) {
+              stallStartTime = SystemClock.elapsedRealtime();
+            }
+            awaitUpdate(version);
+            continue;
           }
+          availableEnd = offset + available;
+          readAhead(file, offset, availableEnd);
         }
-        long available = getAvailableSize(file, offset, readLength);
-        if (available == 0) {
-          latch.await();
-          continue;
-        }
+        int readCount;
         try {
-          boolean opened = false;
-          synchronized (fileLock) {
-            if (openFile == null) {
-              openFile = new RandomAccessFile(file.local.path, "r");
-              opened = true;
-            }
-          }
-          if (opened && offset > 0) {
-            openFile.seek(offset);
-          }
-          int readCount = openFile.read(buffer, bufferOffset, available > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) available);
-          bytesTransferred(readCount);
-          bytesRead += readCount;
-          return readCount;
+          readCount = readChannel(localFile.local.path, buffer, bufferOffset, (int) Math.min(readLength, availableEnd - offset), offset);
         } catch (IOException e) {
+          availableEnd = 0;
+          if (isKnownAvailable) {
+            // Check the file state again
+            continue;
+          }
           if (acquireReference(file, offset)) {
-            latch.await();
-          } else {
-            throw new TdlibDataSourceException(e);
+            awaitUpdate(version);
+            continue;
           }
+          throw new TdlibDataSourceException(e);
+        }
+        if (readCount <= 0) {
+          // Data is not yet on disk
+          availableEnd = 0;
+          if (!isKnownAvailable) {
+            awaitUpdate(version);
+          }
+          continue;
         }
+        bytesTransferred(readCount);
+        bytesRead += readCount;
+        totalBytesRead.addAndGet(readCount);
+        lastBufferedAheadSize = availableEnd - bytesRead;
+        return readCount;
       } while (true);
     } catch (InterruptedException e) {
       throw new TdlibDataSourceException(e);
+    } finally {
+      if (stallStartTime != 0) {
+        long stallTime = SystemClock.elapsedRealtime() - stallStartTime;
+        stallCount.incrementAndGet();
+        totalStallTime.addAndGet(stallTime);
+      }
     }
   }
 
@@ -307,15 +403,15 @@ public final class TdlibDataSource extends BaseDataSource {
     synchronized (fileLock) {
       file = this.file;
       this.file = null;
-      if (this.latch != null) {
-        this.latch.countDown();
-        this.latch = null;
-      }
+      fileLock.notifyAll();
       if (this.openFile != null) {
         U.closeFile(this.openFile);
         this.openFile = null;
+        this.openChannel = null;
       }
     }
+    channelBuffer = null;
+    availableEnd = 0;
     if (tdlib != null && file != null) {
       if (referenceAcquired) {
         tdlib.files().removeCloudReference(file, listener);
@@ -326,4 +422,19 @@ public final class TdlibDataSource extends BaseDataSource {
     }
     tdlib = null;
   }
+
+  // Stats
+
+  // Shared by all players, so updated without locking
+  private static final AtomicLong totalBytesRead = new AtomicLong(), stallCount = new AtomicLong(), totalStallTime = new AtomicLong(), readAheadCount = new AtomicLong();
+  private static volatile long lastBufferedAheadSize;
+
+  public static String getStats () {
+    return "TdlibDataSource { bytesRead = " + totalBytesRead.get() +
+      ", bufferedAhead = " + lastBufferedAheadSize +
+      ", stalls = " + stallCount.get() +
+      ", stallTime = " + totalStallTime.get() + "ms" +
+      ", readAheads = " + readAheadCount.get() +
+      " }";
+  }
 }
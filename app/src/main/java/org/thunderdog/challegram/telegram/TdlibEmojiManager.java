@@ -14,12 +14,17 @@
  */
 package org.thunderdog.challegram.telegram;
 
+import android.os.SystemClock;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import org.drinkless.tdlib.TdApi;
+import org.thunderdog.challegram.tool.UI;
+import org.thunderdog.challegram.unsorted.Settings;
 
 import java.util.Collection;
+import java.util.List;
 
 import me.vkryl.core.collection.LongSet;
 import me.vkryl.td.Td;
@@ -56,10 +61,70 @@ public final class TdlibEmojiManager extends TdlibDataManager<Long, TdApi.Sticke
     }
   }
 
+  private static final String RECENT_CUSTOM_EMOJI_KEY = "recent_custom_emoji";
+  private static final int MAX_ENTRY_COUNT = 4000;
+  private static final int MAX_RECENT_CUSTOM_EMOJI_COUNT = TdConstants.MAX_CUSTOM_EMOJI_COUNT_PER_REQUEST * 2;
+  private static final long RECENT_CUSTOM_EMOJI_SAVE_INTERVAL_MS = 30000;
+
+  private long lastSaveTime;
+
   public TdlibEmojiManager (Tdlib tdlib) {
     super(tdlib);
   }
 
+  @Override
+  protected int maxEntryCount () {
+    return MAX_ENTRY_COUNT;
+  }
+
+  @Override
+  protected int maxBatchSize () {
+    return TdConstants.MAX_CUSTOM_EMOJI_COUNT_PER_REQUEST;
+  }
+
+  // Recently used custom emoji
+
+  private String recentCustomEmojiKey () {
+    return TdlibSettingsManager.key(RECENT_CUSTOM_EMOJI_KEY, tdlib.id());
+  }
+
+  @Override
+  public void onPerformStartup (boolean isAfterRestart) {
+    // Stickers are stored in TDLib database, so requesting them in a few large batches
+    // is cheaper than requesting them by small portions once they are visible
+    long[] customEmojiIds = Settings.instance().getLongArray(recentCustomEmojiKey());
+    if (customEmojiIds == null || customEmojiIds.length == 0) {
+      return;
+    }
+    for (long customEmojiId : customEmojiIds) {
+      findOrPostponeRequest(customEmojiId, null);
+    }
+    UI.post(this::performPostponedRequests);
+  }
+
+  @Override
+  public void onPerformUserCleanup () {
+    Settings.instance().remove(recentCustomEmojiKey());
+  }
+
+  @TdlibThread
+  private void saveRecentCustomEmoji () {
+    final long now = SystemClock.uptimeMillis();
+    if (lastSaveTime != 0 && now - lastSaveTime < RECENT_CUSTOM_EMOJI_SAVE_INTERVAL_MS) {
+      return;
+    }
+    lastSaveTime = now;
+    List<Long> customEmojiIds = getRecentlyUsedKeys(MAX_RECENT_CUSTOM_EMOJI_COUNT);
+    if (customEmojiIds.isEmpty()) {
+      return;
+    }
+    long[] array = new long[customEmojiIds.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = customEmojiIds.get(i);
+    }
+    Settings.instance().putLongArray(recentCustomEmojiKey(), array);
+  }
+
   @Override
   protected Entry newEntry (@NonNull Long key, @Nullable TdApi.Sticker value, @Nullable TdApi.Error error) {
     return new Entry(key, value, error);
@@ -113,6 +178,7 @@ public final class TdlibEmojiManager extends TdlibDataManager<Long, TdApi.Sticke
         processData(contextId, customEmojiId, null);
       }
     }
+    saveRecentCustomEmoji();
   }
 
   private static long[][] toLongArray (Collection<Long> list, int limit) {
@@ -16,6 +16,7 @@ package org.thunderdog.challegram.telegram;
 
 import android.content.SharedPreferences;
 import android.os.Build;
+import android.util.SparseBooleanArray;
 import android.util.SparseIntArray;
 
 import androidx.annotation.IntDef;
@@ -96,6 +97,7 @@ public class TdlibFilesManager implements GlobalConnectionListener {
   private final SparseIntArray downloadingCloudFiles;
 
   private final HashSet<Integer> manuallyCancelledFiles;
+  private final SparseBooleanArray speculativeDownloads;
 
   TdlibFilesManager (Tdlib tdlib) {
     this.tdlib = tdlib;
@@ -111,6 +113,7 @@ public class TdlibFilesManager implements GlobalConnectionListener {
     this.downloadingCloudFiles = new SparseIntArray();
 
     this.manuallyCancelledFiles = new HashSet<>();
+    this.speculativeDownloads = new SparseBooleanArray();
 
     loadSettings();
 
@@ -326,6 +329,10 @@ public class TdlibFilesManager implements GlobalConnectionListener {
       references = new ArrayList<>();
       references.add(source);
       activeCloudReferences.put(file.id, references);
+      synchronized (this) {
+        // Streamed file may already be downloading speculatively, e.g. a preloaded audio track
+        speculativeDownloads.delete(file.id);
+      }
       if (!file.local.isDownloadingActive) {
         synchronized (this) {
           int pendingOperation = pendingOperations.get(file.id);
@@ -513,6 +520,7 @@ public class TdlibFilesManager implements GlobalConnectionListener {
   private void removePendingOperation (int fileId) {
     pendingOperations.delete(fileId);
     pendingFiles.remove(fileId);
+    speculativeDownloads.delete(fileId);
   }
 
   // Download for whatever reason
@@ -520,6 +528,7 @@ public class TdlibFilesManager implements GlobalConnectionListener {
   public void downloadFile (@NonNull TdApi.File file, @IntRange(from = 1, to = 32) int priority, long offset, long limit, @Nullable Client.ResultHandler handler) {
     synchronized (this) {
       manuallyCancelledFiles.remove(file.id);
+      speculativeDownloads.delete(file.id);
       if (!TD.isFileLoaded(file)) {
         downloadFileInternal(file.id, priority, offset, limit, handler);
       } else if (handler != null) {
@@ -541,6 +550,40 @@ public class TdlibFilesManager implements GlobalConnectionListener {
 
   public static final int DEFAULT_DOWNLOAD_PRIORITY = 1;
 
+  // Speculative downloads
+
+  /**
+   * Starts download of a file that is likely to be needed soon, e.g. by a message that is about to be scrolled into view.
+   *
+   * @return true, if download has been started by this call. Only such downloads can be cancelled through {@link #cancelSpeculativeDownload(int)}
+   */
+  public boolean downloadFileSpeculatively (@NonNull TdApi.File file, @IntRange(from = 1, to = 32) int priority) {
+    synchronized (this) {
+      if (TD.isFileLoaded(file) || pendingOperations.get(file.id) != OPERATION_NONE || manuallyCancelledFiles.contains(file.id)) {
+        return false;
+      }
+      downloadFileInternal(file.id, priority, 0, 0, null);
+      speculativeDownloads.put(file.id, true);
+      return true;
+    }
+  }
+
+  /**
+   * Cancels download started by {@link #downloadFileSpeculatively(TdApi.File, int)}, unless the file has been requested
+   * by anything else since then, or some of its data has already been downloaded.
+   *
+   * @return true, if download has been cancelled
+   */
+  public boolean cancelSpeculativeDownload (int fileId) {
+    synchronized (this) {
+      if (!speculativeDownloads.get(fileId)) {
+        return false;
+      }
+      speculativeDownloads.delete(fileId);
+      return cancelDownloadOrUploadFile(fileId, true, false);
+    }
+  }
+
   // Cancellation
 
   public boolean cancelDownloadOrUploadFile (int fileId, boolean weak, boolean byUserRequest) { // When user clicks on cancel button on photo
@@ -623,6 +666,10 @@ public class TdlibFilesManager implements GlobalConnectionListener {
         pendingOperations.put(update.file.id, OPERATION_DOWNLOAD);
         notifyFileState(update.file.id, STATE_IN_PROGRESS, null);
       }
+      if (update.file.local.downloadedSize > 0) {
+        // Partially downloaded files are kept
+        speculativeDownloads.delete(update.file.id);
+      }
 
       final Iterator<SimpleListener> list = simpleListeners.iterator(update.file.id);
       if (list != null) {
@@ -0,0 +1,163 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.telegram;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.thunderdog.challegram.util.PerfTrace;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograms of time spent inside listener callbacks, per listener type.
+ *
+ * Bucket 0 holds callbacks that took less than 1µs, bucket N holds callbacks that took [2^(N-1), 2^N) µs,
+ * the last bucket holds everything slower.
+ *
+ * Callbacks are timed only while {@link PerfTrace} is enabled, otherwise listener iterators are returned as is.
+ * Recording is lock-free, so totals read by {@link #toString()} may be off by callbacks recorded concurrently.
+ */
+final class TdlibListenerStats {
+  static final int TYPE_MESSAGE = 0;
+  static final int TYPE_MESSAGE_EDIT = 1;
+  static final int TYPE_CHAT = 2;
+  static final int TYPE_CHAT_LIST = 3;
+  static final int TYPE_NOTIFICATION_SETTINGS = 4;
+  static final int TYPE_STORY = 5;
+  static final int TYPE_FILE = 6;
+  static final int TYPE_POLL = 7;
+  static final int TYPE_CALL = 8;
+  static final int TYPE_FORUM_TOPIC = 9;
+
+  private static final String[] TYPE_NAMES = {
+    "message",
+    "messageEdit",
+    "chat",
+    "chatList",
+    "notificationSettings",
+    "story",
+    "file",
+    "poll",
+    "call",
+    "forumTopic"
+  };
+
+  private static final int BUCKET_COUNT = 16;
+
+  // Bucket of each type is at type * BUCKET_COUNT + bucket
+  private final AtomicLongArray buckets = new AtomicLongArray(TYPE_NAMES.length * BUCKET_COUNT);
+  private final AtomicLongArray counts = new AtomicLongArray(TYPE_NAMES.length);
+  private final AtomicLongArray totalNanos = new AtomicLongArray(TYPE_NAMES.length);
+  private final AtomicLongArray maxNanos = new AtomicLongArray(TYPE_NAMES.length);
+
+  private static int bucketOf (long nanos) {
+    final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+    return micros == 0 ? 0 : Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+  }
+
+  void record (int type, long nanos) {
+    buckets.incrementAndGet(type * BUCKET_COUNT + bucketOf(nanos));
+    counts.incrementAndGet(type);
+    totalNanos.addAndGet(type, nanos);
+    long max;
+    do {
+      max = maxNanos.get(type);
+    } while (nanos > max && !maxNanos.compareAndSet(type, max, nanos));
+  }
+
+  /**
+   * Wraps listener iterator, so time between receiving a listener and asking for the next one
+   * (which is the time spent in its callback) is recorded as the given type.
+   * Returns iterator unchanged, when {@link PerfTrace} is disabled.
+   */
+  @Nullable
+  <T> Iterator<T> track (int type, @Nullable Iterator<T> list) {
+    return list != null && PerfTrace.isEnabled() ? new TimedIterator<>(this, type, list) : list;
+  }
+
+  @Override
+  @NonNull
+  public String toString () {
+    StringBuilder b = new StringBuilder("TdlibListenerStats {");
+    if (!PerfTrace.isEnabled()) {
+      b.append(" disabled,");
+    }
+    for (int type = 0; type < TYPE_NAMES.length; type++) {
+      final long count = counts.get(type);
+      if (count == 0) {
+        continue;
+      }
+      b.append("\n  ").append(TYPE_NAMES[type])
+        .append(": calls = ").append(count)
+        .append(", avg = ").append(TimeUnit.NANOSECONDS.toMicros(totalNanos.get(type) / count)).append("µs")
+        .append(", max = ").append(TimeUnit.NANOSECONDS.toMicros(maxNanos.get(type))).append("µs")
+        .append(", histogram = [");
+      int lastBucket = BUCKET_COUNT - 1;
+      while (lastBucket > 0 && buckets.get(type * BUCKET_COUNT + lastBucket) == 0) {
+        lastBucket--;
+      }
+      for (int bucket = 0; bucket <= lastBucket; bucket++) {
+        if (bucket != 0) {
+          b.append(", ");
+        }
+        b.append(buckets.get(type * BUCKET_COUNT + bucket));
+      }
+      b.append(']');
+    }
+    return b.append(" }").toString();
+  }
+
+  private static final class TimedIterator<T> implements Iterator<T> {
+    private final TdlibListenerStats stats;
+    private final int type;
+    private final Iterator<T> source;
+    private long startNanos;
+
+    TimedIterator (TdlibListenerStats stats, int type, Iterator<T> source) {
+      this.stats = stats;
+      this.type = type;
+      this.source = source;
+    }
+
+    private void finishCallback () {
+      if (startNanos != 0) {
+        stats.record(type, System.nanoTime() - startNanos);
+        startNanos = 0;
+      }
+    }
+
+    @Override
+    public boolean hasNext () {
+      finishCallback();
+      return source.hasNext();
+    }
+
+    @Override
+    public T next () {
+      finishCallback();
+      T next = source.next();
+      startNanos = System.nanoTime();
+      return next;
+    }
+
+    @Override
+    public void remove () {
+      source.remove();
+    }
+  }
+}
@@ -76,6 +76,8 @@ public class TdlibListeners {
 
   final Map<String, List<TdApi.Message>> pendingMessages = new HashMap<>();
 
+  private final TdlibListenerStats stats = new TdlibListenerStats();
+
   public TdlibListeners (Tdlib tdlib) {
     this.tdlib = tdlib;
 
@@ -564,6 +566,17 @@ public class TdlibListeners {
     }
   }
 
+  // Dispatch stats
+
+  @Nullable
+  private <T> Iterator<T> track (int type, @Nullable Iterator<T> list) {
+    return stats.track(type, list);
+  }
+
+  public String getDispatchStats () {
+    return stats.toString();
+  }
+
   // Generic updates template
 
   private static <T> void runUpdate (@Nullable Iterator<T> list, RunnableData<T> act) {
@@ -576,8 +589,8 @@ public class TdlibListeners {
   }
 
   private void runChatUpdate (long chatId, RunnableData<ChatListener> act) {
-    runUpdate(chatListeners.iterator(), act);
-    runUpdate(specificChatListeners.iterator(chatId), act);
+    runUpdate(track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()), act);
+    runUpdate(track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(chatId)), act);
   }
 
   // updateNewMessage
@@ -591,8 +604,8 @@ public class TdlibListeners {
   }
 
   void updateNewMessage (TdApi.UpdateNewMessage update) {
-    updateNewMessage(update, messageListeners.iterator());
-    updateNewMessage(update, messageChatListeners.iterator(update.message.chatId));
+    updateNewMessage(update, track(TdlibListenerStats.TYPE_MESSAGE, messageListeners.iterator()));
+    updateNewMessage(update, track(TdlibListenerStats.TYPE_MESSAGE, messageChatListeners.iterator(update.message.chatId)));
   }
 
   // updateMessageSendSucceeded
@@ -617,8 +630,8 @@ public class TdlibListeners {
 
   void updateMessageSendSucceeded (TdApi.UpdateMessageSendSucceeded update) {
     replaceMessage(update.oldMessageId, update.message);
-    updateMessageSendSucceeded(update, messageListeners.iterator());
-    updateMessageSendSucceeded(update, messageChatListeners.iterator(update.message.chatId));
+    updateMessageSendSucceeded(update, track(TdlibListenerStats.TYPE_MESSAGE, messageListeners.iterator()));
+    updateMessageSendSucceeded(update, track(TdlibListenerStats.TYPE_MESSAGE, messageChatListeners.iterator(update.message.chatId)));
   }
 
   // updateMessageSendFailed
@@ -633,8 +646,8 @@ public class TdlibListeners {
 
   void updateMessageSendFailed (TdApi.UpdateMessageSendFailed update) {
     replaceMessage(update.oldMessageId, update.message);
-    updateMessageSendFailed(update, messageListeners.iterator());
-    updateMessageSendFailed(update, messageChatListeners.iterator(update.message.chatId));
+    updateMessageSendFailed(update, track(TdlibListenerStats.TYPE_MESSAGE, messageListeners.iterator()));
+    updateMessageSendFailed(update, track(TdlibListenerStats.TYPE_MESSAGE, messageChatListeners.iterator(update.message.chatId)));
   }
 
   // updateMessageSendAcknowledged
@@ -648,8 +661,8 @@ public class TdlibListeners {
   }
 
   void updateMessageSendAcknowledged (TdApi.UpdateMessageSendAcknowledged update) {
-    updateMessageSendAcknowledged(update, messageListeners.iterator());
-    updateMessageSendAcknowledged(update, messageChatListeners.iterator(update.chatId));
+    updateMessageSendAcknowledged(update, track(TdlibListenerStats.TYPE_MESSAGE, messageListeners.iterator()));
+    updateMessageSendAcknowledged(update, track(TdlibListenerStats.TYPE_MESSAGE, messageChatListeners.iterator(update.chatId)));
   }
 
   // updateMessageContent
@@ -669,8 +682,8 @@ public class TdlibListeners {
         message.content = update.newContent;
       }
     }
-    updateMessageContent(update, messageListeners.iterator());
-    updateMessageContent(update, messageChatListeners.iterator(update.chatId));
+    updateMessageContent(update, track(TdlibListenerStats.TYPE_MESSAGE, messageListeners.iterator()));
+    updateMessageContent(update, track(TdlibListenerStats.TYPE_MESSAGE, messageChatListeners.iterator(update.chatId)));
   }
 
   // updatePoll (fake via updateMessageContent)
@@ -684,7 +697,7 @@ public class TdlibListeners {
   }
 
   void updatePoll (TdApi.Poll updatedPoll) {
-    Iterator<PollListener> list = pollListeners.iterator(updatedPoll.id);
+    Iterator<PollListener> list = track(TdlibListenerStats.TYPE_POLL, pollListeners.iterator(updatedPoll.id));
     if (list != null) {
       while (list.hasNext()) {
         list.next().onUpdatePoll(updatedPoll);
@@ -710,8 +723,8 @@ public class TdlibListeners {
         message.replyMarkup = update.replyMarkup;
       }
     }
-    updateMessageEdited(update, messageListeners.iterator());
-    updateMessageEdited(update, messageChatListeners.iterator(update.chatId));
+    updateMessageEdited(update, track(TdlibListenerStats.TYPE_MESSAGE, messageListeners.iterator()));
+    updateMessageEdited(update, track(TdlibListenerStats.TYPE_MESSAGE, messageChatListeners.iterator(update.chatId)));
   }
 
   // updateMessageContentOpened
@@ -731,8 +744,8 @@ public class TdlibListeners {
         TD.setMessageOpened(message);
       }
     }
-    updateMessageContentOpened(update, messageListeners.iterator());
-    updateMessageContentOpened(update, messageChatListeners.iterator(update.chatId));
+    updateMessageContentOpened(update, track(TdlibListenerStats.TYPE_MESSAGE, messageListeners.iterator()));
+    updateMessageContentOpened(update, track(TdlibListenerStats.TYPE_MESSAGE, messageChatListeners.iterator(update.chatId)));
   }
 
   // updateAnimatedEmojiMessageClicked
@@ -746,8 +759,8 @@ public class TdlibListeners {
   }
 
   void updateAnimatedEmojiMessageClicked (TdApi.UpdateAnimatedEmojiMessageClicked update) {
-    updateAnimatedEmojiMessageClicked(update, messageListeners.iterator());
-    updateAnimatedEmojiMessageClicked(update, messageChatListeners.iterator(update.chatId));
+    updateAnimatedEmojiMessageClicked(update, track(TdlibListenerStats.TYPE_MESSAGE, messageListeners.iterator()));
+    updateAnimatedEmojiMessageClicked(update, track(TdlibListenerStats.TYPE_MESSAGE, messageChatListeners.iterator(update.chatId)));
   }
 
   // updateMessageIsPinned
@@ -767,8 +780,8 @@ public class TdlibListeners {
         message.isPinned = update.isPinned;
       }
     }
-    updateMessageIsPinned(update, messageListeners.iterator());
-    updateMessageIsPinned(update, messageChatListeners.iterator(update.chatId));
+    updateMessageIsPinned(update, track(TdlibListenerStats.TYPE_MESSAGE, messageListeners.iterator()));
+    updateMessageIsPinned(update, track(TdlibListenerStats.TYPE_MESSAGE, messageChatListeners.iterator(update.chatId)));
   }
 
   // updateMessagePendingContentUpdated
@@ -782,8 +795,8 @@ public class TdlibListeners {
   }
 
   void updateMessagePendingContentChanged (long chatId, long messageId) {
-    updateMessagePendingContentChanged(chatId, messageId, messageEditListeners.iterator());
-    updateMessagePendingContentChanged(chatId, messageId, messageEditChatListeners.iterator(chatId));
+    updateMessagePendingContentChanged(chatId, messageId, track(TdlibListenerStats.TYPE_MESSAGE_EDIT, messageEditListeners.iterator()));
+    updateMessagePendingContentChanged(chatId, messageId, track(TdlibListenerStats.TYPE_MESSAGE_EDIT, messageEditChatListeners.iterator(chatId)));
   }
 
   // updateMessageLiveLocationViewed
@@ -797,8 +810,8 @@ public class TdlibListeners {
   }
 
   void updateMessageLiveLocationViewed (TdApi.UpdateMessageLiveLocationViewed update) {
-    updateMessageLiveLocationViewed(update, messageListeners.iterator());
-    updateMessageLiveLocationViewed(update, messageChatListeners.iterator(update.chatId));
+    updateMessageLiveLocationViewed(update, track(TdlibListenerStats.TYPE_MESSAGE, messageListeners.iterator()));
+    updateMessageLiveLocationViewed(update, track(TdlibListenerStats.TYPE_MESSAGE, messageChatListeners.iterator(update.chatId)));
   }
 
   // updateMessageMentionRead
@@ -818,11 +831,11 @@ public class TdlibListeners {
         message.containsUnreadMention = false;
       }
     }
-    updateMessageMentionRead(update, messageListeners.iterator());
-    updateMessageMentionRead(update, messageChatListeners.iterator(update.chatId));
+    updateMessageMentionRead(update, track(TdlibListenerStats.TYPE_MESSAGE, messageListeners.iterator()));
+    updateMessageMentionRead(update, track(TdlibListenerStats.TYPE_MESSAGE, messageChatListeners.iterator(update.chatId)));
     if (counterChanged) {
-      updateChatUnreadMentionCount(update.chatId, update.unreadMentionCount, availabilityChanged, chatListeners.iterator());
-      updateChatUnreadMentionCount(update.chatId, update.unreadMentionCount, availabilityChanged, specificChatListeners.iterator(update.chatId));
+      updateChatUnreadMentionCount(update.chatId, update.unreadMentionCount, availabilityChanged, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+      updateChatUnreadMentionCount(update.chatId, update.unreadMentionCount, availabilityChanged, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
     }
   }
 
@@ -848,25 +861,25 @@ public class TdlibListeners {
   // notifyChatFolder*
 
   public void notifyChatFolderNewChatsChanged (int chatFolderId) {
-    runUpdate(chatFolderListeners.iterator(chatFolderId), (listener) -> {
+    runUpdate(track(TdlibListenerStats.TYPE_CHAT_LIST, chatFolderListeners.iterator(chatFolderId)), (listener) -> {
       listener.onChatFolderNewChatsChanged(chatFolderId);
     });
   }
 
   public void notifyChatFolderInviteLinkDeleted (int chatFolderId, String inviteLink) {
-    runUpdate(chatFolderListeners.iterator(chatFolderId), (listener) -> {
+    runUpdate(track(TdlibListenerStats.TYPE_CHAT_LIST, chatFolderListeners.iterator(chatFolderId)), (listener) -> {
       listener.onChatFolderInviteLinkDeleted(chatFolderId, inviteLink);
     });
   }
 
   public void notifyChatFolderInviteLinkChanged (int chatFolderId, TdApi.ChatFolderInviteLink inviteLink) {
-    runUpdate(chatFolderListeners.iterator(chatFolderId), (listener) -> {
+    runUpdate(track(TdlibListenerStats.TYPE_CHAT_LIST, chatFolderListeners.iterator(chatFolderId)), (listener) -> {
       listener.onChatFolderInviteLinkChanged(chatFolderId, inviteLink);
     });
   }
 
   public void notifyChatFolderInviteLinkCreated (int chatFolderId, TdApi.ChatFolderInviteLink inviteLink) {
-    runUpdate(chatFolderListeners.iterator(chatFolderId), (listener) -> {
+    runUpdate(track(TdlibListenerStats.TYPE_CHAT_LIST, chatFolderListeners.iterator(chatFolderId)), (listener) -> {
       listener.onChatFolderInviteLinkCreated(chatFolderId, inviteLink);
     });
   }
@@ -888,8 +901,8 @@ public class TdlibListeners {
         message.interactionInfo = update.interactionInfo;
       }
     }
-    updateMessageInteractionInfo(update, messageListeners.iterator());
-    updateMessageInteractionInfo(update, messageChatListeners.iterator(update.chatId));
+    updateMessageInteractionInfo(update, track(TdlibListenerStats.TYPE_MESSAGE, messageListeners.iterator()));
+    updateMessageInteractionInfo(update, track(TdlibListenerStats.TYPE_MESSAGE, messageChatListeners.iterator(update.chatId)));
   }
 
   // updateMessageUnreadReactions
@@ -909,15 +922,15 @@ public class TdlibListeners {
         message.unreadReactions = update.unreadReactions;
       }
     }
-    updateMessageUnreadReactions(update, messageListeners.iterator());
-    updateMessageUnreadReactions(update, messageChatListeners.iterator(update.chatId));
+    updateMessageUnreadReactions(update, track(TdlibListenerStats.TYPE_MESSAGE, messageListeners.iterator()));
+    updateMessageUnreadReactions(update, track(TdlibListenerStats.TYPE_MESSAGE, messageChatListeners.iterator(update.chatId)));
     if (counterChanged) {
-      updateChatUnreadReactionCount(update.chatId, update.unreadReactionCount, availabilityChanged, chatListeners.iterator());
-      updateChatUnreadReactionCount(update.chatId, update.unreadReactionCount, availabilityChanged, specificChatListeners.iterator(update.chatId));
+      updateChatUnreadReactionCount(update.chatId, update.unreadReactionCount, availabilityChanged, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+      updateChatUnreadReactionCount(update.chatId, update.unreadReactionCount, availabilityChanged, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
     }
     if (counterChanged) {
-      updateChatUnreadReactionCount(update.chatId, update.unreadReactionCount, availabilityChanged, chatListeners.iterator());
-      updateChatUnreadReactionCount(update.chatId, update.unreadReactionCount, availabilityChanged, specificChatListeners.iterator(update.chatId));
+      updateChatUnreadReactionCount(update.chatId, update.unreadReactionCount, availabilityChanged, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+      updateChatUnreadReactionCount(update.chatId, update.unreadReactionCount, availabilityChanged, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
       if (chatLists != null) {
         for (TdlibChatList chatList : chatLists) {
           iterateChatListListeners(chatList, listener ->
@@ -939,8 +952,8 @@ public class TdlibListeners {
   }
 
   void updateMessagesDeleted (TdApi.UpdateDeleteMessages update) {
-    updateMessagesDeleted(update, messageListeners.iterator());
-    updateMessagesDeleted(update, messageChatListeners.iterator(update.chatId));
+    updateMessagesDeleted(update, track(TdlibListenerStats.TYPE_MESSAGE, messageListeners.iterator()));
+    updateMessagesDeleted(update, track(TdlibListenerStats.TYPE_MESSAGE, messageChatListeners.iterator(update.chatId)));
   }
 
   // updateChatUnreadMentionCount
@@ -954,8 +967,8 @@ public class TdlibListeners {
   }
 
   void updateChatUnreadMentionCount (TdApi.UpdateChatUnreadMentionCount update, boolean availabilityChanged) {
-    updateChatUnreadMentionCount(update.chatId, update.unreadMentionCount, availabilityChanged, chatListeners.iterator());
-    updateChatUnreadMentionCount(update.chatId, update.unreadMentionCount, availabilityChanged, specificChatListeners.iterator(update.chatId));
+    updateChatUnreadMentionCount(update.chatId, update.unreadMentionCount, availabilityChanged, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatUnreadMentionCount(update.chatId, update.unreadMentionCount, availabilityChanged, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
   }
 
   // updateChatUnreadReactionCount
@@ -969,8 +982,8 @@ public class TdlibListeners {
   }
 
   void updateChatUnreadReactionCount (TdApi.UpdateChatUnreadReactionCount update, boolean availabilityChanged, TdApi.Chat chat, TdlibChatList[] chatLists) {
-    updateChatUnreadReactionCount(update.chatId, update.unreadReactionCount, availabilityChanged, chatListeners.iterator());
-    updateChatUnreadReactionCount(update.chatId, update.unreadReactionCount, availabilityChanged, specificChatListeners.iterator(update.chatId));
+    updateChatUnreadReactionCount(update.chatId, update.unreadReactionCount, availabilityChanged, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatUnreadReactionCount(update.chatId, update.unreadReactionCount, availabilityChanged, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
     if (chatLists != null) {
       for (TdlibChatList chatList : chatLists) {
         iterateChatListListeners(chatList, listener ->
@@ -998,8 +1011,8 @@ public class TdlibListeners {
   }
 
   void updateChatLastMessage (TdApi.UpdateChatLastMessage update, @Nullable List<Tdlib.ChatListChange> listChanges) {
-    updateChatLastMessage(update.chatId, update.lastMessage, listChanges, chatListeners.iterator());
-    updateChatLastMessage(update.chatId, update.lastMessage, listChanges, specificChatListeners.iterator(update.chatId));
+    updateChatLastMessage(update.chatId, update.lastMessage, listChanges, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatLastMessage(update.chatId, update.lastMessage, listChanges, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
     if (listChanges != null) {
       for (Tdlib.ChatListChange listChange : listChanges) {
         listChange.list.onUpdateChatPosition(listChange.chat, listChange.change);
@@ -1024,8 +1037,8 @@ public class TdlibListeners {
     boolean orderChanged = listChange.change.orderChanged();
     boolean sourceChanged = listChange.change.sourceChanged();
     boolean pinStateChanged = listChange.change.pinStateChanged();
-    updateChatPosition(update.chatId, update.position, orderChanged, sourceChanged, pinStateChanged, chatListeners.iterator());
-    updateChatPosition(update.chatId, update.position, orderChanged, sourceChanged, pinStateChanged, specificChatListeners.iterator(update.chatId));
+    updateChatPosition(update.chatId, update.position, orderChanged, sourceChanged, pinStateChanged, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatPosition(update.chatId, update.position, orderChanged, sourceChanged, pinStateChanged, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
     listChange.list.onUpdateChatPosition(listChange.chat, listChange.change);
   }
 
@@ -1054,8 +1067,8 @@ public class TdlibListeners {
   }
 
   void updateChatPermissions (TdApi.UpdateChatPermissions update) {
-    updateChatPermissions(update.chatId, update.permissions, chatListeners.iterator());
-    updateChatPermissions(update.chatId, update.permissions, specificChatListeners.iterator(update.chatId));
+    updateChatPermissions(update.chatId, update.permissions, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatPermissions(update.chatId, update.permissions, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
   }
 
   // updateChatTitle
@@ -1069,8 +1082,8 @@ public class TdlibListeners {
   }
 
   void updateChatTitle (TdApi.UpdateChatTitle update, TdApi.Chat chat, TdlibChatList[] chatLists) {
-    updateChatTitle(update, chatListeners.iterator());
-    updateChatTitle(update, specificChatListeners.iterator(update.chatId));
+    updateChatTitle(update, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatTitle(update, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
     if (chatLists != null) {
       for (TdlibChatList chatList : chatLists) {
         iterateChatListListeners(chatList, listener ->
@@ -1091,8 +1104,8 @@ public class TdlibListeners {
   }
 
   void updateChatTheme (TdApi.UpdateChatTheme update, TdApi.Chat chat, TdlibChatList[] chatLists) {
-    updateChatTheme(update, chatListeners.iterator());
-    updateChatTheme(update, specificChatListeners.iterator(update.chatId));
+    updateChatTheme(update, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatTheme(update, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
     if (chatLists != null) {
       for (TdlibChatList chatList : chatLists) {
         iterateChatListListeners(chatList, listener ->
@@ -1113,8 +1126,8 @@ public class TdlibListeners {
   }
 
   void updateChatPhoto (TdApi.UpdateChatPhoto update) {
-    updateChatPhoto(update, chatListeners.iterator());
-    updateChatPhoto(update, specificChatListeners.iterator(update.chatId));
+    updateChatPhoto(update, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatPhoto(update, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
   }
 
   // updateChatActionBar
@@ -1144,8 +1157,8 @@ public class TdlibListeners {
   }
 
   void updateChatHasScheduledMessages (TdApi.UpdateChatHasScheduledMessages update) {
-    updateChatHasScheduledMessages(update, chatListeners.iterator());
-    updateChatHasScheduledMessages(update, specificChatListeners.iterator(update.chatId));
+    updateChatHasScheduledMessages(update, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatHasScheduledMessages(update, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
   }
 
   // updateChatHasProtectedContent
@@ -1159,8 +1172,8 @@ public class TdlibListeners {
   }
 
   void updateChatHasProtectedContent (TdApi.UpdateChatHasProtectedContent update) {
-    updateChatHasProtectedContent(update, chatListeners.iterator());
-    updateChatHasProtectedContent(update, specificChatListeners.iterator(update.chatId));
+    updateChatHasProtectedContent(update, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatHasProtectedContent(update, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
   }
 
   // updateChatReadInbox
@@ -1174,8 +1187,8 @@ public class TdlibListeners {
   }
 
   void updateChatReadInbox (TdApi.UpdateChatReadInbox update, boolean availabilityChanged, TdApi.Chat chat, TdlibChatList[] chatLists) {
-    updateChatReadInbox(update, availabilityChanged, chatListeners.iterator());
-    updateChatReadInbox(update, availabilityChanged, specificChatListeners.iterator(update.chatId));
+    updateChatReadInbox(update, availabilityChanged, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatReadInbox(update, availabilityChanged, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
     if (chatLists != null) {
       for (TdlibChatList chatList : chatLists) {
         iterateChatListListeners(chatList, listener ->
@@ -1196,8 +1209,8 @@ public class TdlibListeners {
   }
 
   void updateChatReadOutbox (TdApi.UpdateChatReadOutbox update) {
-    updateChatReadOutbox(update, chatListeners.iterator());
-    updateChatReadOutbox(update, specificChatListeners.iterator(update.chatId));
+    updateChatReadOutbox(update, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatReadOutbox(update, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
   }
 
   // updateChatReplyMarkup
@@ -1211,8 +1224,8 @@ public class TdlibListeners {
   }
 
   void updateChatReplyMarkup (TdApi.UpdateChatReplyMarkup update) {
-    updateChatReplyMarkup(update, chatListeners.iterator());
-    updateChatReplyMarkup(update, specificChatListeners.iterator(update.chatId));
+    updateChatReplyMarkup(update, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatReplyMarkup(update, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
   }
 
   // updateChatDraftMessage
@@ -1237,8 +1250,8 @@ public class TdlibListeners {
   }
 
   void updateChatDraftMessage (TdApi.UpdateChatDraftMessage update, List<Tdlib.ChatListChange> listChanges) {
-    updateChatDraftMessage(update.chatId, update.draftMessage, listChanges, chatListeners.iterator());
-    updateChatDraftMessage(update.chatId, update.draftMessage, listChanges, specificChatListeners.iterator(update.chatId));
+    updateChatDraftMessage(update.chatId, update.draftMessage, listChanges, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatDraftMessage(update.chatId, update.draftMessage, listChanges, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
     if (listChanges != null) {
       for (Tdlib.ChatListChange listChange : listChanges) {
         listChange.list.onUpdateChatPosition(listChange.chat, listChange.change);
@@ -1268,8 +1281,8 @@ public class TdlibListeners {
   }
 
   void updateChatAvailableReactions (TdApi.UpdateChatAvailableReactions update) {
-    updateChatAvailableReactions(update, chatListeners.iterator());
-    updateChatAvailableReactions(update, specificChatListeners.iterator(update.chatId));
+    updateChatAvailableReactions(update, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatAvailableReactions(update, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
   }
 
   // updateCall
@@ -1283,8 +1296,8 @@ public class TdlibListeners {
   }
 
   void updateCall (TdApi.UpdateCall update) {
-    updateCall(update.call, privateCallListeners.iterator());
-    updateCall(update.call, specificPrivateCallListeners.iterator(update.call.id));
+    updateCall(update.call, track(TdlibListenerStats.TYPE_CALL, privateCallListeners.iterator()));
+    updateCall(update.call, track(TdlibListenerStats.TYPE_CALL, specificPrivateCallListeners.iterator(update.call.id)));
   }
 
   // updateNewCallSignalingData
@@ -1298,8 +1311,8 @@ public class TdlibListeners {
   }
 
   void updateNewCallSignalingData (TdApi.UpdateNewCallSignalingData update) {
-    updateNewCallSignalingData(update.callId, update.data, privateCallListeners.iterator());
-    updateNewCallSignalingData(update.callId, update.data, specificPrivateCallListeners.iterator(update.callId));
+    updateNewCallSignalingData(update.callId, update.data, track(TdlibListenerStats.TYPE_CALL, privateCallListeners.iterator()));
+    updateNewCallSignalingData(update.callId, update.data, track(TdlibListenerStats.TYPE_CALL, specificPrivateCallListeners.iterator(update.callId)));
   }
 
   // updateGroupCallParticipant
@@ -1313,8 +1326,8 @@ public class TdlibListeners {
   }
 
   void updateGroupCallParticipant (TdApi.UpdateGroupCallParticipant update) {
-    updateGroupCallParticipant(update.groupCallId, update.participant, groupCallListeners.iterator());
-    updateGroupCallParticipant(update.groupCallId, update.participant, specificGroupCallListeners.iterator(update.groupCallId));
+    updateGroupCallParticipant(update.groupCallId, update.participant, track(TdlibListenerStats.TYPE_CALL, groupCallListeners.iterator()));
+    updateGroupCallParticipant(update.groupCallId, update.participant, track(TdlibListenerStats.TYPE_CALL, specificGroupCallListeners.iterator(update.groupCallId)));
   }
 
   // updateGroupCall
@@ -1328,8 +1341,8 @@ public class TdlibListeners {
   }
 
   void updateGroupCall (TdApi.UpdateGroupCall update) {
-    updateGroupCall(update.groupCall, groupCallListeners.iterator());
-    updateGroupCall(update.groupCall, specificGroupCallListeners.iterator(update.groupCall.id));
+    updateGroupCall(update.groupCall, track(TdlibListenerStats.TYPE_CALL, groupCallListeners.iterator()));
+    updateGroupCall(update.groupCall, track(TdlibListenerStats.TYPE_CALL, specificGroupCallListeners.iterator(update.groupCall.id)));
   }
 
   // updateChatOnlineMemberCount
@@ -1343,8 +1356,8 @@ public class TdlibListeners {
   }
 
   void updateChatOnlineMemberCount (TdApi.UpdateChatOnlineMemberCount update) {
-    updateChatOnlineMemberCount(update.chatId, update.onlineMemberCount, chatListeners.iterator());
-    updateChatOnlineMemberCount(update.chatId, update.onlineMemberCount, specificChatListeners.iterator(update.chatId));
+    updateChatOnlineMemberCount(update.chatId, update.onlineMemberCount, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatOnlineMemberCount(update.chatId, update.onlineMemberCount, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
   }
 
   // updateMessageTtlSetting
@@ -1358,8 +1371,8 @@ public class TdlibListeners {
   }
 
   void updateChatMessageAutoDeleteTime (TdApi.UpdateChatMessageAutoDeleteTime update) {
-    updateChatMessageAutoDeleteTime(update.chatId, update.messageAutoDeleteTime, chatListeners.iterator());
-    updateChatMessageAutoDeleteTime(update.chatId, update.messageAutoDeleteTime, specificChatListeners.iterator(update.chatId));
+    updateChatMessageAutoDeleteTime(update.chatId, update.messageAutoDeleteTime, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatMessageAutoDeleteTime(update.chatId, update.messageAutoDeleteTime, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId)));
   }
 
   // updateChatActiveStories
@@ -1373,8 +1386,8 @@ public class TdlibListeners {
   }
 
   void updateChatActiveStories (TdApi.UpdateChatActiveStories update) {
-    updateChatActiveStories(update.activeStories, chatListeners.iterator());
-    updateChatActiveStories(update.activeStories, specificChatListeners.iterator(update.activeStories.chatId));
+    updateChatActiveStories(update.activeStories, track(TdlibListenerStats.TYPE_CHAT, chatListeners.iterator()));
+    updateChatActiveStories(update.activeStories, track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.activeStories.chatId)));
   }
 
   // updateStory
@@ -1396,8 +1409,8 @@ public class TdlibListeners {
   }
 
   void updateStory (TdApi.UpdateStory update) {
-    updateStory(update.story, storyListeners.iterator());
-    updateStory(update.story, specificStoryListeners.iterator(uniqueStoryKey(update.story)));
+    updateStory(update.story, track(TdlibListenerStats.TYPE_STORY, storyListeners.iterator()));
+    updateStory(update.story, track(TdlibListenerStats.TYPE_STORY, specificStoryListeners.iterator(uniqueStoryKey(update.story))));
   }
 
   // updateStoryDeleted
@@ -1411,8 +1424,8 @@ public class TdlibListeners {
   }
 
   void updateStoryDeleted (TdApi.UpdateStoryDeleted update) {
-    updateStoryDeleted(update.storySenderChatId, update.storyId, storyListeners.iterator());
-    updateStoryDeleted(update.storySenderChatId, update.storyId, specificStoryListeners.iterator(uniqueStoryKey(update.storySenderChatId, update.storyId)));
+    updateStoryDeleted(update.storySenderChatId, update.storyId, track(TdlibListenerStats.TYPE_STORY, storyListeners.iterator()));
+    updateStoryDeleted(update.storySenderChatId, update.storyId, track(TdlibListenerStats.TYPE_STORY, specificStoryListeners.iterator(uniqueStoryKey(update.storySenderChatId, update.storyId))));
   }
 
   // updateStorySendSucceeded
@@ -1426,8 +1439,8 @@ public class TdlibListeners {
   }
 
   void updateStorySendSucceeded (TdApi.UpdateStorySendSucceeded update) {
-    updateStorySendSucceeded(update.story, update.oldStoryId, storyListeners.iterator());
-    updateStorySendSucceeded(update.story, update.oldStoryId, specificStoryListeners.iterator(uniqueStoryKey(update.story.senderChatId, update.oldStoryId)));
+    updateStorySendSucceeded(update.story, update.oldStoryId, track(TdlibListenerStats.TYPE_STORY, storyListeners.iterator()));
+    updateStorySendSucceeded(update.story, update.oldStoryId, track(TdlibListenerStats.TYPE_STORY, specificStoryListeners.iterator(uniqueStoryKey(update.story.senderChatId, update.oldStoryId))));
   }
 
   // updateStorySendFailed
@@ -1441,8 +1454,8 @@ public class TdlibListeners {
   }
 
   void updateStorySendFailed (TdApi.UpdateStorySendFailed update) {
-    updateStorySendFailed(update.story, update.error, update.errorType, storyListeners.iterator());
-    updateStorySendFailed(update.story, update.error, update.errorType, specificStoryListeners.iterator(uniqueStoryKey(update.story)));
+    updateStorySendFailed(update.story, update.error, update.errorType, track(TdlibListenerStats.TYPE_STORY, storyListeners.iterator()));
+    updateStorySendFailed(update.story, update.error, update.errorType, track(TdlibListenerStats.TYPE_STORY, specificStoryListeners.iterator(uniqueStoryKey(update.story))));
   }
 
   // updateStoryStealthMode
@@ -1456,7 +1469,7 @@ public class TdlibListeners {
   }
 
   void updateStoryStealthMode (TdApi.UpdateStoryStealthMode update) {
-    updateStoryStealthMode(update.activeUntilDate, update.cooldownUntilDate, storyListeners.iterator());
+    updateStoryStealthMode(update.activeUntilDate, update.cooldownUntilDate, track(TdlibListenerStats.TYPE_STORY, storyListeners.iterator()));
     updateStoryStealthMode(update.activeUntilDate, update.cooldownUntilDate, specificStoryListeners.combinedIterator());
   }
 
@@ -1474,7 +1487,7 @@ public class TdlibListeners {
     runChatUpdate(update.chatId, listener -> {
       listener.onForumTopicInfoChanged(update.chatId, update.info);
     });
-    runUpdate(specificForumTopicListeners.iterator(update.chatId + "_" + update.info.messageThreadId), listener -> {
+    runUpdate(track(TdlibListenerStats.TYPE_FORUM_TOPIC, specificForumTopicListeners.iterator(update.chatId + "_" + update.info.messageThreadId)), listener -> {
       listener.onForumTopicInfoChanged(update.chatId, update.info);
     });
   }
@@ -1586,27 +1599,27 @@ public class TdlibListeners {
   void updateNotificationSettings (TdApi.UpdateChatNotificationSettings update) {
     RunnableData<NotificationSettingsListener> act = listener ->
       listener.onNotificationSettingsChanged(update.chatId, update.notificationSettings);
-    runUpdate(settingsListeners.iterator(), act);
-    runUpdate(chatSettingsListeners.iterator(update.chatId), act);
+    runUpdate(track(TdlibListenerStats.TYPE_NOTIFICATION_SETTINGS, settingsListeners.iterator()), act);
+    runUpdate(track(TdlibListenerStats.TYPE_NOTIFICATION_SETTINGS, chatSettingsListeners.iterator(update.chatId)), act);
   }
 
   @TdlibThread
   void updateNotificationSettings (TdApi.UpdateScopeNotificationSettings update) {
-    runUpdate(settingsListeners.iterator(), listener ->
+    runUpdate(track(TdlibListenerStats.TYPE_NOTIFICATION_SETTINGS, settingsListeners.iterator()), listener ->
       listener.onNotificationSettingsChanged(update.scope, update.notificationSettings)
     );
   }
 
   @TdlibThread
   void updateReactionNotificationSettings (TdApi.UpdateReactionNotificationSettings update) {
-    runUpdate(settingsListeners.iterator(), listener ->
+    runUpdate(track(TdlibListenerStats.TYPE_NOTIFICATION_SETTINGS, settingsListeners.iterator()), listener ->
       listener.onReactionNotificationSettingsChanged(update.notificationSettings)
     );
   }
 
   @AnyThread
   void updateNotificationChannel (TdApi.NotificationSettingsScope scope) {
-    runUpdate(settingsListeners.iterator(), listener ->
+    runUpdate(track(TdlibListenerStats.TYPE_NOTIFICATION_SETTINGS, settingsListeners.iterator()), listener ->
       listener.onNotificationChannelChanged(scope)
     );
   }
@@ -1615,8 +1628,8 @@ public class TdlibListeners {
   void updateNotificationChannel (long chatId) {
     RunnableData<NotificationSettingsListener> act = listener ->
       listener.onNotificationChannelChanged(chatId);
-    runUpdate(settingsListeners.iterator(), act);
-    runUpdate(chatSettingsListeners.iterator(chatId), act);
+    runUpdate(track(TdlibListenerStats.TYPE_NOTIFICATION_SETTINGS, settingsListeners.iterator()), act);
+    runUpdate(track(TdlibListenerStats.TYPE_NOTIFICATION_SETTINGS, chatSettingsListeners.iterator(chatId)), act);
   }
 
   @AnyThread
@@ -1650,7 +1663,7 @@ public class TdlibListeners {
   // chat lists
 
   private void iterateChatListListeners (TdlibChatList chatList, RunnableData<ChatListListener> callback) {
-    Iterator<ChatListListener> list = chatListListeners.iterator(TD.makeChatListKey(chatList.chatList()));
+    Iterator<ChatListListener> list = track(TdlibListenerStats.TYPE_CHAT_LIST, chatListListeners.iterator(TD.makeChatListKey(chatList.chatList())));
     if (list != null) {
       while (list.hasNext()) {
         callback.runWithData(list.next());
@@ -1723,7 +1736,7 @@ public class TdlibListeners {
   // updateFile
 
   void updateFile (TdApi.UpdateFile update) {
-    Iterator<FileUpdateListener> list = fileUpdateListeners.iterator(update.file.id);
+    Iterator<FileUpdateListener> list = track(TdlibListenerStats.TYPE_FILE, fileUpdateListeners.iterator(update.file.id));
     if (list != null) {
       while (list.hasNext()) {
         list.next().onUpdateFile(update);
@@ -1833,7 +1846,7 @@ public class TdlibListeners {
     for (ChatListener listener : chatListeners) {
       listener.onChatDefaultDisableNotifications(update.chatId, update.defaultDisableNotification);
     }
-    Iterator<ChatListener> list = specificChatListeners.iterator(update.chatId);
+    Iterator<ChatListener> list = track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId));
     if (list != null) {
       while (list.hasNext()) {
         list.next().onChatDefaultDisableNotifications(update.chatId, update.defaultDisableNotification);
@@ -1847,7 +1860,7 @@ public class TdlibListeners {
     for (ChatListener listener : chatListeners) {
       listener.onChatDefaultMessageSenderIdChanged(update.chatId, update.messageSenderId);
     }
-    Iterator<ChatListener> list = specificChatListeners.iterator(update.chatId);
+    Iterator<ChatListener> list = track(TdlibListenerStats.TYPE_CHAT, specificChatListeners.iterator(update.chatId));
     if (list != null) {
       while (list.hasNext()) {
         list.next().onChatDefaultMessageSenderIdChanged(update.chatId, update.messageSenderId);
@@ -136,13 +136,13 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
   @Deprecated
   public static final String __CUSTOM_PINNED_NOTIFICATIONS_KEY = "custom_pinned_notifications_";
 
-  private static final String _CUSTOM_LED_KEY = "custom_led_";
+  static final String _CUSTOM_LED_KEY = "custom_led_";
 
-  private static final String _CUSTOM_CALL_RINGTONE_KEY = "custom_call_ringtone_";
-  private static final String _CUSTOM_CALL_RINGTONE_NAME_KEY = "custom_call_ringtone_name_";
-  private static final String _CUSTOM_CALL_RINGTONE_PATH_KEY = "custom_call_ringtone_path_";
-  private static final String _CUSTOM_CALL_VIBRATE_KEY = "custom_call_vibrate_";
-  private static final String _CUSTOM_CALL_VIBRATE_ONLYSILENT_KEY = "custom_call_vibrate_onlysilent_";
+  static final String _CUSTOM_CALL_RINGTONE_KEY = "custom_call_ringtone_";
+  static final String _CUSTOM_CALL_RINGTONE_NAME_KEY = "custom_call_ringtone_name_";
+  static final String _CUSTOM_CALL_RINGTONE_PATH_KEY = "custom_call_ringtone_path_";
+  static final String _CUSTOM_CALL_VIBRATE_KEY = "custom_call_vibrate_";
+  static final String _CUSTOM_CALL_VIBRATE_ONLYSILENT_KEY = "custom_call_vibrate_onlysilent_";
 
   private static final String _CHANNEL_VERSION_GLOBAL_KEY = "channels_version_global"; // resets all channels
   static final String KEY_PREFIX_CHANNEL_VERSION = "channels_version_"; // resets only default private chat settings
@@ -442,9 +442,16 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
     return key(key, tdlib.id());
   }
 
+  private final TdlibChatNotificationSettings chatSettings;
+
+  private TdlibChatNotificationSettings.Chat chatSettings (long chatId) {
+    return chatSettings.get(chatId);
+  }
+
   TdlibNotificationManager (Tdlib tdlib, NotificationQueue queue) {
     this.tdlib = tdlib;
     this.queue = queue;
+    this.chatSettings = new TdlibChatNotificationSettings(tdlib.id());
     tdlib.listeners().addCleanupListener(this);
     this.notification = new TdlibNotificationHelper(this, tdlib);
 
@@ -704,7 +711,8 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
    * @return vibrate mode value for specific chat. {@link #VIBRATE_MODE_DEFAULT} means that value should be obtained from the surrounding scope.
    */
   public int getCustomVibrateMode (long chatId, int defaultVibrateMode) {
-    return getChannelVibrateMode(null, chatId, Settings.instance().getInt(key(_CUSTOM_VIBRATE_KEY + chatId), defaultVibrateMode));
+    Integer vibrateMode = chatSettings(chatId).vibrateMode;
+    return getChannelVibrateMode(null, chatId, vibrateMode != null ? vibrateMode : defaultVibrateMode);
   }
 
   /**
@@ -727,7 +735,7 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
    * @return stored vibrate silence value, or false by default
    */
   public boolean getCustomVibrateOnlyIfSilent (long chatId) {
-    return Config.VIBRATE_ONLY_IF_SILENT_AVAILABLE && Settings.instance().getBoolean(key(_CUSTOM_VIBRATE_ONLYSILENT_KEY + chatId), false);
+    return Config.VIBRATE_ONLY_IF_SILENT_AVAILABLE && Boolean.TRUE.equals(chatSettings(chatId).vibrateOnlyIfSilent);
   }
 
   /**
@@ -754,6 +762,19 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
     } else {
       editor.apply();
     }
+    chatSettings.edit(chatId, chat -> {
+      if (vibrateMode == VIBRATE_MODE_DEFAULT) {
+        chat.vibrateMode = null;
+        if (Config.VIBRATE_ONLY_IF_SILENT_AVAILABLE) {
+          chat.vibrateOnlyIfSilent = null;
+        }
+      } else {
+        chat.vibrateMode = vibrateMode;
+        if (Config.VIBRATE_ONLY_IF_SILENT_AVAILABLE) {
+          chat.vibrateOnlyIfSilent = onlyIfSilent;
+        }
+      }
+    });
   }
 
   /**
@@ -765,7 +786,8 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
     int vibrateMode = getCustomVibrateMode(chatId, VIBRATE_MODE_DEFAULT);
     boolean silentOnly;
     if (vibrateMode != VIBRATE_MODE_DEFAULT) {
-      silentOnly = Config.VIBRATE_ONLY_IF_SILENT_AVAILABLE && Settings.instance().getBoolean(key(_CUSTOM_VIBRATE_ONLYSILENT_KEY + chatId), getDefaultVibrateOnlyIfSilent(scope));
+      Boolean customSilentOnly = Config.VIBRATE_ONLY_IF_SILENT_AVAILABLE ? chatSettings(chatId).vibrateOnlyIfSilent : null;
+      silentOnly = Config.VIBRATE_ONLY_IF_SILENT_AVAILABLE && (customSilentOnly != null ? customSilentOnly : getDefaultVibrateOnlyIfSilent(scope));
     } else {
       vibrateMode = getDefaultVibrateMode(scope);
       silentOnly = Config.VIBRATE_ONLY_IF_SILENT_AVAILABLE && getDefaultVibrateOnlyIfSilent(scope);
@@ -834,7 +856,8 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
    * @return current priority or importance value. {@link #DEFAULT_PRIORITY_OR_IMPORTANCE} means value should be obtained from the surrounding scope.
    */
   public int getCustomPriorityOrImportance (long chatId, int defaultPriorityOrImportance) {
-    return getChannelPriorityOrImportance(null, chatId, Settings.instance().getInt(key(_CUSTOM_PRIORITY_OR_IMPORTANCE_KEY + chatId), defaultPriorityOrImportance));
+    Integer priorityOrImportance = chatSettings(chatId).priorityOrImportance;
+    return getChannelPriorityOrImportance(null, chatId, priorityOrImportance != null ? priorityOrImportance : defaultPriorityOrImportance);
   }
 
   /**
@@ -854,6 +877,9 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
     } else {
       editor.apply();
     }
+    chatSettings.edit(chatId, chat ->
+      chat.priorityOrImportance = priorityOrImportance != PRIORITY_OR_IMPORTANCE_UNSET ? priorityOrImportance : null
+    );
   }
 
   /**
@@ -901,7 +927,8 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
   }
 
   public int getCustomLedColor (long chatId, int defaultLedColor) {
-    return getChannelLedColor(null, chatId, Settings.instance().getInt(key(_CUSTOM_LED_KEY + chatId), defaultLedColor));
+    Integer ledColor = chatSettings(chatId).ledColor;
+    return getChannelLedColor(null, chatId, ledColor != null ? ledColor : defaultLedColor);
   }
 
   public void setCustomLedColor (long chatId, int ledColor) {
@@ -917,6 +944,9 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
     } else {
       editor.apply();
     }
+    chatSettings.edit(chatId, chat ->
+      chat.ledColor = ledColor != LED_COLOR_UNSET ? ledColor : null
+    );
   }
 
   public int getEffectiveLedColor (long chatId) {
@@ -1039,7 +1069,8 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
   }
 
   public String getSavedCustomSound (long chatId, String defaultSound) {
-    return fixSoundUri(Settings.instance().getString(key(_CUSTOM_SOUND_KEY + chatId), defaultSound));
+    String sound = chatSettings(chatId).sound;
+    return fixSoundUri(sound != null ? sound : defaultSound);
   }
 
   public boolean hasCustomSound (long chatId) {
@@ -1056,9 +1087,8 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
     if (StringUtils.isEmpty(actualSound)) {
       return actualSound;
     }
-    String sound = Settings.instance().getString(key(_CUSTOM_SOUND_KEY + chatId), null);
-    String soundName = Settings.instance().getString(key(_CUSTOM_SOUND_NAME_KEY + chatId), null);
-    return getChannelSoundName(sound, soundName, actualSound);
+    TdlibChatNotificationSettings.Chat settings = chatSettings(chatId);
+    return getChannelSoundName(settings.sound, settings.soundName, actualSound);
   }
 
   public String getCustomSoundPath (long chatId) {
@@ -1066,7 +1096,7 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
     if (StringUtils.isEmpty(actualSound)) {
       return actualSound;
     }
-    return Settings.instance().getString(key(_CUSTOM_SOUND_PATH_KEY + chatId), null);
+    return chatSettings(chatId).soundPath;
   }
 
   public void setCustomSound (long chatId, @Nullable String customSound, @Nullable String customSoundName, @Nullable String customSoundPath) {
@@ -1093,6 +1123,12 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
     } else {
       editor.apply();
     }
+    final String newSound = customSound;
+    chatSettings.edit(chatId, chat -> {
+      chat.sound = newSound;
+      chat.soundName = StringUtils.isEmpty(customSoundName) ? null : customSoundName;
+      chat.soundPath = StringUtils.isEmpty(customSoundPath) ? null : customSoundPath;
+    });
   }
 
   public @Nullable String getEffectiveSound (long chatId) {
@@ -1114,14 +1150,26 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
     } else {
       Settings.instance().putInt(key(_CUSTOM_CALL_VIBRATE_KEY + chatId), mode);
     }
+    chatSettings.edit(chatId, chat -> {
+      if (mode == VIBRATE_MODE_DEFAULT) {
+        chat.callVibrateMode = null;
+        chat.callVibrateOnlyIfSilent = null;
+      } else {
+        chat.callVibrateMode = mode;
+        if (Config.VIBRATE_ONLY_IF_SILENT_AVAILABLE) {
+          chat.callVibrateOnlyIfSilent = vibrateOnlyIfSilent;
+        }
+      }
+    });
   }
 
   public int getCustomCallVibrateModeForChat (long chatId) {
-    return Settings.instance().getInt(key(_CUSTOM_CALL_VIBRATE_KEY + chatId), VIBRATE_MODE_DEFAULT);
+    Integer callVibrateMode = chatSettings(chatId).callVibrateMode;
+    return callVibrateMode != null ? callVibrateMode : VIBRATE_MODE_DEFAULT;
   }
 
   public boolean getCustomCallVibrateOnlyIfSilentForChat (long chatId) {
-    return Config.VIBRATE_ONLY_IF_SILENT_AVAILABLE && Settings.instance().getBoolean(key(_CUSTOM_CALL_VIBRATE_ONLYSILENT_KEY + chatId), false);
+    return Config.VIBRATE_ONLY_IF_SILENT_AVAILABLE && Boolean.TRUE.equals(chatSettings(chatId).callVibrateOnlyIfSilent);
   }
 
   // Channel utils
@@ -1367,15 +1415,15 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
   // Ringtone
 
   public @Nullable String getCustomCallRingtone (long chatId) {
-    return Settings.instance().getString(key(_CUSTOM_CALL_RINGTONE_KEY + chatId), null);
+    return chatSettings(chatId).callRingtone;
   }
 
   public @Nullable String getCustomCallRingtoneName (long chatId) {
-    return Settings.instance().getString(key(_CUSTOM_CALL_RINGTONE_NAME_KEY + chatId), null);
+    return chatSettings(chatId).callRingtoneName;
   }
 
   public @Nullable String getCustomCallRingtonePath (long chatId) {
-    return Settings.instance().getString(key(_CUSTOM_CALL_RINGTONE_PATH_KEY + chatId), null);
+    return chatSettings(chatId).callRingtonePath;
   }
 
   public void setCustomCallRingtone (long chatId, @Nullable String customRingtone, @Nullable String customRingtoneName, @Nullable String customRingtonePath) {
@@ -1400,6 +1448,11 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
       }
       editor.apply();
     }
+    chatSettings.edit(chatId, chat -> {
+      chat.callRingtone = customRingtone;
+      chat.callRingtoneName = customRingtone != null && !StringUtils.isEmpty(customRingtoneName) ? customRingtoneName : null;
+      chat.callRingtonePath = customRingtone != null && !StringUtils.isEmpty(customRingtonePath) ? customRingtonePath : null;
+    });
   }
 
   public String getCallRingtone (long chatId) {
@@ -1568,6 +1621,7 @@ public class TdlibNotificationManager implements UI.StateListener, Passcode.Lock
     }, editor);
 
     editor.apply();
+    chatSettings.reset();
 
 
     _inAppChatSounds = null;
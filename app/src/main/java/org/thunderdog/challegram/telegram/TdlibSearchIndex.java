@@ -0,0 +1,346 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.telegram;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.drinkless.tdlib.TdApi;
+import org.thunderdog.challegram.Log;
+import org.thunderdog.challegram.util.LongMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import me.vkryl.core.StringUtils;
+import me.vkryl.core.collection.LongSet;
+import me.vkryl.core.util.Transliterator;
+import me.vkryl.td.ChatId;
+import me.vkryl.td.ChatPosition;
+
+/**
+ * In-memory prefix index of titles and usernames of all chats known to {@link Tdlib}.
+ *
+ * Tokens are normalized once, when the chat gets indexed, together with their latin and cyrillic transliterations,
+ * so lookups while typing cost a few {@link TreeMap} range scans and do not depend on the amount of chats.
+ *
+ * The index is built on first search and then kept up to date by chat, user and supergroup updates.
+ */
+public final class TdlibSearchIndex {
+  private final Tdlib tdlib;
+
+  private final Object lock = new Object();
+  private final TreeMap<String, LongSet> tokens = new TreeMap<>();
+  private final LongMap<String[]> chatTokens = new LongMap<>();
+  private boolean isBuilt, isBuilding;
+  private int generation;
+  private LongSet chatIdsUpdatedWhileBuilding;
+
+  TdlibSearchIndex (Tdlib tdlib) {
+    this.tdlib = tdlib;
+  }
+
+  // Tokens
+
+  private static boolean isTokenCodePoint (int codePoint) {
+    return Character.isLetterOrDigit(codePoint);
+  }
+
+  private static void addTokens (@Nullable String text, @NonNull List<String> out) {
+    if (StringUtils.isEmpty(text)) {
+      return;
+    }
+    final int length = text.length();
+    StringBuilder b = null;
+    for (int i = 0; i < length; ) {
+      final int codePoint = text.codePointAt(i);
+      i += Character.charCount(codePoint);
+      if (isTokenCodePoint(codePoint)) {
+        if (b == null) {
+          b = new StringBuilder();
+        }
+        b.appendCodePoint(StringUtils.normalizeCodePoint(Character.toLowerCase(codePoint)));
+      } else if (b != null && b.length() > 0) {
+        out.add(b.toString());
+        b.setLength(0);
+      }
+    }
+    if (b != null && b.length() > 0) {
+      out.add(b.toString());
+    }
+  }
+
+  private static void addTransliteratedTokens (@NonNull List<String> tokens) {
+    final int count = tokens.size();
+    for (int i = 0; i < count; i++) {
+      String token = tokens.get(i);
+      if (Transliterator.hasCyrillicLetters(token)) {
+        addTokens(Transliterator.cyrillicToLatin(token), tokens);
+      }
+      if (Transliterator.hasLatinLetters(token)) {
+        addTokens(Transliterator.latinToCyrillic(token), tokens);
+      }
+    }
+  }
+
+  @Nullable
+  private String[] newChatTokens (@Nullable TdApi.Chat chat) {
+    if (chat == null) {
+      return null;
+    }
+    List<String> tokens = new ArrayList<>();
+    addTokens(chat.title, tokens);
+    addTransliteratedTokens(tokens);
+    TdApi.Usernames usernames = tdlib.chatUsernames(chat);
+    if (usernames != null && usernames.activeUsernames != null) {
+      for (String username : usernames.activeUsernames) {
+        addTokens(username, tokens);
+        // Usernames are also found without separators, e.g. "johnsmith" for "john_smith"
+        addTokens(username.replace("_", ""), tokens);
+      }
+    }
+    if (tokens.isEmpty()) {
+      return null;
+    }
+    Collections.sort(tokens);
+    // Remove duplicates
+    int uniqueCount = 0;
+    for (int i = 0; i < tokens.size(); i++) {
+      String token = tokens.get(i);
+      if (uniqueCount == 0 || !token.equals(tokens.get(uniqueCount - 1))) {
+        tokens.set(uniqueCount++, token);
+      }
+    }
+    return tokens.subList(0, uniqueCount).toArray(new String[0]);
+  }
+
+  // Index
+
+  private void putChatTokens (long chatId, @Nullable String[] newTokens) {
+    String[] oldTokens = newTokens != null ? chatTokens.put(chatId, newTokens) : chatTokens.remove(chatId);
+    if (oldTokens != null) {
+      for (String token : oldTokens) {
+        LongSet chatIds = tokens.get(token);
+        if (chatIds != null) {
+          chatIds.remove(chatId);
+          if (chatIds.isEmpty()) {
+            tokens.remove(token);
+          }
+        }
+      }
+    }
+    if (newTokens != null) {
+      for (String token : newTokens) {
+        LongSet chatIds = tokens.get(token);
+        if (chatIds == null) {
+          chatIds = new LongSet();
+          tokens.put(token, chatIds);
+        }
+        chatIds.add(chatId);
+      }
+    }
+  }
+
+  private void buildIfNeeded () {
+    final int generation;
+    synchronized (lock) {
+      if (isBuilt || isBuilding) {
+        return;
+      }
+      isBuilding = true;
+      generation = this.generation;
+    }
+    final long startTime = System.nanoTime();
+    // Tokens are prepared outside of the lock, because chats are read under Tdlib data lock
+    List<TdApi.Chat> chats = tdlib.chatsSnapshot();
+    List<String[]> newTokens = new ArrayList<>(chats.size());
+    for (TdApi.Chat chat : chats) {
+      newTokens.add(newChatTokens(chat));
+    }
+    final LongSet updatedChatIds;
+    synchronized (lock) {
+      isBuilding = false;
+      if (this.generation != generation) {
+        chatIdsUpdatedWhileBuilding = null;
+        return;
+      }
+      for (int i = 0; i < chats.size(); i++) {
+        putChatTokens(chats.get(i).id, newTokens.get(i));
+      }
+      isBuilt = true;
+      updatedChatIds = chatIdsUpdatedWhileBuilding;
+      chatIdsUpdatedWhileBuilding = null;
+    }
+    if (updatedChatIds != null) {
+      for (long chatId : updatedChatIds) {
+        onChatUpdated(chatId);
+      }
+    }
+    Log.i("Built search index of %d chats in %dms", chats.size(), (System.nanoTime() - startTime) / 1_000_000L);
+  }
+
+  /**
+   * Builds the index in advance, so the first search does not wait for it.
+   */
+  public void prepare () {
+    tdlib.runOnTdlibThread(this::buildIfNeeded);
+  }
+
+  void reset () {
+    synchronized (lock) {
+      generation++;
+      isBuilt = false;
+      chatIdsUpdatedWhileBuilding = null;
+      tokens.clear();
+      chatTokens.clear();
+    }
+  }
+
+  void onChatUpdated (long chatId) {
+    synchronized (lock) {
+      if (isBuilding) {
+        if (chatIdsUpdatedWhileBuilding == null) {
+          chatIdsUpdatedWhileBuilding = new LongSet();
+        }
+        chatIdsUpdatedWhileBuilding.add(chatId);
+        return;
+      }
+      if (!isBuilt) {
+        return;
+      }
+    }
+    String[] newTokens = newChatTokens(tdlib.chat(chatId));
+    synchronized (lock) {
+      if (isBuilt) {
+        putChatTokens(chatId, newTokens);
+      }
+    }
+  }
+
+  void onUserUpdated (long userId) {
+    onChatUpdated(ChatId.fromUserId(userId));
+  }
+
+  // Search
+
+  private static final class Match implements Comparable<Match> {
+    final long chatId;
+    final int exactCount;
+    final long order;
+
+    Match (long chatId, int exactCount, long order) {
+      this.chatId = chatId;
+      this.exactCount = exactCount;
+      this.order = order;
+    }
+
+    @Override
+    public int compareTo (Match other) {
+      if (exactCount != other.exactCount) {
+        return Integer.compare(other.exactCount, exactCount);
+      }
+      if (order != other.order) {
+        return Long.compare(other.order, order);
+      }
+      return Long.compare(other.chatId, chatId);
+    }
+  }
+
+  private void addPrefixMatches (String prefix, LongSet out) {
+    for (Map.Entry<String, LongSet> entry : tokens.subMap(prefix, true, prefix + Character.MAX_VALUE, false).entrySet()) {
+      for (long chatId : entry.getValue()) {
+        out.add(chatId);
+      }
+    }
+  }
+
+  /**
+   * Finds chats, which title or username contains words starting with every word of the query.
+   * Chats with more exactly matching words go first, then chats that are higher in the chat list.
+   *
+   * Never builds the index on the calling thread: when it is not ready yet, building starts
+   * in background and null is returned, so the caller falls back to TDLib search.
+   *
+   * @return identifiers of found chats, or null, if query contains no words or index is not ready yet
+   */
+  @Nullable
+  public long[] search (@Nullable TdApi.ChatList chatList, @Nullable String query, int limit) {
+    List<String> queryTokens = new ArrayList<>();
+    addTokens(query, queryTokens);
+    if (queryTokens.isEmpty()) {
+      return null;
+    }
+
+    final ArrayList<Match> matches;
+    synchronized (lock) {
+      if (!isBuilt) {
+        if (!isBuilding) {
+          prepare();
+        }
+        return null;
+      }
+      LongSet found = null;
+      for (String queryToken : queryTokens) {
+        LongSet tokenMatches = new LongSet();
+        addPrefixMatches(queryToken, tokenMatches);
+        if (found != null) {
+          LongSet intersection = new LongSet();
+          for (long chatId : tokenMatches) {
+            if (found.has(chatId)) {
+              intersection.add(chatId);
+            }
+          }
+          found = intersection;
+        } else {
+          found = tokenMatches;
+        }
+        if (found.isEmpty()) {
+          return new long[0];
+        }
+      }
+      matches = new ArrayList<>(found.size());
+      for (long chatId : found) {
+        int exactCount = 0;
+        for (String queryToken : queryTokens) {
+          LongSet exactMatches = tokens.get(queryToken);
+          if (exactMatches != null && exactMatches.has(chatId)) {
+            exactCount++;
+          }
+        }
+        TdApi.Chat chat = tdlib.chat(chatId);
+        long order = chat != null ? ChatPosition.getOrder(chat, chatList != null ? chatList : ChatPosition.CHAT_LIST_MAIN) : 0;
+        matches.add(new Match(chatId, exactCount, order));
+      }
+    }
+    Collections.sort(matches);
+    final int count = Math.min(limit, matches.size());
+    long[] chatIds = new long[count];
+    for (int i = 0; i < count; i++) {
+      chatIds[i] = matches.get(i).chatId;
+    }
+    return chatIds;
+  }
+
+  @Override
+  public String toString () {
+    synchronized (lock) {
+      return String.format(Locale.US, "TdlibSearchIndex { built = %s, chats = %d, tokens = %d }", isBuilt, chatTokens.size(), tokens.size());
+    }
+  }
+}
@@ -192,6 +192,12 @@ public class TdlibUi extends Handler {
     this.tdlib = tdlib;
   }
 
+  @Override
+  public boolean sendMessageAtTime (@NonNull Message msg, long uptimeMillis) {
+    UI.flushBatch();
+    return super.sendMessageAtTime(msg, uptimeMillis);
+  }
+
   public void execute (Runnable runnable) {
     if (UI.inUiThread()) {
       runnable.run();
@@ -0,0 +1,179 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.telegram;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.drinkless.tdlib.TdApi;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Holds back state updates that fully replace previous updates of the same kind for the same chat or user,
+ * so only the latest one of each kind reaches {@link Tdlib} and its listeners.
+ *
+ * Any other update, including every message update, first flushes all pending updates,
+ * so the relative order of updates that are not coalesced never changes.
+ * Pending updates are flushed in the order their latest version was received.
+ *
+ * Request results bypass this class, so a held back update may reach listeners after the result
+ * of a request sent later. Only counters and statuses that are never read by request handlers are coalesced:
+ * {@link TdApi.UpdateChatPosition} and {@link TdApi.UpdateChatLastMessage} are always dispatched immediately,
+ * because e.g. {@link TdlibChatList} expects positions of loaded chats to be known when {@link TdApi.LoadChats} returns.
+ *
+ * Must be accessed only on TDLib thread.
+ */
+final class TdlibUpdateCoalescer {
+  interface Dispatcher {
+    void dispatchUpdate (TdApi.Update update);
+    void scheduleFlush (Runnable flush, double timeoutSeconds);
+  }
+
+  private static final double WINDOW_SECONDS = .05;
+
+  private final Dispatcher dispatcher;
+  private final LinkedHashMap<Key, Pending> pending = new LinkedHashMap<>();
+  private boolean flushScheduled;
+
+  // Written only on TDLib thread
+  private volatile long receivedCount, droppedCount, mergedCount;
+
+  TdlibUpdateCoalescer (Dispatcher dispatcher) {
+    this.dispatcher = dispatcher;
+  }
+
+  private static final class Key {
+    final int type;
+    final long id;
+
+    Key (int type, long id) {
+      this.type = type;
+      this.id = id;
+    }
+
+    @Override
+    public boolean equals (Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key other = (Key) o;
+      return type == other.type && id == other.id;
+    }
+
+    @Override
+    public int hashCode () {
+      int result = type;
+      result = 31 * result + (int) (id ^ (id >>> 32));
+      return result;
+    }
+  }
+
+  private static final class Pending {
+    final TdApi.Update update;
+    final int supersededCount;
+
+    Pending (TdApi.Update update, int supersededCount) {
+      this.update = update;
+      this.supersededCount = supersededCount;
+    }
+  }
+
+  @Nullable
+  private static Key keyOf (TdApi.Update update) {
+    switch (update.getConstructor()) {
+      case TdApi.UpdateChatReadInbox.CONSTRUCTOR:
+        return new Key(update.getConstructor(), ((TdApi.UpdateChatReadInbox) update).chatId);
+      case TdApi.UpdateChatReadOutbox.CONSTRUCTOR:
+        return new Key(update.getConstructor(), ((TdApi.UpdateChatReadOutbox) update).chatId);
+      case TdApi.UpdateChatUnreadMentionCount.CONSTRUCTOR:
+        return new Key(update.getConstructor(), ((TdApi.UpdateChatUnreadMentionCount) update).chatId);
+      case TdApi.UpdateChatUnreadReactionCount.CONSTRUCTOR:
+        return new Key(update.getConstructor(), ((TdApi.UpdateChatUnreadReactionCount) update).chatId);
+      case TdApi.UpdateUserStatus.CONSTRUCTOR:
+        return new Key(update.getConstructor(), ((TdApi.UpdateUserStatus) update).userId);
+    }
+    return null;
+  }
+
+  /**
+   * @return true, if update has been held back and will be dispatched later
+   */
+  public boolean offer (@NonNull TdApi.Update update, boolean isEnabled) {
+    final Key key = isEnabled ? keyOf(update) : null;
+    if (key == null) {
+      flush();
+      return false;
+    }
+    receivedCount++;
+    Pending prev = pending.remove(key);
+    int supersededCount = 0;
+    if (prev != null) {
+      supersededCount = prev.supersededCount + 1;
+      droppedCount++;
+      if (prev.supersededCount == 0) {
+        mergedCount++;
+      }
+    }
+    pending.put(key, new Pending(update, supersededCount));
+    if (!flushScheduled) {
+      flushScheduled = true;
+      dispatcher.scheduleFlush(this::flush, WINDOW_SECONDS);
+    }
+    return true;
+  }
+
+  public void flush () {
+    flushScheduled = false;
+    if (pending.isEmpty()) {
+      return;
+    }
+    List<TdApi.Update> updates = new ArrayList<>(pending.size());
+    Iterator<Pending> it = pending.values().iterator();
+    while (it.hasNext()) {
+      updates.add(it.next().update);
+      it.remove();
+    }
+    for (TdApi.Update update : updates) {
+      dispatcher.dispatchUpdate(update);
+    }
+  }
+
+  /**
+   * @return number of updates that have been replaced by a newer one and never dispatched
+   */
+  public long getDroppedCount () {
+    return droppedCount;
+  }
+
+  /**
+   * @return number of dispatched updates that stand in for at least one dropped update
+   */
+  public long getMergedCount () {
+    return mergedCount;
+  }
+
+  public long getReceivedCount () {
+    return receivedCount;
+  }
+
+  @Override
+  @NonNull
+  public String toString () {
+    return "TdlibUpdateCoalescer { received = " + receivedCount + ", dropped = " + droppedCount + ", merged = " + mergedCount + " }";
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.theme;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import me.vkryl.core.ColorUtils;
+
+/**
+ * Dense {@code int[]} of all theme colors, indexed by {@link ColorId}.
+ *
+ * Color identifiers are generated as {@code 1..ThemeColors.COUNT}, so index 0 ({@link ColorId#NONE}) is unused.
+ */
+final class ThemeColorTable {
+  static final int SIZE = ThemeColors.COUNT + 1;
+  static final int[] EMPTY = new int[0];
+
+  interface ColorProvider {
+    int getColor (@ColorId int colorId);
+  }
+
+  private ThemeColorTable () { }
+
+  static boolean isValid (@ColorId int colorId) {
+    return colorId > ColorId.NONE && colorId < SIZE;
+  }
+
+  /**
+   * Resolves every color of the theme, including fallback colors and colors inherited from the parent theme.
+   *
+   * @return null, if theme does not define some color (e.g. custom theme that is still being loaded)
+   */
+  @Nullable
+  static int[] build (@NonNull ColorProvider theme) {
+    final int[] colors = new int[SIZE];
+    try {
+      for (int colorId = 1; colorId < SIZE; colorId++) {
+        colors[colorId] = theme.getColor(colorId);
+      }
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+    return colors;
+  }
+
+  /**
+   * @return colors of the theme, or null, if some color cannot be resolved
+   */
+  @Nullable
+  static int[] of (@NonNull ThemeDelegate theme) {
+    if (theme instanceof ThemeCustom) {
+      return ((ThemeCustom) theme).getColorTable();
+    }
+    return build(theme::getColor);
+  }
+
+  static void interpolate (@NonNull int[] fromColors, @NonNull int[] toColors, float factor, @NonNull int[] out) {
+    for (int colorId = 1; colorId < SIZE; colorId++) {
+      final int fromColor = fromColors[colorId];
+      final int toColor = toColors[colorId];
+      out[colorId] = fromColor == toColor ? toColor : ColorUtils.fromToArgb(fromColor, toColor, factor);
+    }
+  }
+}
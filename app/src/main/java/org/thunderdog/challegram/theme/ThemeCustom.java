@@ -58,7 +58,10 @@ public final class ThemeCustom implements ThemeDelegate {
 
   public void setColor (@ColorId int colorId, @Nullable Integer color) {
     this.lastChangedColorId = colorId;
-    colors.set(colorId, color);
+    synchronized (this) {
+      colors.set(colorId, color);
+      invalidateColorTable();
+    }
   }
 
   public boolean hasRecentlyChanged (@ColorId int colorId) {
@@ -76,11 +79,42 @@ public final class ThemeCustom implements ThemeDelegate {
   }
 
   private void setParentThemeImpl (@ThemeId int id) {
-    this.parentTheme = ThemeSet.getBuiltinTheme(id);
+    synchronized (this) {
+      this.parentTheme = ThemeSet.getBuiltinTheme(id);
+      invalidateColorTable();
+    }
     if (this.parentTheme == null)
       throw new IllegalArgumentException("Invalid themeId: " + id);
   }
 
+  // Color table
+
+  // Own, fallback and parent theme colors resolved into a single array, rebuilt on first access after any change
+  private volatile int[] colorTable;
+
+  private void invalidateColorTable () {
+    this.colorTable = null;
+  }
+
+  @Nullable
+  int[] getColorTable () {
+    int[] colorTable = this.colorTable;
+    if (colorTable == null) {
+      synchronized (this) {
+        colorTable = this.colorTable;
+        if (colorTable == null) {
+          colorTable = ThemeColorTable.build(this::getColorImpl);
+          if (colorTable == null) {
+            // Theme that is missing some colors stays on the slow path until its next change
+            colorTable = ThemeColorTable.EMPTY;
+          }
+          this.colorTable = colorTable;
+        }
+      }
+    }
+    return colorTable != ThemeColorTable.EMPTY ? colorTable : null;
+  }
+
   public void setProperty (@PropertyId int propertyId, @Nullable Float value) {
     if (propertyId == PropertyId.PARENT_THEME) {
       setParentThemeImpl(value != null ? value.intValue() : ThemeId.NONE);
@@ -95,6 +129,16 @@ public final class ThemeCustom implements ThemeDelegate {
 
   @Override
   public int getColor (int colorId) {
+    if (ThemeColorTable.isValid(colorId)) {
+      int[] colorTable = getColorTable();
+      if (colorTable != null) {
+        return colorTable[colorId];
+      }
+    }
+    return getColorImpl(colorId);
+  }
+
+  private int getColorImpl (@ColorId int colorId) {
     Integer color = colors.get(colorId);
     if (color != null)
       return color;
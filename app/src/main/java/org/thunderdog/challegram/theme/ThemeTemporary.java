@@ -22,9 +22,17 @@ final class ThemeTemporary implements ThemeDelegate {
   private final ThemeDelegate fromTheme;
   private final ThemeDelegate toTheme;
 
+  // Colors of both themes and their interpolation, rebuilt in one pass on each factor change.
+  // Two buffers are swapped, so readers outside of UI thread see at worst colors of the previous frame
+  private final int[] fromColors, toColors;
+  private volatile int[] colors;
+  private int[] spareColors;
+
   public ThemeTemporary (ThemeDelegate fromTheme, ThemeDelegate toTheme) {
     this.fromTheme = fromTheme;
     this.toTheme = toTheme;
+    this.fromColors = ThemeColorTable.of(fromTheme);
+    this.toColors = ThemeColorTable.of(toTheme);
   }
 
   @Override
@@ -58,6 +66,12 @@ final class ThemeTemporary implements ThemeDelegate {
 
   public boolean setFactor (float factor) {
     if (this.factor != factor) {
+      if (fromColors != null && toColors != null && factor != 0f && factor != 1f) {
+        int[] out = spareColors != null ? spareColors : new int[ThemeColorTable.SIZE];
+        ThemeColorTable.interpolate(fromColors, toColors, factor, out);
+        this.spareColors = colors;
+        this.colors = out;
+      }
       this.factor = factor;
       return true;
     }
@@ -70,6 +84,9 @@ final class ThemeTemporary implements ThemeDelegate {
       return fromTheme.getColor(colorId);
     else if (factor == 1f)
       return toTheme.getColor(colorId);
+    final int[] colors = this.colors;
+    if (colors != null && ThemeColorTable.isValid(colorId))
+      return colors[colorId];
     return ColorUtils.fromToArgb(fromTheme.getColor(colorId), toTheme.getColor(colorId), factor);
   }
 
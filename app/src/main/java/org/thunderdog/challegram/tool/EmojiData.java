@@ -14,8 +14,10 @@
  */
 package org.thunderdog.challegram.tool;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import me.vkryl.core.StringUtils;
@@ -115,6 +117,10 @@ public class EmojiData {
     return emojiAliasMap.get(emoji);
   }
 
+  public Map<String, String> getEmojiAliases () {
+    return Collections.unmodifiableMap(emojiAliasMap);
+  }
+
   public static final int STATE_NO_COLORS = 0;
   public static final int STATE_HAS_ONE_COLOR = 1;
   public static final int STATE_HAS_TWO_COLORS = 2;
@@ -745,6 +745,75 @@ public class UI {
     getAppHandler().postDelayed(r, delay);
   }
 
+  // Batches
+
+  private static final class Batch {
+    private int depth;
+    private ArrayList<Runnable> runnables;
+  }
+
+  private static final ThreadLocal<Batch> currentBatch = new ThreadLocal<>();
+
+  /**
+   * Starts holding back runnables passed to {@link #postBatched(Runnable)} on the current thread,
+   * so they reach the main thread as a single message once the outermost {@link #endBatch()} is called.
+   */
+  public static void beginBatch () {
+    Batch batch = currentBatch.get();
+    if (batch == null) {
+      batch = new Batch();
+      currentBatch.set(batch);
+    }
+    batch.depth++;
+  }
+
+  public static void endBatch () {
+    Batch batch = currentBatch.get();
+    if (batch == null || batch.depth == 0)
+      throw new IllegalStateException();
+    if (--batch.depth == 0) {
+      flushBatch();
+    }
+  }
+
+  /**
+   * Same as {@link #post(Runnable)}, but joins the current thread's batch, if there's one.
+   * Runnable must not be cancelled later, as it's not posted to the handler directly.
+   */
+  public static void postBatched (Runnable r) {
+    Batch batch = currentBatch.get();
+    if (batch != null && batch.depth > 0) {
+      if (batch.runnables == null) {
+        batch.runnables = new ArrayList<>();
+      }
+      batch.runnables.add(r);
+    } else {
+      post(r);
+    }
+  }
+
+  /**
+   * Posts runnables held back on the current thread. Called before any other message
+   * is sent to the main thread, so batching never changes the order of posted runnables.
+   */
+  public static void flushBatch () {
+    Batch batch = currentBatch.get();
+    if (batch == null || batch.runnables == null) {
+      return;
+    }
+    final ArrayList<Runnable> runnables = batch.runnables;
+    batch.runnables = null;
+    if (runnables.size() == 1) {
+      getAppHandler().post(runnables.get(0));
+    } else {
+      getAppHandler().post(() -> {
+        for (Runnable runnable : runnables) {
+          runnable.run();
+        }
+      });
+    }
+  }
+
   public static void cancel (Runnable r) {
     getAppHandler().removeCallbacks(r);
   }
@@ -81,6 +81,12 @@ public class UIHandler extends Handler {
     super(context.getMainLooper());
   }
 
+  @Override
+  public boolean sendMessageAtTime (@NonNull Message msg, long uptimeMillis) {
+    UI.flushBatch();
+    return super.sendMessageAtTime(msg, uptimeMillis);
+  }
+
   public void showToast (@StringRes int stringRes, int duration) {
     if (stringRes == 0)
       throw new IllegalArgumentException();
@@ -34,18 +34,23 @@ import org.thunderdog.challegram.MainActivity;
 import org.thunderdog.challegram.R;
 import org.thunderdog.challegram.U;
 import org.thunderdog.challegram.component.base.SettingView;
+import org.thunderdog.challegram.component.chat.MessagesPrefetcher;
+import org.thunderdog.challegram.component.chat.MessagesRecycledViewPool;
 import org.thunderdog.challegram.config.Config;
 import org.thunderdog.challegram.core.Background;
 import org.thunderdog.challegram.core.Lang;
 import org.thunderdog.challegram.data.TD;
+import org.thunderdog.challegram.loader.gif.GifBridge;
 import org.thunderdog.challegram.navigation.BackHeaderButton;
 import org.thunderdog.challegram.navigation.DoubleHeaderView;
 import org.thunderdog.challegram.navigation.SettingsWrap;
 import org.thunderdog.challegram.navigation.SettingsWrapBuilder;
 import org.thunderdog.challegram.navigation.ViewController;
+import org.thunderdog.challegram.player.AudioController;
 import org.thunderdog.challegram.telegram.GlobalTokenStateListener;
 import org.thunderdog.challegram.telegram.Tdlib;
 import org.thunderdog.challegram.telegram.TdlibAccount;
+import org.thunderdog.challegram.telegram.TdlibDataSource;
 import org.thunderdog.challegram.telegram.TdlibManager;
 import org.thunderdog.challegram.telegram.TdlibNotificationUtils;
 import org.thunderdog.challegram.telegram.TdlibUi;
@@ -60,7 +65,10 @@ import org.thunderdog.challegram.unsorted.Settings;
 import org.thunderdog.challegram.unsorted.Test;
 import org.thunderdog.challegram.util.AppUpdater;
 import org.thunderdog.challegram.util.Crash;
+import org.thunderdog.challegram.util.PerfBenchmark;
+import org.thunderdog.challegram.util.PerfTrace;
 import org.thunderdog.challegram.util.StringList;
+import org.thunderdog.challegram.util.text.TextWidthCache;
 import org.thunderdog.challegram.v.CustomRecyclerView;
 import org.thunderdog.challegram.voip.VoIP;
 import org.thunderdog.challegram.voip.VoIPController;
@@ -68,6 +76,7 @@ import org.thunderdog.challegram.widget.BetterChatView;
 import org.thunderdog.challegram.widget.MaterialEditTextGroup;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
@@ -495,6 +504,8 @@ public class SettingsBugController extends RecyclerViewController<SettingsBugCon
           view.getToggler().setRadioEnabled(Settings.instance().forceTcpInCalls(), isUpdate);
         } else if (itemId == R.id.btn_secret_forceTdlibRestarts) {
           view.getToggler().setRadioEnabled(Settings.instance().forceTdlibRestart(), isUpdate);
+        } else if (itemId == R.id.btn_secret_perfTrace) {
+          view.getToggler().setRadioEnabled(PerfTrace.isEnabled(), isUpdate);
         } else if (itemId == R.id.btn_switchRtl) {
           view.getToggler().setRadioEnabled(Lang.rtl(), isUpdate);
         } else if (itemId == R.id.btn_experiment) {
@@ -744,6 +755,33 @@ public class SettingsBugController extends RecyclerViewController<SettingsBugCon
           items.add(new ListItem(ListItem.TYPE_DESCRIPTION, 0, 0, R.string.Experiment_PeerIdsInfo));
         }
 
+        if (testerLevel >= Tdlib.TesterLevel.TESTER || Settings.instance().isExperimentEnabled(Settings.EXPERIMENT_FLAG_COALESCE_UPDATES)) {
+          if (!items.isEmpty()) {
+            items.add(new ListItem(ListItem.TYPE_SHADOW_TOP));
+          }
+          items.add(new ListItem(ListItem.TYPE_RADIO_SETTING, R.id.btn_experiment, 0, R.string.Experiment_CoalesceUpdates).setLongValue(Settings.EXPERIMENT_FLAG_COALESCE_UPDATES));
+          items.add(new ListItem(ListItem.TYPE_SHADOW_BOTTOM));
+          items.add(new ListItem(ListItem.TYPE_DESCRIPTION, 0, 0, R.string.Experiment_CoalesceUpdatesInfo));
+        }
+
+        if (testerLevel >= Tdlib.TesterLevel.TESTER || Settings.instance().isExperimentEnabled(Settings.EXPERIMENT_FLAG_BATCH_UI_UPDATES)) {
+          if (!items.isEmpty()) {
+            items.add(new ListItem(ListItem.TYPE_SHADOW_TOP));
+          }
+          items.add(new ListItem(ListItem.TYPE_RADIO_SETTING, R.id.btn_experiment, 0, R.string.Experiment_BatchUiUpdates).setLongValue(Settings.EXPERIMENT_FLAG_BATCH_UI_UPDATES));
+          items.add(new ListItem(ListItem.TYPE_SHADOW_BOTTOM));
+          items.add(new ListItem(ListItem.TYPE_DESCRIPTION, 0, 0, R.string.Experiment_BatchUiUpdatesInfo));
+        }
+
+        if (testerLevel >= Tdlib.TesterLevel.TESTER || Settings.instance().isExperimentEnabled(Settings.EXPERIMENT_FLAG_LOCAL_SEARCH_INDEX)) {
+          if (!items.isEmpty()) {
+            items.add(new ListItem(ListItem.TYPE_SHADOW_TOP));
+          }
+          items.add(new ListItem(ListItem.TYPE_RADIO_SETTING, R.id.btn_experiment, 0, R.string.Experiment_LocalSearchIndex).setLongValue(Settings.EXPERIMENT_FLAG_LOCAL_SEARCH_INDEX));
+          items.add(new ListItem(ListItem.TYPE_SHADOW_BOTTOM));
+          items.add(new ListItem(ListItem.TYPE_DESCRIPTION, 0, 0, R.string.Experiment_LocalSearchIndexInfo));
+        }
+
         if (items.isEmpty()) {
           items.add(new ListItem(ListItem.TYPE_EMPTY, 0, 0, R.string.ExperimentalSettingsUnavailable));
         }
@@ -766,6 +804,14 @@ public class SettingsBugController extends RecyclerViewController<SettingsBugCon
           items.add(new ListItem(ListItem.TYPE_SETTING, R.id.btn_secret_tdlibDatabaseStats, 0, "TDLib database statistics", false));
           items.add(new ListItem(ListItem.TYPE_SEPARATOR_FULL));
           items.add(new ListItem(ListItem.TYPE_SETTING, R.id.btn_secret_databaseStats, 0, "Other internal statistics", false));
+          items.add(new ListItem(ListItem.TYPE_SEPARATOR_FULL));
+          items.add(new ListItem(ListItem.TYPE_RADIO_SETTING, R.id.btn_secret_perfTrace, 0, "Trace hot paths (not persistent)", PerfTrace.isEnabled()));
+          items.add(new ListItem(ListItem.TYPE_SEPARATOR_FULL));
+          items.add(new ListItem(ListItem.TYPE_SETTING, R.id.btn_secret_perfStats, 0, "Performance statistics", false));
+          items.add(new ListItem(ListItem.TYPE_SEPARATOR_FULL));
+          items.add(new ListItem(ListItem.TYPE_SETTING, R.id.btn_secret_perfTraceExport, 0, "Export performance trace to log files", false));
+          items.add(new ListItem(ListItem.TYPE_SEPARATOR_FULL));
+          items.add(new ListItem(ListItem.TYPE_SETTING, R.id.btn_secret_perfBenchmark, 0, "Run microbenchmarks", false));
 
           if (testerLevel >= Tdlib.TesterLevel.ADMIN) {
             items.add(new ListItem(ListItem.TYPE_SEPARATOR_FULL));
@@ -1085,6 +1131,24 @@ public class SettingsBugController extends RecyclerViewController<SettingsBugCon
 
   private boolean isErasingData;
 
+  private String getPerformanceStats () {
+    StringBuilder b = new StringBuilder(PerfTrace.getStats());
+    b.append('\n').append(TextWidthCache.getStats());
+    b.append('\n').append(TdlibDataSource.getStats());
+    b.append('\n').append(MessagesPrefetcher.getStats());
+    b.append('\n').append(MessagesRecycledViewPool.getStats());
+    b.append('\n').append(AudioController.getStats());
+    b.append('\n').append(GifBridge.instance().getFrameScheduler());
+    if (tdlib != null) {
+      b.append('\n').append(tdlib.getUpdateCoalescerStats());
+      b.append('\n').append(tdlib.getListenerDispatchStats());
+      b.append('\n').append(tdlib.cache().getLockStats());
+      b.append('\n').append(tdlib.emoji().getStats());
+      b.append('\n').append(tdlib.searchIndex());
+    }
+    return b.toString();
+  }
+
   @Override
   public void onClick (View v) {
     final int viewId = v.getId();
@@ -1398,6 +1462,46 @@ public class SettingsBugController extends RecyclerViewController<SettingsBugCon
       TextController c = new TextController(context, tdlib);
       c.setArguments(TextController.Arguments.fromRawText("App Database Stats", stats, "text/plain"));
       navigateTo(c);
+    } else if (viewId == R.id.btn_secret_perfTrace) {
+      PerfTrace.setEnabled(adapter.toggleView(v));
+    } else if (viewId == R.id.btn_secret_perfStats) {
+      TextController c = new TextController(context, tdlib);
+      c.setArguments(TextController.Arguments.fromRawText("Performance Statistics", getPerformanceStats(), "text/plain"));
+      navigateTo(c);
+    } else if (viewId == R.id.btn_secret_perfTraceExport) {
+      final String stats = getPerformanceStats();
+      Background.instance().post(() -> {
+        try {
+          File file = PerfTrace.export(stats);
+          UI.showToast(file != null ? "Saved " + file.getName() : "Logs directory is not available", Toast.LENGTH_SHORT);
+        } catch (IOException e) {
+          Log.e("Cannot export performance trace", e);
+          UI.showToast("Export failed: " + e.getMessage(), Toast.LENGTH_SHORT);
+        }
+      });
+    } else if (viewId == R.id.btn_secret_perfBenchmark) {
+      UI.showToast("Running benchmarks. Please wait...", Toast.LENGTH_SHORT);
+      Background.instance().post(() -> {
+        String result;
+        File[] file = new File[1];
+        try {
+          result = PerfBenchmark.run(file);
+        } catch (IOException e) {
+          Log.e("Cannot save benchmark results", e);
+          result = null;
+        }
+        final String text = result;
+        final File resultFile = file[0];
+        runOnUiThreadOptional(() -> {
+          if (text == null) {
+            UI.showToast("Cannot save benchmark results", Toast.LENGTH_SHORT);
+            return;
+          }
+          TextController c = new TextController(context, tdlib);
+          c.setArguments(TextController.Arguments.fromRawText("Microbenchmarks", resultFile != null ? text + "\n\nSaved to " + resultFile.getName() : text, "text/plain"));
+          navigateTo(c);
+        });
+      });
     } else if (viewId == R.id.btn_secret_tdlibDatabaseStats) {
       UI.showToast("Calculating. Please wait...", Toast.LENGTH_SHORT);
       tdlib.client().send(new TdApi.GetDatabaseStatistics(), result -> {
@@ -427,6 +427,9 @@ public class Settings {
 
   public static final long EXPERIMENT_FLAG_ALLOW_EXPERIMENTS = 1;
   public static final long EXPERIMENT_FLAG_SHOW_PEER_IDS = 1 << 2;
+  public static final long EXPERIMENT_FLAG_COALESCE_UPDATES = 1 << 3;
+  public static final long EXPERIMENT_FLAG_BATCH_UI_UPDATES = 1 << 4;
+  public static final long EXPERIMENT_FLAG_LOCAL_SEARCH_INDEX = 1 << 5;
 
   public static final long REMOVED_EXPERIMENT_FLAG_ENABLE_FOLDERS = 1 << 1;
 
@@ -15,6 +15,7 @@
 package org.thunderdog.challegram.unsorted;
 
 import android.os.SystemClock;
+import android.text.Spanned;
 import android.view.View;
 
 import org.drinkless.tdlib.TdApi;
@@ -22,15 +23,20 @@ import org.thunderdog.challegram.BaseActivity;
 import org.thunderdog.challegram.BuildConfig;
 import org.thunderdog.challegram.Log;
 import org.thunderdog.challegram.core.Lang;
+import org.thunderdog.challegram.emoji.Emoji;
+import org.thunderdog.challegram.emoji.EmojiInfo;
 import org.thunderdog.challegram.navigation.ViewController;
 import org.thunderdog.challegram.telegram.Tdlib;
 import org.thunderdog.challegram.tool.UI;
+import org.thunderdog.challegram.util.LongMap;
 import org.thunderdog.challegram.util.OptionDelegate;
 import org.thunderdog.challegram.util.StringList;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Random;
 import java.util.UUID;
 
@@ -44,6 +50,35 @@ import me.vkryl.td.Td;
 public class Test {
   private static void testFormat (String format, Object... args) {
     assertEquals(Lang.formatString(format, null, args).toString(), String.format(Lang.locale(), format, args));
+
+    // Parsed template must produce the same text and spans as formatString
+    Lang.SpanCreator creator = (target, argStart, argEnd, argIndex, needFakeBold) -> new int[] {argIndex};
+    CharSequence expected = Lang.formatString(format, true, creator, args);
+    CharSequence actual = Lang.formatStringWithTemplate(format, creator, args);
+    assertEquals(actual.toString(), expected.toString());
+    assertEquals(describeSpans(actual), describeSpans(expected));
+  }
+
+  private static String describeSpans (CharSequence text) {
+    if (!(text instanceof Spanned)) {
+      return "";
+    }
+    Spanned spanned = (Spanned) text;
+    StringBuilder b = new StringBuilder();
+    for (int[] span : spanned.getSpans(0, spanned.length(), int[].class)) {
+      b.append(span[0]).append(':').append(spanned.getSpanStart(span)).append('-').append(spanned.getSpanEnd(span)).append(';');
+    }
+    return b.toString();
+  }
+
+  public static void testFormatTemplates () {
+    testFormat("%1$s", "Hello");
+    testFormat("%s and %s", "Cats", "dogs");
+    testFormat("%2$s %1$s", "World", "Hello");
+    testFormat("%1$d:%2$02d", 1, 1);
+    testFormat("%1$d%% done, %2$s left", 50, "5 minutes");
+    testFormat("%1$s sent %2$d messages to %1$s", "Alice", 3);
+    testFormat("No arguments, 100%%");
   }
 
   public static void executeBeforeAppInit () {
@@ -63,6 +98,7 @@ public class Test {
       // Log.i("decimal: %s %s %s", Lang.formatDecimal(12.03), Lang.formatDecimal(1024.5134), Lang.formatDecimal(10241024.5134));
       // testFormat("%4$d%% %3$02d %2$s %1$s", "World", "Hello", 0, 100);
       // testFormat("%1$d:%2$02d", 1, 1);
+      // testFormatTemplates();
       // assertEquals("HELLO \\\"WORLD\\\"".replaceAll("\\\\\"", "\""), "HELLO \"WORLD\"");
       // assertEquals(Lang.patternWithoutYear("d MMMM، y"), "d MMMM");
     }*/
@@ -183,6 +219,81 @@ public class Test {
     }
   }
 
+  public static void testLongMap () {
+    LongMap<Long> map = new LongMap<>();
+    HashMap<Long, Long> expected = new HashMap<>();
+    Random random = new Random();
+
+    // Small key range makes sure the same keys get removed and inserted again
+    for (int i = 0; i < 100000; i++) {
+      long key = random.nextInt(2000) - 1000;
+      if (random.nextInt(4) == 0) {
+        assertEquals(map.remove(key) != null, expected.remove(key) != null);
+      } else {
+        long value = random.nextLong();
+        Long prevValue = expected.put(key, value);
+        Long prevMapValue = map.put(key, value);
+        assertEquals(prevValue != null, prevMapValue != null);
+        if (prevValue != null) {
+          assertEquals((long) prevValue, (long) prevMapValue);
+        }
+      }
+      assertEquals(map.size(), expected.size());
+    }
+
+    for (long key = -1000; key < 1000; key++) {
+      Long value = expected.get(key);
+      assertEquals(map.containsKey(key), value != null);
+      if (value != null) {
+        assertEquals((long) value, (long) map.get(key));
+      }
+    }
+    assertEquals(map.get(Long.MIN_VALUE) == null, true);
+    assertEquals(map.get(Long.MAX_VALUE) == null, true);
+
+    int count = 0;
+    for (Long value : map.values()) {
+      assertEquals(expected.containsValue(value), true);
+      count++;
+    }
+    assertEquals(count, expected.size());
+
+    map.clear();
+    assertEquals(map.size(), 0);
+    assertEquals(map.isEmpty(), true);
+    assertEquals(map.values().iterator().hasNext(), false);
+  }
+
+  private static ArrayList<EmojiInfo> findEmoji (String text, boolean useTrie) {
+    ArrayList<EmojiInfo> result = new ArrayList<>();
+    Emoji.instance().replaceEmoji(text, 0, text.length(), null, (input, code, info, position, length) -> {
+      result.add(info);
+      return true;
+    }, useTrie);
+    return result;
+  }
+
+  public static void testEmojiTrie () {
+    String[] texts = {
+      "Hello 😊 world",
+      "❤️ ❤ ☺️",
+      "👍🏽👍🏿 🤝",
+      "🇺🇦🇬🇧 flags",
+      "👨‍👩‍👧‍👦 family",
+      "1️⃣ #️⃣ keycaps",
+      "🎉🎂🎁 no spaces",
+      "plain text without emoji"
+    };
+    for (String text : texts) {
+      ArrayList<EmojiInfo> expected = findEmoji(text, false);
+      ArrayList<EmojiInfo> actual = findEmoji(text, true);
+      assertEquals(actual.size(), expected.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(actual.get(i) == expected.get(i), true);
+      }
+    }
+  }
+
   public static void testBlob () {
     Random random;
     Blob input;
@@ -50,5 +50,6 @@ public class BatchOperationHandler {
       isScheduled = false;
     }
     handler.sendEmptyMessageDelayed(0, batchOperationDelay());
+    isScheduled = true;
   }
 }
@@ -0,0 +1,83 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.util;
+
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import org.thunderdog.challegram.Log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link ReentrantLock} that counts how often and how long threads had to wait for it.
+ *
+ * Waits on the main thread longer than {@link #SLOW_WAIT_MS} are reported to {@link Log},
+ * each time a new maximum is reached.
+ */
+public final class ContentionLock extends ReentrantLock {
+  private static final long SLOW_WAIT_MS = 8;
+
+  private final String name;
+
+  // Guarded by this lock, except maxWaitNanos, which is only read racily for reporting
+  private long acquireCount, contendedCount, totalWaitNanos;
+  private volatile long maxWaitNanos;
+
+  public ContentionLock (String name) {
+    this.name = name;
+  }
+
+  @Override
+  public void lock () {
+    if (tryLock()) {
+      acquireCount++;
+      return;
+    }
+    final long startNanos = System.nanoTime();
+    super.lock();
+    final long waitNanos = System.nanoTime() - startNanos;
+    acquireCount++;
+    contendedCount++;
+    totalWaitNanos += waitNanos;
+    if (waitNanos > maxWaitNanos) {
+      maxWaitNanos = waitNanos;
+      if (Looper.myLooper() == Looper.getMainLooper() && waitNanos >= TimeUnit.MILLISECONDS.toNanos(SLOW_WAIT_MS)) {
+        Log.w("Main thread waited %dms for %s", TimeUnit.NANOSECONDS.toMillis(waitNanos), name);
+      }
+    }
+  }
+
+  public String getName () {
+    return name;
+  }
+
+  @Override
+  @NonNull
+  public String toString () {
+    lock();
+    try {
+      return name + " { acquired = " + acquireCount +
+        ", contended = " + contendedCount +
+        ", totalWait = " + TimeUnit.NANOSECONDS.toMillis(totalWaitNanos) + "ms" +
+        ", maxWait = " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + "ms" +
+        " }";
+    } finally {
+      unlock();
+    }
+  }
+}
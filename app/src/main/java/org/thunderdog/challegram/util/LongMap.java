@@ -0,0 +1,268 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.util;
+
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Open-addressing hash map with primitive {@code long} keys.
+ *
+ * Modifications must be serialized by the caller (e.g. performed under a single lock),
+ * while {@link #get(long)} and {@link #containsKey(long)} are lock-free and may be called from any thread.
+ *
+ * Value of a slot is always published before its key, and keys never move within a table:
+ * removed entries leave their key in place and are dropped only when the table is rebuilt into a new one.
+ */
+public final class LongMap<V> {
+  private static final int MIN_CAPACITY = 16;
+  private static final int MAX_LOAD_PERCENT = 50;
+
+  private static final class Table {
+    final AtomicLongArray keys;
+    final AtomicReferenceArray<Object> values;
+    final int mask;
+
+    // Slots with a key set, including removed entries. Accessed only by writer
+    int usedCount;
+
+    Table (int capacity) {
+      this.keys = new AtomicLongArray(capacity);
+      this.values = new AtomicReferenceArray<>(capacity);
+      this.mask = capacity - 1;
+    }
+
+    int capacity () {
+      return mask + 1;
+    }
+  }
+
+  // Key 0 marks an empty slot, so its value is stored separately
+  private volatile Object zeroValue;
+  private volatile Table table;
+  private volatile int size;
+
+  public LongMap () {
+    this(MIN_CAPACITY);
+  }
+
+  public LongMap (int expectedSize) {
+    this.table = new Table(capacityFor(expectedSize));
+  }
+
+  private static int capacityFor (int size) {
+    int capacity = MIN_CAPACITY;
+    while ((long) capacity * MAX_LOAD_PERCENT / 100 < size) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  private static int hash (long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  public int size () {
+    return size;
+  }
+
+  public boolean isEmpty () {
+    return size == 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Nullable
+  public V get (long key) {
+    if (key == 0) {
+      return (V) zeroValue;
+    }
+    final Table table = this.table;
+    int index = hash(key) & table.mask;
+    while (true) {
+      long existingKey = table.keys.get(index);
+      if (existingKey == key) {
+        return (V) table.values.get(index);
+      }
+      if (existingKey == 0) {
+        return null;
+      }
+      index = (index + 1) & table.mask;
+    }
+  }
+
+  public boolean containsKey (long key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Associates value with the key. Passing null value removes the key.
+   *
+   * @return previous value associated with the key, or null
+   */
+  @SuppressWarnings("unchecked")
+  @Nullable
+  public V put (long key, @Nullable V value) {
+    if (value == null) {
+      return remove(key);
+    }
+    if (key == 0) {
+      Object prevValue = zeroValue;
+      zeroValue = value;
+      if (prevValue == null) {
+        size++;
+      }
+      return (V) prevValue;
+    }
+    Table table = this.table;
+    int index = hash(key) & table.mask;
+    while (true) {
+      long existingKey = table.keys.get(index);
+      if (existingKey == key) {
+        Object prevValue = table.values.getAndSet(index, value);
+        if (prevValue == null) {
+          size++;
+        }
+        return (V) prevValue;
+      }
+      if (existingKey == 0) {
+        break;
+      }
+      index = (index + 1) & table.mask;
+    }
+    if ((long) (table.usedCount + 1) * 100 > (long) table.capacity() * MAX_LOAD_PERCENT) {
+      table = rebuild(size + 1);
+      index = hash(key) & table.mask;
+      while (table.keys.get(index) != 0) {
+        index = (index + 1) & table.mask;
+      }
+    }
+    table.values.set(index, value);
+    table.keys.set(index, key);
+    table.usedCount++;
+    size++;
+    return null;
+  }
+
+  /**
+   * @return removed value, or null
+   */
+  @SuppressWarnings("unchecked")
+  @Nullable
+  public V remove (long key) {
+    if (key == 0) {
+      Object prevValue = zeroValue;
+      if (prevValue != null) {
+        zeroValue = null;
+        size--;
+      }
+      return (V) prevValue;
+    }
+    final Table table = this.table;
+    int index = hash(key) & table.mask;
+    while (true) {
+      long existingKey = table.keys.get(index);
+      if (existingKey == key) {
+        Object prevValue = table.values.getAndSet(index, null);
+        if (prevValue != null) {
+          size--;
+        }
+        return (V) prevValue;
+      }
+      if (existingKey == 0) {
+        return null;
+      }
+      index = (index + 1) & table.mask;
+    }
+  }
+
+  public void clear () {
+    zeroValue = null;
+    table = new Table(MIN_CAPACITY);
+    size = 0;
+  }
+
+  private Table rebuild (int expectedSize) {
+    final Table oldTable = this.table;
+    final Table newTable = new Table(capacityFor(expectedSize));
+    for (int i = 0; i < oldTable.capacity(); i++) {
+      Object value = oldTable.values.get(i);
+      if (value == null) {
+        continue;
+      }
+      long key = oldTable.keys.get(i);
+      int index = hash(key) & newTable.mask;
+      while (newTable.keys.get(index) != 0) {
+        index = (index + 1) & newTable.mask;
+      }
+      newTable.values.set(index, value);
+      newTable.keys.set(index, key);
+      newTable.usedCount++;
+    }
+    this.table = newTable;
+    return newTable;
+  }
+
+  /**
+   * Iterates over values present at the moment of each step.
+   * To get a consistent view, iterate under the same lock that serializes modifications.
+   */
+  public Iterable<V> values () {
+    return ValueIterator::new;
+  }
+
+  private final class ValueIterator implements Iterator<V> {
+    private final Table table = LongMap.this.table;
+    private Object next = zeroValue;
+    private int index = -1;
+
+    ValueIterator () {
+      if (next == null) {
+        advance();
+      }
+    }
+
+    private void advance () {
+      next = null;
+      while (++index < table.capacity()) {
+        Object value = table.values.get(index);
+        if (value != null) {
+          next = value;
+          return;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext () {
+      return next != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V next () {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      Object value = next;
+      advance();
+      return (V) value;
+    }
+  }
+}
@@ -0,0 +1,339 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.util;
+
+import android.os.Build;
+import android.os.Debug;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import org.drinkless.tdlib.TdApi;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.thunderdog.challegram.BuildConfig;
+import org.thunderdog.challegram.Log;
+import org.thunderdog.challegram.R;
+import org.thunderdog.challegram.core.Lang;
+import org.thunderdog.challegram.data.TD;
+import org.thunderdog.challegram.data.TGMessage;
+import org.thunderdog.challegram.emoji.Emoji;
+import org.thunderdog.challegram.telegram.TdlibChatList;
+import org.thunderdog.challegram.tool.Screen;
+import org.thunderdog.challegram.util.text.Text;
+import org.thunderdog.challegram.util.text.TextColorSets;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Microbenchmarks of hot paths that depend on Android, run on the device from the secret settings.
+ * Classes that depend only on the JDK are measured with JMH in the :benchmark module instead.
+ *
+ * Every case runs for {@link #WARMUP_MS} to let the JIT compile it, and then is measured in {@link #ROUND_COUNT}
+ * rounds of {@link #ROUND_MS}. Results are written as JSON to {@link Log#getLogDir()},
+ * so runs made on different commits can be compared.
+ */
+public final class PerfBenchmark {
+  private static final long WARMUP_MS = 500;
+  private static final long ROUND_MS = 300;
+  private static final int ROUND_COUNT = 5;
+
+  private interface Workload {
+    int run (int iteration);
+  }
+
+  private static final class Case {
+    final String name;
+    final Workload workload;
+
+    Case (String name, Workload workload) {
+      this.name = name;
+      this.workload = workload;
+    }
+  }
+
+  private static final class Result {
+    final String name;
+    final double[] opsPerSecond = new double[ROUND_COUNT];
+    long allocatedBytesPerOp = -1;
+
+    Result (String name) {
+      this.name = name;
+    }
+
+    double mean () {
+      double sum = 0;
+      for (double value : opsPerSecond) {
+        sum += value;
+      }
+      return sum / opsPerSecond.length;
+    }
+
+    double min () {
+      double min = Double.MAX_VALUE;
+      for (double value : opsPerSecond) {
+        min = Math.min(min, value);
+      }
+      return min;
+    }
+
+    double max () {
+      double max = 0;
+      for (double value : opsPerSecond) {
+        max = Math.max(max, value);
+      }
+      return max;
+    }
+  }
+
+  // Fixtures
+
+  private static final String EMOJI_TEXT =
+    "Happy birthday! 🎉🎂 Hope your day is great 😊❤️ " +
+    "See you at 8 👍🏽 and don't be late 😅 🇺🇦";
+  private static final String[] MESSAGES = {
+    "ok",
+    "Meeting moved to Thursday, please bring the printed report and the slides from last week.",
+    "Привет, как дела? Увидимся завтра в восемь, не опаздывай 😅",
+    "Happy birthday! 🎉🎂 Hope your day is great 😊❤️",
+    "Did you see the new release? It finally fixes the sync issue we talked about yesterday, " +
+      "so I think we can update everyone's phones tonight and stop worrying about lost drafts.",
+    "Check out #release notes at https://telegram.org/blog and ask @username in /help",
+    "שלום! Meeting at 8 👍🏽",
+    "lol"
+  };
+  private static final String ENTITIES_TEXT =
+    "Check out #release notes at https://telegram.org/blog and ask @username in /help or email me at hello@example.com";
+
+  private static ArrayList<TdlibChatList.Entry> newChatListEntries (int count) {
+    Random random = new Random(count);
+    TdApi.ChatList chatList = new TdApi.ChatListMain();
+    ArrayList<TdlibChatList.Entry> entries = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      TdApi.Chat chat = new TdApi.Chat();
+      chat.id = random.nextLong();
+      // Some chats share order, so ties are broken by chat id
+      long order = random.nextInt(count / 2) + 1;
+      entries.add(new TdlibChatList.Entry(chat, chatList, new TdApi.ChatPosition(chatList, order, false, null)));
+    }
+    return entries;
+  }
+
+  /**
+   * Lays out {@link #MESSAGES} the same way message bubbles do.
+   *
+   * @return total line count
+   */
+  private static int layoutMessages (int maxWidth, int textFlags) {
+    int lineCount = 0;
+    for (String message : MESSAGES) {
+      Text text = new Text.Builder(message, maxWidth, TGMessage.getTextStyleProvider(), TextColorSets.Regular.NORMAL)
+        .textFlags(textFlags)
+        .build();
+      lineCount += text.getLineCount();
+    }
+    return lineCount;
+  }
+
+  private static ArrayList<Case> newCases () {
+    ArrayList<Case> cases = new ArrayList<>();
+
+    cases.add(new Case("Lang.plural", iteration ->
+      Lang.plural(R.string.xMessages, iteration & 1023).length()
+    ));
+    cases.add(new Case("Lang.formatString.bold", iteration ->
+      Lang.formatString("%1$s and %2$s", Lang.boldCreator(), "5 minutes", Integer.toString(iteration)).length()
+    ));
+    cases.add(new Case("Lang.getString.bold", iteration ->
+      Lang.getString(R.string.AllowWriteAccess, Lang.boldCreator(), Integer.toString(iteration)).length()
+    ));
+
+    cases.add(new Case("Emoji.replaceEmoji", iteration ->
+      Emoji.instance().replaceEmoji(EMOJI_TEXT, 0, EMOJI_TEXT.length(), null, null, true).length()
+    ));
+    cases.add(new Case("Emoji.replaceEmoji.disabled", iteration ->
+      Emoji.instance().replaceEmoji(EMOJI_TEXT, 0, EMOJI_TEXT.length(), null, null, false).length()
+    ));
+
+    final ArrayList<TdlibChatList.Entry> chatListEntries = newChatListEntries(2000);
+    final ArrayList<TdlibChatList.Entry> sortedEntries = new ArrayList<>(chatListEntries.size());
+    cases.add(new Case("TdlibChatList.Entry.sort", iteration -> {
+      sortedEntries.clear();
+      sortedEntries.addAll(chatListEntries);
+      Collections.sort(sortedEntries);
+      return sortedEntries.size();
+    }));
+
+    final int maxTextWidth = Screen.dp(280f);
+    cases.add(new Case("Text.layout", iteration ->
+      layoutMessages(maxTextWidth, 0)
+    ));
+    cases.add(new Case("Text.layout.disabled", iteration ->
+      layoutMessages(maxTextWidth, Text.FLAG_NO_WIDTH_CACHE)
+    ));
+
+    cases.add(new Case("TD.getLetters", iteration ->
+      TD.getLetters("Alexander Ivanov").text.length() + TD.getLetters("😊 Emoji Chat").text.length()
+    ));
+
+    cases.add(new Case("Text.findEntities", iteration -> {
+      TdApi.TextEntity[] entities = Text.findEntities(ENTITIES_TEXT, Text.ENTITY_FLAGS_ALL);
+      return entities != null ? entities.length : 0;
+    }));
+
+    return cases;
+  }
+
+  // Runner
+
+  private static volatile int sink;
+
+  private static int runFor (Workload workload, long durationNanos, int[] outIterations) {
+    final long endTime = System.nanoTime() + durationNanos;
+    int iterations = 0;
+    int result = 0;
+    do {
+      // Checking the clock is cheap compared to workloads, but still done in batches
+      for (int i = 0; i < 16; i++) {
+        result += workload.run(iterations++);
+      }
+    } while (System.nanoTime() < endTime);
+    outIterations[0] = iterations;
+    return result;
+  }
+
+  @SuppressWarnings("deprecation")
+  private static Result measure (Case c) {
+    Result result = new Result(c.name);
+    int[] iterations = new int[1];
+    sink += runFor(c.workload, WARMUP_MS * 1_000_000L, iterations);
+    for (int round = 0; round < ROUND_COUNT; round++) {
+      final long startTime = System.nanoTime();
+      sink += runFor(c.workload, ROUND_MS * 1_000_000L, iterations);
+      final long elapsed = System.nanoTime() - startTime;
+      result.opsPerSecond[round] = (double) iterations[0] / ((double) elapsed / 1_000_000_000.0);
+    }
+    // Allocation counting slows down the workload, so it is measured in a separate round
+    try {
+      Debug.resetThreadAllocSize();
+      Debug.startAllocCounting();
+      sink += runFor(c.workload, ROUND_MS * 1_000_000L, iterations);
+      Debug.stopAllocCounting();
+      final long allocatedBytes = Debug.getThreadAllocSize();
+      if (allocatedBytes > 0) {
+        result.allocatedBytesPerOp = allocatedBytes / iterations[0];
+      }
+    } catch (Throwable t) {
+      Log.w("Allocation counting is not available", t);
+    }
+    return result;
+  }
+
+  /**
+   * Runs all benchmarks. Takes a few seconds per case, so must not be called on the UI thread.
+   *
+   * @return human-readable summary
+   */
+  @WorkerThread
+  @NonNull
+  public static String run (@Nullable File[] outFile) throws IOException {
+    ArrayList<Result> results = new ArrayList<>();
+    for (Case c : newCases()) {
+      try {
+        results.add(measure(c));
+      } catch (Throwable t) {
+        Log.e("Benchmark %s failed", t, c.name);
+      }
+    }
+
+    StringBuilder b = new StringBuilder("PerfBenchmark {\n");
+    for (Result result : results) {
+      b.append("  ").append(result.name)
+        .append(" = ").append(formatOps(result.mean()))
+        .append(" ops/s (").append(formatOps(result.min())).append("..").append(formatOps(result.max())).append(")");
+      if (result.allocatedBytesPerOp >= 0) {
+        b.append(", ").append(result.allocatedBytesPerOp).append(" B/op");
+      }
+      b.append('\n');
+    }
+    b.append("}");
+
+    File file = export(results);
+    if (outFile != null) {
+      outFile[0] = file;
+    }
+    return b.toString();
+  }
+
+  private static String formatOps (double ops) {
+    return ops >= 100 ? Long.toString(Math.round(ops)) : String.format(Locale.US, "%.2f", ops);
+  }
+
+  @Nullable
+  private static File export (ArrayList<Result> results) throws IOException {
+    File logDir = Log.getLogDir();
+    if (logDir == null) {
+      return null;
+    }
+    final long now = System.currentTimeMillis();
+    File file = new File(logDir, "benchmark." + new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss", Locale.US).format(new Date(now)) + ".json");
+    String json;
+    try {
+      JSONObject root = new JSONObject();
+      root.put("date", now);
+      root.put("commit", BuildConfig.COMMIT);
+      root.put("version", BuildConfig.VERSION_NAME);
+      root.put("device", Build.MANUFACTURER + " " + Build.MODEL);
+      root.put("sdk", Build.VERSION.SDK_INT);
+      root.put("warmupMs", WARMUP_MS);
+      root.put("roundMs", ROUND_MS);
+      JSONArray cases = new JSONArray();
+      for (Result result : results) {
+        JSONObject item = new JSONObject();
+        item.put("name", result.name);
+        item.put("opsPerSecond", result.mean());
+        item.put("opsPerSecondMin", result.min());
+        item.put("opsPerSecondMax", result.max());
+        JSONArray rounds = new JSONArray();
+        for (double value : result.opsPerSecond) {
+          rounds.put(value);
+        }
+        item.put("rounds", rounds);
+        item.put("allocatedBytesPerOp", result.allocatedBytesPerOp);
+        cases.put(item);
+      }
+      root.put("results", cases);
+      json = root.toString(2);
+    } catch (JSONException e) {
+      throw new IOException(e);
+    }
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+      writer.write(json);
+    }
+    return file;
+  }
+}
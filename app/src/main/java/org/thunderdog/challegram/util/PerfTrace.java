@@ -0,0 +1,361 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.util;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.thunderdog.challegram.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.ref.WeakReference;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations of hot operations, for finding regressions on real devices.
+ *
+ * Usage:
+ * <pre>
+ * final long startTime = PerfTrace.begin();
+ * // ...
+ * PerfTrace.end(PerfTrace.Span.IMAGE_READ, startTime);
+ * </pre>
+ *
+ * When tracing is disabled, {@link #begin()} returns 0 and {@link #end(int, long)} returns right away.
+ * When enabled, each thread records into its own ring buffer of recent spans and its own latency histograms,
+ * so recording neither allocates nor takes locks. Buffers of other threads are read without synchronization,
+ * so an export may miss spans that are being recorded at the same moment.
+ */
+public final class PerfTrace {
+  @Retention(RetentionPolicy.SOURCE)
+  @IntDef({
+    Span.IMAGE_READ,
+    Span.GIF_FRAME,
+    Span.TDLIB_UPDATE,
+    Span.MESSAGES_PROCESS,
+    Span.TEXT_LAYOUT,
+    Span.TRACK_TRANSITION
+  })
+  public @interface Span {
+    int IMAGE_READ = 0, GIF_FRAME = 1, TDLIB_UPDATE = 2, MESSAGES_PROCESS = 3, TEXT_LAYOUT = 4, TRACK_TRANSITION = 5;
+    int COUNT = 6;
+  }
+
+  private static final String[] SPAN_NAMES = {
+    "ImageReader.readImage",
+    "GifActor.prepareNextFrame",
+    "Tdlib.processUpdate",
+    "MessagesLoader.processMessages",
+    "Text.set",
+    "AudioController.trackTransition"
+  };
+
+  // Histogram buckets are log-linear over microseconds: values below 8 are exact,
+  // every following power of two is split into 8 buckets, so the relative error is at most 12.5%.
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 31;
+  private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+  private static final int RING_SIZE = 256;
+
+  private static volatile boolean isEnabled;
+
+  private PerfTrace () { }
+
+  public static boolean isEnabled () {
+    return isEnabled;
+  }
+
+  public static void setEnabled (boolean isEnabled) {
+    PerfTrace.isEnabled = isEnabled;
+  }
+
+  /**
+   * @return start time to be passed to {@link #end(int, long)}, or 0, if tracing is disabled
+   */
+  public static long begin () {
+    return isEnabled ? System.nanoTime() : 0;
+  }
+
+  public static void end (@Span int span, long startTime) {
+    if (startTime != 0) {
+      final long endTime = System.nanoTime();
+      threadTrace.get().record(span, startTime, endTime - startTime);
+    }
+  }
+
+  // Histogram
+
+  private static int bucketIndex (long durationMicros) {
+    if (durationMicros < SUB_BUCKET_COUNT) {
+      return (int) Math.max(0, durationMicros);
+    }
+    final int exponent = Math.min(MAX_EXPONENT, 63 - Long.numberOfLeadingZeros(durationMicros));
+    final int subBucket = exponent == MAX_EXPONENT && durationMicros >= (1L << (MAX_EXPONENT + 1)) ?
+      SUB_BUCKET_COUNT - 1 :
+      (int) (durationMicros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  /**
+   * @return the highest value that falls into the bucket
+   */
+  private static long bucketValue (int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    final int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+    final int subBucket = index % SUB_BUCKET_COUNT;
+    return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+
+  private static final class Histograms {
+    final long[][] counts = new long[Span.COUNT][BUCKET_COUNT];
+    final long[] maxDurations = new long[Span.COUNT];
+    final long[] totalDurations = new long[Span.COUNT];
+
+    void add (Histograms other) {
+      for (int span = 0; span < Span.COUNT; span++) {
+        final long[] counts = this.counts[span];
+        final long[] otherCounts = other.counts[span];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+          counts[i] += otherCounts[i];
+        }
+        maxDurations[span] = Math.max(maxDurations[span], other.maxDurations[span]);
+        totalDurations[span] += other.totalDurations[span];
+      }
+    }
+
+    void clear () {
+      for (int span = 0; span < Span.COUNT; span++) {
+        Arrays.fill(counts[span], 0);
+        maxDurations[span] = 0;
+        totalDurations[span] = 0;
+      }
+    }
+
+    long percentile (int span, long count, double percentile) {
+      final long target = Math.max(1, (long) Math.ceil(count * percentile));
+      long seen = 0;
+      final long[] counts = this.counts[span];
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        seen += counts[i];
+        if (seen >= target) {
+          return Math.min(bucketValue(i), maxDurations[span]);
+        }
+      }
+      return maxDurations[span];
+    }
+
+    void print (StringBuilder b) {
+      for (int span = 0; span < Span.COUNT; span++) {
+        long count = 0;
+        for (long bucketCount : counts[span]) {
+          count += bucketCount;
+        }
+        b.append(SPAN_NAMES[span]).append(": ");
+        if (count == 0) {
+          b.append("no data\n");
+          continue;
+        }
+        b.append("count = ").append(count)
+          .append(", avg = ").append(formatMicros(totalDurations[span] / count))
+          .append(", p50 = ").append(formatMicros(percentile(span, count, .5)))
+          .append(", p90 = ").append(formatMicros(percentile(span, count, .9)))
+          .append(", p99 = ").append(formatMicros(percentile(span, count, .99)))
+          .append(", max = ").append(formatMicros(maxDurations[span]))
+          .append('\n');
+      }
+    }
+  }
+
+  private static String formatMicros (long micros) {
+    if (micros >= 10_000) {
+      return (micros / 1000) + "ms";
+    }
+    return micros + "µs";
+  }
+
+  // Per-thread buffers
+
+  private static final class ThreadTrace {
+    final WeakReference<Thread> thread;
+    final String threadName;
+    final Histograms histograms = new Histograms();
+
+    // start time and (duration << 8 | span) of the last RING_SIZE spans
+    final long[] ring = new long[RING_SIZE * 2];
+    int ringPosition;
+    long recordedCount;
+
+    ThreadTrace (Thread thread) {
+      this.thread = new WeakReference<>(thread);
+      this.threadName = thread.getName();
+    }
+
+    boolean isAlive () {
+      Thread thread = this.thread.get();
+      return thread != null && thread.isAlive();
+    }
+
+    void record (@Span int span, long startTime, long durationNanos) {
+      final long durationMicros = TimeUnit.NANOSECONDS.toMicros(durationNanos);
+      histograms.counts[span][bucketIndex(durationMicros)]++;
+      histograms.totalDurations[span] += durationMicros;
+      if (durationMicros > histograms.maxDurations[span]) {
+        histograms.maxDurations[span] = durationMicros;
+      }
+      final int position = ringPosition;
+      ring[position * 2] = startTime;
+      ring[position * 2 + 1] = (durationNanos << 8) | span;
+      ringPosition = (position + 1) % RING_SIZE;
+      recordedCount++;
+    }
+  }
+
+  private static final Object threadsLock = new Object();
+  // Guarded by threadsLock
+  private static final ArrayList<ThreadTrace> threads = new ArrayList<>();
+  // Histograms of finished threads, guarded by threadsLock
+  private static final Histograms retiredHistograms = new Histograms();
+
+  private static final ThreadLocal<ThreadTrace> threadTrace = new ThreadLocal<ThreadTrace>() {
+    @Override
+    protected ThreadTrace initialValue () {
+      ThreadTrace trace = new ThreadTrace(Thread.currentThread());
+      synchronized (threadsLock) {
+        removeFinishedThreads();
+        threads.add(trace);
+      }
+      return trace;
+    }
+  };
+
+  // Must be called with threadsLock held
+  private static void removeFinishedThreads () {
+    for (int i = threads.size() - 1; i >= 0; i--) {
+      ThreadTrace trace = threads.get(i);
+      if (!trace.isAlive()) {
+        retiredHistograms.add(trace.histograms);
+        threads.remove(i);
+      }
+    }
+  }
+
+  // Export
+
+  /**
+   * @return latency summary of all threads
+   */
+  public static String getStats () {
+    Histograms total = new Histograms();
+    synchronized (threadsLock) {
+      total.add(retiredHistograms);
+      for (ThreadTrace trace : threads) {
+        total.add(trace.histograms);
+      }
+    }
+    StringBuilder b = new StringBuilder("PerfTrace { enabled = ").append(isEnabled).append(" }\n");
+    total.print(b);
+    return b.toString();
+  }
+
+  /**
+   * Writes summary, per-thread histograms and recent spans of every thread to a new file in {@link Log#getLogDir()}.
+   *
+   * @param extraStats additional statistics to include, e.g. states of caches
+   * @return written file, or null, if log directory is not available
+   */
+  @Nullable
+  public static File export (@Nullable String extraStats) throws IOException {
+    File logDir = Log.getLogDir();
+    if (logDir == null) {
+      return null;
+    }
+    final long nowNanos = System.nanoTime();
+    final long nowMillis = System.currentTimeMillis();
+    File file = new File(logDir, "trace." + new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss", Locale.US).format(new Date(nowMillis)) + ".txt");
+
+    StringBuilder b = new StringBuilder(getStats());
+    if (extraStats != null) {
+      b.append('\n').append(extraStats).append('\n');
+    }
+    synchronized (threadsLock) {
+      removeFinishedThreads();
+      for (ThreadTrace trace : threads) {
+        if (trace.recordedCount == 0) {
+          continue;
+        }
+        b.append("\nThread ").append(trace.threadName).append(", spans = ").append(trace.recordedCount).append('\n');
+        trace.histograms.print(b);
+        printRecentSpans(b, trace, nowNanos);
+      }
+    }
+
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+      writer.write(b.toString());
+    }
+    return file;
+  }
+
+  private static void printRecentSpans (@NonNull StringBuilder b, @NonNull ThreadTrace trace, long nowNanos) {
+    final int count = (int) Math.min(RING_SIZE, trace.recordedCount);
+    final int end = trace.ringPosition;
+    b.append("Recent spans (start relative to export, duration):\n");
+    for (int i = 0; i < count; i++) {
+      final int position = (end - count + i + RING_SIZE) % RING_SIZE;
+      final long startTime = trace.ring[position * 2];
+      final long data = trace.ring[position * 2 + 1];
+      final int span = (int) (data & 0xff);
+      final long durationNanos = data >>> 8;
+      if (span >= Span.COUNT) {
+        continue;
+      }
+      b.append("  -").append(TimeUnit.NANOSECONDS.toMillis(nowNanos - startTime)).append("ms ")
+        .append(SPAN_NAMES[span]).append(' ')
+        .append(formatMicros(TimeUnit.NANOSECONDS.toMicros(durationNanos)))
+        .append('\n');
+    }
+  }
+
+  /**
+   * Drops all recorded data.
+   */
+  public static void reset () {
+    synchronized (threadsLock) {
+      removeFinishedThreads();
+      retiredHistograms.clear();
+      for (ThreadTrace trace : threads) {
+        // Racy with the owner thread, which is acceptable for diagnostic data
+        trace.histograms.clear();
+        trace.recordedCount = 0;
+        trace.ringPosition = 0;
+      }
+    }
+  }
+}
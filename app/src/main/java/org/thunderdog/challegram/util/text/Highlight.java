@@ -199,6 +199,46 @@ public class Highlight {
     return parts.isEmpty();
   }
 
+  /**
+   * Transliterations of the last highlighted query, which is usually the same for all items of search results.
+   */
+  private static final class QueryTransliteration {
+    final String query;
+    final boolean hasCyrillicLetters, hasLatinLetters;
+    private String latin, cyrillic;
+
+    QueryTransliteration (String query) {
+      this.query = query;
+      this.hasCyrillicLetters = Transliterator.hasCyrillicLetters(query);
+      this.hasLatinLetters = Transliterator.hasLatinLetters(query);
+    }
+
+    String latin () {
+      if (latin == null) {
+        latin = Transliterator.cyrillicToLatin(query);
+      }
+      return latin;
+    }
+
+    String cyrillic () {
+      if (cyrillic == null) {
+        cyrillic = Transliterator.latinToCyrillic(query);
+      }
+      return cyrillic;
+    }
+  }
+
+  private static volatile QueryTransliteration lastQueryTransliteration;
+
+  private static QueryTransliteration transliterationOf (String query) {
+    QueryTransliteration transliteration = lastQueryTransliteration;
+    if (transliteration == null || !transliteration.query.equals(query)) {
+      transliteration = new QueryTransliteration(query);
+      lastQueryTransliteration = transliteration;
+    }
+    return transliteration;
+  }
+
   @Nullable
   public static Highlight valueOf (String text, String highlight) {
     return valueOf(text, highlight, null);
@@ -235,14 +275,15 @@ public class Highlight {
     }
     if (result.isEmpty()) {
       Highlight latinLookup = null, cyrillicLookup = null;
-      if (Transliterator.hasCyrillicLetters(highlight) && Transliterator.hasLatinLetters(text)) {
+      QueryTransliteration transliteration = transliterationOf(highlight);
+      if (transliteration.hasCyrillicLetters && Transliterator.hasLatinLetters(text)) {
         // Convert highlight to latin & repeat the search
-        String latin = Transliterator.cyrillicToLatin(highlight);
+        String latin = transliteration.latin();
         latinLookup = new Highlight(text, 0, text.length(), latin, 0, latin.length());
       }
-      if (Transliterator.hasLatinLetters(highlight) && Transliterator.hasCyrillicLetters(text)) {
+      if (transliteration.hasLatinLetters && Transliterator.hasCyrillicLetters(text)) {
         // Convert highlight to cyrillic & repeat the search
-        String cyrillic = Transliterator.latinToCyrillic(highlight);
+        String cyrillic = transliteration.cyrillic();
         cyrillicLookup = new Highlight(text, 0, text.length(), cyrillic, 0, cyrillic.length());
       }
       if ((latinLookup != null && !latinLookup.isEmpty()) &&
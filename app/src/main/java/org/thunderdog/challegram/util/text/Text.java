@@ -64,6 +64,7 @@ import org.thunderdog.challegram.tool.UI;
 import org.thunderdog.challegram.tool.Views;
 import org.thunderdog.challegram.unsorted.Settings;
 import org.thunderdog.challegram.util.EmojiStatusHelper;
+import org.thunderdog.challegram.util.PerfTrace;
 import org.thunderdog.challegram.util.text.counter.CounterTextPart;
 import org.thunderdog.challegram.util.text.bidi.BiDiEntity;
 import org.thunderdog.challegram.util.text.bidi.BiDiUtils;
@@ -112,6 +113,7 @@ public class Text implements Runnable, Emoji.CountLimiter, CounterTextPart, List
   public static final int FLAG_TRIM_END = 1 << 19;
   public static final int FLAG_NO_SPACING = 1 << 20;
   public static final int FLAG_ALWAYS_BREAK = 1 << 21;
+  public static final int FLAG_NO_WIDTH_CACHE = 1 << 22; // Used by PerfBenchmark to compare layout with and without TextWidthCache
 
   private static final int FLAG_DESTROYED = 1 << 23;
   private static final int FLAG_IN_LONG_PRESS = 1 << 24;
@@ -344,7 +346,7 @@ public class Text implements Runnable, Emoji.CountLimiter, CounterTextPart, List
     this.defaultTextColorSet = textColorSet;
     this.entities = entities;
     this.suffix = suffix;
-    this.suffixWidth = !StringUtils.isEmpty(suffix) ? (int) U.measureText(this.suffix, getTextPaint(null)) : 0;
+    this.suffixWidth = !StringUtils.isEmpty(suffix) ? (int) measureText(this.suffix, getTextPaint(null)) : 0;
     set(maxWidth, in);
   }
 
@@ -880,6 +882,7 @@ public class Text implements Runnable, Emoji.CountLimiter, CounterTextPart, List
       throw new IllegalArgumentException();
     this.maxWidth = maxWidth;
     this.entities = entities;
+    final long startTime = PerfTrace.begin();
     try {
       if (Log.isEnabled(Log.TAG_SPEED_TEXT) && Log.checkLogLevel(Log.LEVEL_INFO)) {
         long elapsed = SystemClock.elapsedRealtime();
@@ -896,6 +899,8 @@ public class Text implements Runnable, Emoji.CountLimiter, CounterTextPart, List
     } catch (Throwable cause) {
       Log.w(Log.TAG_SPEED_TEXT, "Couldn't parse %d chars for max width: %d, fontSize: %f, text:\n%s", cause, in.length(), maxWidth, Settings.instance().getChatFontSize(), in);
       throw cause;
+    } finally {
+      PerfTrace.end(PerfTrace.Span.TEXT_LAYOUT, startTime);
     }
   }
 
@@ -1604,7 +1609,7 @@ public class Text implements Runnable, Emoji.CountLimiter, CounterTextPart, List
       } else if (isChild) {
         fullWidth = childWidth[0];
       } else {
-        fullWidth = BiDiUtils.measureTextRun(bidiEntity, in, start, end, paint);
+        fullWidth = measureTextRun(bidiEntity, in, start, end, paint);
       }
     }
     futureWidth = fullWidth;
@@ -1662,7 +1667,7 @@ public class Text implements Runnable, Emoji.CountLimiter, CounterTextPart, List
         } else if (newEnd - currentEnd == 1 && lastCodePointWidth != -1 && lastCodePoint == codePoint) {
           charWidth = lastCodePointWidth;
         } else {
-          charWidth = BiDiUtils.measureTextRun(bidiEntity, in, currentEnd, newEnd, paint); //    U.measureText(in, currentEnd, newEnd, paint);
+          charWidth = measureTextRun(bidiEntity, in, currentEnd, newEnd, paint); //    U.measureText(in, currentEnd, newEnd, paint);
           if (newEnd - currentEnd == 1) {
             lastCodePoint = codePoint;
             lastCodePointWidth = charWidth;
@@ -1710,7 +1715,7 @@ public class Text implements Runnable, Emoji.CountLimiter, CounterTextPart, List
       boolean movedLastLine = false;
 
       float firstCodePointWidth;
-      if ((textFlags & FLAG_BOUNDS_NOT_STRICT) != 0 && in.codePointCount(start, end) == 2 && currentX + (firstCodePointWidth = U.measureText(in, start, start + 1, paint)) <= maxWidth) {
+      if ((textFlags & FLAG_BOUNDS_NOT_STRICT) != 0 && in.codePointCount(start, end) == 2 && currentX + (firstCodePointWidth = measureText(in, start, start + 1, paint)) <= maxWidth) {
         int firstCodePoint = in.codePointAt(start);
         int secondCodePoint = in.codePointAt(start + Character.charCount(firstCodePoint));
 
@@ -1856,7 +1861,7 @@ public class Text implements Runnable, Emoji.CountLimiter, CounterTextPart, List
         }
       }
 
-      float ellipsisWidth = BiDiUtils.measureTextRun(bidiEntity, ellipsis, getTextPaint(entity));
+      float ellipsisWidth = measureTextRun(bidiEntity, ellipsis, getTextPaint(entity));
       if (!BiDiUtils.isValid(bidiEntity)) {
         bidiEntity = lastPart.getBidiEntity();
       }
@@ -1872,7 +1877,7 @@ public class Text implements Runnable, Emoji.CountLimiter, CounterTextPart, List
           lineIndex++;
         }
 
-        final float defaultEllipsisWidth = U.measureText(defaultEllipsis, getTextPaint(entity));
+        final float defaultEllipsisWidth = measureText(defaultEllipsis, getTextPaint(entity));
         if (hasEllipsizedPart && !StringUtils.equalsOrBothEmpty(ellipsis, defaultEllipsis) && ellipsis.length() > defaultEllipsis.length()) {
           TextPart ellipsisPart = new TextPart(this, ellipsis, 0, ellipsis.length() - defaultEllipsis.length(), lineIndex, paragraphIndex);
           ellipsisPart.setXY(currentX, currentY);
@@ -1896,7 +1901,7 @@ public class Text implements Runnable, Emoji.CountLimiter, CounterTextPart, List
         // Hard path: find enough place for ellipsis and place it there
         final int requiredLineIndex = lastPart.getLineIndex();
         final int minEnd = lastPart.getEnd();
-        final float defaultEllipsisWidth = U.measureText(defaultEllipsis, getTextPaint(null));
+        final float defaultEllipsisWidth = measureText(defaultEllipsis, getTextPaint(null));
 
         boolean done = false;
         do {
@@ -1911,7 +1916,7 @@ public class Text implements Runnable, Emoji.CountLimiter, CounterTextPart, List
               ellipsis = defaultEllipsis;
               changedEllipsis = true;
             }
-            ellipsisWidth = changedEllipsis || !lastPart.isSameEntity(entity) ? U.measureText(ellipsis, getTextPaint(lastPart.getEntity())) : ellipsisWidth;
+            ellipsisWidth = changedEllipsis || !lastPart.isSameEntity(entity) ? measureText(ellipsis, getTextPaint(lastPart.getEntity())) : ellipsisWidth;
 
             TextPart ellipsisPart = new TextPart(this, ellipsis, 0, ellipsis.length(), lastPart.getLineIndex(), lastPart.getParagraphIndex());
             ellipsisPart.setXY(currentX, currentY);
@@ -1936,8 +1941,8 @@ public class Text implements Runnable, Emoji.CountLimiter, CounterTextPart, List
               if (!ellipsis.endsWith(defaultEllipsis)) {
                 ellipsis += defaultEllipsis;
               }
-              ellipsisWidth = BiDiUtils.measureTextRun(lastPart.getBidiEntity(), ellipsis, paint);
-              final float defaultEllipsisWidth2 = U.measureText(defaultEllipsis, paint);
+              ellipsisWidth = measureTextRun(lastPart.getBidiEntity(), ellipsis, paint);
+              final float defaultEllipsisWidth2 = measureText(defaultEllipsis, paint);
               if (currentX + ellipsisWidth <= lineMaxWidth) {
                 lastPart.setLine(ellipsis, 0, ellipsis.length() - defaultEllipsis.length());
                 lastPart.setWidth(ellipsisWidth - defaultEllipsisWidth2);
@@ -2209,9 +2214,25 @@ public class Text implements Runnable, Emoji.CountLimiter, CounterTextPart, List
   private Paint lastSpacePaint;
   private float lastSpaceSize;
 
+  private float measureText (CharSequence in, Paint paint) {
+    return in == null ? 0 : measureText(in, 0, in.length(), paint);
+  }
+
+  private float measureText (CharSequence in, int start, int end, Paint paint) {
+    return TextWidthCache.measureText(in, start, end, paint, (textFlags & FLAG_NO_WIDTH_CACHE) == 0);
+  }
+
+  private float measureTextRun (@BiDiEntity int bidiEntity, CharSequence in, Paint paint) {
+    return in == null ? 0 : measureTextRun(bidiEntity, in, 0, in.length(), paint);
+  }
+
+  private float measureTextRun (@BiDiEntity int bidiEntity, CharSequence in, int start, int end, Paint paint) {
+    return TextWidthCache.measureTextRun(bidiEntity, in, start, end, paint, (textFlags & FLAG_NO_WIDTH_CACHE) == 0);
+  }
+
   private float makeSpaceSize (Paint paint) {
     if (lastSpaceSize == 0f || lastSpacePaint != paint) {
-      lastSpaceSize = U.measureText(" ", paint);
+      lastSpaceSize = measureText(" ", paint);
       lastSpacePaint = paint;
     }
     return lastSpaceSize;
@@ -0,0 +1,271 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.util.text;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.util.ObjectsCompat;
+
+import org.thunderdog.challegram.U;
+import org.thunderdog.challegram.config.Config;
+import org.thunderdog.challegram.util.text.bidi.BiDiEntity;
+import org.thunderdog.challegram.util.text.bidi.BiDiUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Widths of short text runs (words, usernames, timestamps), shared by all {@link Text} instances.
+ *
+ * Only runs of scripts that are never reshaped by their neighbours (Latin, Greek, Cyrillic and common punctuation)
+ * are cached. Characters right before and after the run are part of the key, so kerning at run edges is preserved.
+ */
+public final class TextWidthCache {
+  private static final int MAX_ENTRY_COUNT = 4096;
+  private static final int MAX_RUN_LENGTH = 32;
+
+  private static final int MODE_PLAIN = 0;
+  private static final int MODE_LTR = 1;
+  private static final int MODE_RTL = 2;
+
+  private static final Object lock = new Object();
+
+  // Guarded by lock
+  private static final LinkedHashMap<Key, Float> widths = new LinkedHashMap<Key, Float>(256, .75f, true) {
+    @Override
+    protected boolean removeEldestEntry (Map.Entry<Key, Float> eldest) {
+      if (size() > MAX_ENTRY_COUNT) {
+        evictionCount++;
+        return true;
+      }
+      return false;
+    }
+  };
+  private static final Key probe = new Key();
+  private static long hitCount, missCount, evictionCount;
+
+  private TextWidthCache () { }
+
+  public static float measureText (@Nullable CharSequence in, @NonNull Paint p) {
+    return in == null ? 0 : measureText(in, 0, in.length(), p, true);
+  }
+
+  public static float measureText (@Nullable CharSequence in, int start, int end, @NonNull Paint p) {
+    return measureText(in, start, end, p, true);
+  }
+
+  public static float measureTextRun (@BiDiEntity int bidiEntity, @Nullable CharSequence in, @NonNull Paint p) {
+    return in == null ? 0 : measureTextRun(bidiEntity, in, 0, in.length(), p, true);
+  }
+
+  public static float measureTextRun (@BiDiEntity int bidiEntity, @Nullable CharSequence in, int start, int end, @NonNull Paint p) {
+    return measureTextRun(bidiEntity, in, start, end, p, true);
+  }
+
+  /**
+   * @param allowCache false to always measure the text, e.g. for {@link Text} built with {@link Text#FLAG_NO_WIDTH_CACHE}
+   */
+  static float measureText (@Nullable CharSequence in, int start, int end, @NonNull Paint p, boolean allowCache) {
+    return in == null ? 0 : measure(MODE_PLAIN, in, start, end, p, allowCache);
+  }
+
+  static float measureTextRun (@BiDiEntity int bidiEntity, @Nullable CharSequence in, int start, int end, @NonNull Paint p, boolean allowCache) {
+    if (in == null) {
+      return 0;
+    }
+    final int mode = BiDiUtils.isValid(bidiEntity) ? (BiDiUtils.isRtl(bidiEntity) ? MODE_RTL : MODE_LTR) : MODE_PLAIN;
+    return measure(mode, in, start, end, p, allowCache);
+  }
+
+  private static float measure (int mode, @NonNull CharSequence in, int start, int end, @NonNull Paint p, boolean allowCache) {
+    if (!allowCache || !Config.TEXT_WIDTH_CACHE_ENABLED || end - start <= 0 || end - start > MAX_RUN_LENGTH || !isCacheable(p) || !isCacheable(in, start, end)) {
+      return measureImpl(mode, in, start, end, p);
+    }
+    synchronized (lock) {
+      probe.set(mode, p, in, start, end);
+      Float width = widths.get(probe);
+      probe.release();
+      if (width != null) {
+        hitCount++;
+        return width;
+      }
+      missCount++;
+    }
+    final float width = measureImpl(mode, in, start, end, p);
+    final Key key = new Key();
+    key.set(mode, p, in, start, end);
+    key.detach();
+    synchronized (lock) {
+      widths.put(key, width);
+    }
+    return width;
+  }
+
+  private static float measureImpl (int mode, @NonNull CharSequence in, int start, int end, @NonNull Paint p) {
+    switch (mode) {
+      case MODE_LTR:
+        return U.measureTextRun(in, start, end, p, false);
+      case MODE_RTL:
+        return U.measureTextRun(in, start, end, p, true);
+      case MODE_PLAIN:
+      default:
+        return U.measureText(in, start, end, p);
+    }
+  }
+
+  private static boolean isCacheable (Paint p) {
+    return Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP || p.getFontFeatureSettings() == null;
+  }
+
+  private static boolean isCacheable (CharSequence in, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (!isSimpleChar(in.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isSimpleChar (char c) {
+    return
+      (c >= 0x20 && c < 0x7F) || // Basic Latin
+      (c >= 0xA0 && c < 0x300) || // Latin-1 Supplement, Latin Extended-A/B, IPA, Spacing Modifiers
+      (c >= 0x370 && c < 0x530) || // Greek, Cyrillic, Cyrillic Supplement
+      (c >= 0x2010 && c < 0x2028); // Dashes, quotes, bullets, ellipsis
+  }
+
+  // Stats
+
+  public static long getHitCount () {
+    synchronized (lock) {
+      return hitCount;
+    }
+  }
+
+  public static long getMissCount () {
+    synchronized (lock) {
+      return missCount;
+    }
+  }
+
+  public static String getStats () {
+    synchronized (lock) {
+      final long total = hitCount + missCount;
+      return "TextWidthCache { entries = " + widths.size() +
+        ", hits = " + hitCount +
+        ", misses = " + missCount +
+        ", evictions = " + evictionCount +
+        ", hitRate = " + (total > 0 ? Math.round((float) hitCount / (float) total * 100f) : 0) + "%" +
+        " }";
+    }
+  }
+
+  public static void clear () {
+    synchronized (lock) {
+      widths.clear();
+    }
+  }
+
+  private static final class Key {
+    private int mode;
+    private Typeface typeface;
+    private Locale locale;
+    private float textSize, textScaleX, textSkewX, letterSpacing;
+    private int flags;
+    private char prevChar, nextChar;
+
+    // Either points to the measured text (probe) or to its own copy
+    private CharSequence text;
+    private int start, end;
+
+    private int hashCode;
+
+    void set (int mode, Paint p, CharSequence in, int start, int end) {
+      this.mode = mode;
+      this.typeface = p.getTypeface();
+      this.locale = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1 ? p.getTextLocale() : null;
+      this.textSize = p.getTextSize();
+      this.textScaleX = p.getTextScaleX();
+      this.textSkewX = p.getTextSkewX();
+      this.letterSpacing = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP ? p.getLetterSpacing() : 0;
+      this.flags = p.getFlags();
+      this.prevChar = start > 0 ? in.charAt(start - 1) : 0;
+      this.nextChar = end < in.length() ? in.charAt(end) : 0;
+      this.text = in;
+      this.start = start;
+      this.end = end;
+
+      int result = mode;
+      result = 31 * result + System.identityHashCode(typeface);
+      result = 31 * result + Float.floatToIntBits(textSize);
+      result = 31 * result + flags;
+      result = 31 * result + prevChar;
+      result = 31 * result + nextChar;
+      for (int i = start; i < end; i++) {
+        result = 31 * result + in.charAt(i);
+      }
+      this.hashCode = result;
+    }
+
+    void release () {
+      this.typeface = null;
+      this.locale = null;
+      this.text = null;
+    }
+
+    void detach () {
+      this.text = text.subSequence(start, end).toString();
+      this.end -= start;
+      this.start = 0;
+    }
+
+    @Override
+    public int hashCode () {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals (Object obj) {
+      if (this == obj) return true;
+      if (!(obj instanceof Key)) return false;
+      Key other = (Key) obj;
+      if (hashCode != other.hashCode ||
+        mode != other.mode ||
+        typeface != other.typeface ||
+        textSize != other.textSize ||
+        textScaleX != other.textScaleX ||
+        textSkewX != other.textSkewX ||
+        letterSpacing != other.letterSpacing ||
+        flags != other.flags ||
+        prevChar != other.prevChar ||
+        nextChar != other.nextChar ||
+        end - start != other.end - other.start ||
+        !ObjectsCompat.equals(locale, other.locale)) {
+        return false;
+      }
+      for (int i = 0; i < end - start; i++) {
+        if (text.charAt(start + i) != other.text.charAt(other.start + i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -83,8 +83,12 @@ public class MessagesRecyclerView extends RecyclerView implements FactorAnimator
       int width = getMeasuredWidth();
       int height = getMeasuredHeight();
       if (prevWidth != width || prevHeight != height) {
+        final boolean widthChanged = prevWidth != width;
         prevWidth = width;
         prevHeight = height;
+        if (widthChanged) {
+          manager.onRecyclerWidthChanged();
+        }
         manager.controller().onMessagesFrameChanged();
       } else {
         manager.onViewportMeasure();
@@ -1604,6 +1604,10 @@ public class FileProgressComponent implements TdlibFilesManager.FileListener, Fa
     return file != null && tdlib.files().downloadAutomatically(file, chatType, fileType, currentState == TdlibFilesManager.STATE_PAUSED);
   }
 
+  public boolean canDownloadAutomatically () {
+    return file != null && !TD.isFileLoaded(file) && tdlib.files().canAutomaticallyDownload(file, fileType, tdlib.chatType(chatId));
+  }
+
   public void pauseDownload (boolean weak) {
     if (file != null && currentState == TdlibFilesManager.STATE_IN_PROGRESS) {
       tdlib.files().cancelDownloadOrUploadFile(file.id, weak, false);
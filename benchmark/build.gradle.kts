@@ -0,0 +1,58 @@
+// JMH benchmarks of app classes that depend only on the JDK, runnable on any JVM without Android SDK:
+//
+//   ./gradlew :benchmark:jmh
+//
+// Sources of measured classes are compiled straight from :app, so benchmarks always measure the current code.
+// Cases that need Android stay in org.thunderdog.challegram.util.PerfBenchmark and run on the device.
+
+plugins {
+  java
+}
+
+val appSources = listOf(
+  "org/thunderdog/challegram/charts/SegmentTree.java",
+  "org/thunderdog/challegram/core/DiffMatchPatch.java",
+  "org/thunderdog/challegram/util/LongMap.java"
+)
+
+val app: SourceSet by sourceSets.creating {
+  java {
+    setSrcDirs(listOf("../app/src/main/java"))
+    setIncludes(appSources)
+  }
+}
+
+sourceSets.main {
+  compileClasspath += app.output
+  runtimeClasspath += app.output
+}
+
+java {
+  sourceCompatibility = Config.JAVA_VERSION
+  targetCompatibility = Config.JAVA_VERSION
+}
+
+tasks.withType<JavaCompile>().configureEach {
+  options.encoding = "UTF-8"
+}
+
+dependencies {
+  "appCompileOnly"("androidx.annotation:annotation:${LibraryVersions.ANNOTATIONS}")
+
+  implementation("org.openjdk.jmh:jmh-core:${LibraryVersions.JMH}")
+  annotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:${LibraryVersions.JMH}")
+}
+
+val jmh by tasks.registering(JavaExec::class) {
+  group = "Verification"
+  description = "Runs JMH benchmarks and writes results to build/reports/jmh/results.json"
+  val resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+  classpath = sourceSets.main.get().runtimeClasspath
+  mainClass.set("org.openjdk.jmh.Main")
+  doFirst {
+    resultsFile.get().asFile.parentFile.mkdirs()
+  }
+  args("-rf", "json", "-rff", resultsFile.get().asFile.absolutePath)
+  // Pass a regular expression to run selected benchmarks only, e.g. -Pjmh.include=LongMap
+  (project.findProperty("jmh.include") as String?)?.let { args(it) }
+}
@@ -0,0 +1,51 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thunderdog.challegram.core.DiffMatchPatch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diff of an edited message, as computed when showing message edit history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiffMatchPatchBenchmark {
+  private static final String EDIT_BEFORE =
+    "Meeting moved to Thursday, 15:30. Please bring the printed report and the slides from last week. " +
+    "If you can't make it, write to @organizer or check https://example.com/schedule for updates.";
+  private static final String EDIT_AFTER =
+    "Meeting moved to Friday, 16:00. Please bring the updated report and the slides from last week. " +
+    "If you cannot make it, write to @organizer or check https://example.com/schedule#friday for updates. Thanks!";
+
+  @Benchmark
+  public int diffMain () {
+    return DiffMatchPatch.instance().diff_main(EDIT_BEFORE, EDIT_AFTER).size();
+  }
+}
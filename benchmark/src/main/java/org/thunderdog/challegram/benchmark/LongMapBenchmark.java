@@ -0,0 +1,93 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thunderdog.challegram.util.LongMap;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups of users and chats by identifier, as done by TdlibCache and Tdlib.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongMapBenchmark {
+  private static final int KEY_COUNT = 5000;
+
+  private long[] keys;
+  private LongMap<Long> longMap;
+  private HashMap<Long, Long> hashMap;
+
+  @Setup
+  public void setup () {
+    Random random = new Random(KEY_COUNT);
+    keys = new long[KEY_COUNT];
+    for (int i = 0; i < KEY_COUNT; i++) {
+      // Mix of user, basic group and supergroup identifiers
+      switch (i % 3) {
+        case 0: keys[i] = 1 + random.nextInt(Integer.MAX_VALUE); break;
+        case 1: keys[i] = -(1 + random.nextInt(999999999)); break;
+        default: keys[i] = -1000000000000L - random.nextInt(Integer.MAX_VALUE); break;
+      }
+    }
+    longMap = new LongMap<>(KEY_COUNT);
+    hashMap = new HashMap<>(KEY_COUNT);
+    for (long key : keys) {
+      longMap.put(key, key);
+      hashMap.put(key, key);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(KEY_COUNT)
+  public int longMapGet () {
+    int found = 0;
+    for (long key : keys) {
+      if (longMap.get(key) != null) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(KEY_COUNT)
+  public int hashMapGet () {
+    int found = 0;
+    for (long key : keys) {
+      if (hashMap.get(key) != null) {
+        found++;
+      }
+    }
+    return found;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * This file is a part of Telegram X
+ * Copyright © 2014 (tgx-android@pm.me)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * File created on 18/10/2026
+ */
+package org.thunderdog.challegram.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thunderdog.challegram.charts.SegmentTree;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Range queries used by statistics charts to find visible minimum and maximum.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentTreeBenchmark {
+  private static final int VALUE_COUNT = 10000;
+
+  private SegmentTree segmentTree;
+  private int iteration;
+
+  @Setup
+  public void setup () {
+    Random random = new Random(VALUE_COUNT);
+    int[] values = new int[VALUE_COUNT];
+    for (int i = 0; i < VALUE_COUNT; i++) {
+      values[i] = random.nextInt(100000);
+    }
+    segmentTree = new SegmentTree(values);
+  }
+
+  @Benchmark
+  public int rangeQueries () {
+    final int from = (iteration++ * 31) % (VALUE_COUNT / 2);
+    return segmentTree.rMaxQ(from, from + VALUE_COUNT / 2) + segmentTree.rMinQ(from, from + 100);
+  }
+}
@@ -28,6 +28,7 @@ object LibraryVersions {
   const val ANNOTATIONS = "1.7.1"
   const val ANDROIDX_MEDIA = "1.3.1"
   const val ANDROIDX_CAMERA = "1.3.3"
+  const val JMH = "1.37"
 }
 
 class AbiVariant (val flavor: String, vararg val filters: String = arrayOf(), val displayName: String = filters[0]) {
@@ -24,5 +24,7 @@ include(
   ":vkryl:leveldb",
   ":vkryl:core",
 
-  ":app"
+  ":app",
+
+  ":benchmark"
 )
\ No newline at end of file